@@ -0,0 +1,522 @@
+package com.kostas.banking.archive;
+
+import com.kostas.banking.dto.KeysetCursor;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.enums.TransactionType;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One immutable archive file of transactions, read through a read-only memory mapping - the page cache holds
+ * it, not the heap, and an index lookup touches only the pages it lands on.
+ * <p>
+ * Rows are sorted oldest first (createdAt, then id) and stored column by column in blocks of
+ * {@link #BLOCK_ROWS}, each column of each block deflated on its own, so a lookup inflates one block of the
+ * columns it needs rather than the file. Timestamps are delta-encoded and the accounts are a table the rows
+ * point into, which is what makes the columns compress well. The two indexes are left uncompressed so they
+ * can be binary searched in place. Layout, big-endian:
+ * <pre>
+ * column blocks     every column of every block, deflated
+ * account table     deflated: count, then (id, account number) per account the rows reference
+ * reference index   (hash of the reference number, row) per row, sorted by hash
+ * account index     (account id, row) per debit and per credit side, sorted by account, then row
+ * footer            row count, createdAt range, block table, section offsets
+ * trailer           footer offset, magic
+ * </pre>
+ */
+final class Segment {
+
+    static final int BLOCK_ROWS = 1024;
+
+    private static final int MAGIC = 0x42534731; // "BSG1"
+    private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+    private static final int REFERENCE_ENTRY = Long.BYTES + Integer.BYTES;
+    private static final int ACCOUNT_ENTRY = 2 * Long.BYTES + Integer.BYTES;
+
+    private enum Column { ID, REFERENCE, DEBIT, CREDIT, AMOUNT, CURRENCY, TYPE, STATUS, CREATED, POSTED }
+
+    private static final Column[] COLUMNS = Column.values();
+    private static final Comparator<TransactionDTO> OLDEST_FIRST = Comparator
+            .comparing(TransactionDTO::createdAt)
+            .thenComparing(TransactionDTO::id, KeysetCursor::compareIds);
+
+    private record ReferenceEntry(long hash, int row) {}
+
+    private record AccountEntry(UUID accountId, int row) {}
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final int rowCount;
+    private final LocalDateTime minCreatedAt;
+    private final LocalDateTime maxCreatedAt;
+    // NOTE: [block][column] - offset, compressed and raw length of each deflated column block
+    private final long[][] blockOffsets;
+    private final int[][] blockLengths;
+    private final int[][] blockRawLengths;
+    private final UUID[] accountIds;
+    private final String[] accountNumbers;
+    private final int referenceIndex;
+    private final int accountIndex;
+    private final int accountIndexCount;
+
+    private Segment(Path path, ByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        int trailer = buffer.capacity() - TRAILER_SIZE;
+        if (trailer < 0 || buffer.getInt(trailer + Long.BYTES) != MAGIC) {
+            throw new IllegalStateException("Not an archive segment: " + path);
+        }
+        ByteBuffer footer = buffer.slice((int) buffer.getLong(trailer), trailer - (int) buffer.getLong(trailer));
+        this.rowCount = footer.getInt();
+        this.minCreatedAt = decodeTime(footer.getLong());
+        this.maxCreatedAt = decodeTime(footer.getLong());
+        int blocks = footer.getInt();
+        this.blockOffsets = new long[blocks][COLUMNS.length];
+        this.blockLengths = new int[blocks][COLUMNS.length];
+        this.blockRawLengths = new int[blocks][COLUMNS.length];
+        for (int block = 0; block < blocks; block++) {
+            for (int column = 0; column < COLUMNS.length; column++) {
+                blockOffsets[block][column] = footer.getLong();
+                blockLengths[block][column] = footer.getInt();
+                blockRawLengths[block][column] = footer.getInt();
+            }
+        }
+        long accountsOffset = footer.getLong();
+        int accountsLength = footer.getInt();
+        int accountsRawLength = footer.getInt();
+        this.referenceIndex = (int) footer.getLong();
+        this.accountIndex = (int) footer.getLong();
+        this.accountIndexCount = footer.getInt();
+
+        try (DataInputStream accounts = inflate(accountsOffset, accountsLength, accountsRawLength)) {
+            int count = accounts.readInt();
+            this.accountIds = new UUID[count];
+            this.accountNumbers = new String[count];
+            for (int i = 0; i < count; i++) {
+                accountIds[i] = new UUID(accounts.readLong(), accounts.readLong());
+                accountNumbers[i] = accounts.readUTF();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt archive segment " + path, e);
+        }
+    }
+
+    static Segment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // NOTE: the mapping outlives the channel and is released when the buffer is collected
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Segment(path, buffer);
+        }
+    }
+
+    /**
+     * Writes {@code rows} as a segment at {@code path} and forces it to disk.
+     */
+    static void write(Path path, List<TransactionDTO> rows) throws IOException {
+        List<TransactionDTO> sorted = new ArrayList<>(rows);
+        sorted.sort(OLDEST_FIRST);
+
+        Map<UUID, Integer> accounts = new LinkedHashMap<>();
+        Map<UUID, String> accountNumbers = new LinkedHashMap<>();
+        for (TransactionDTO row : sorted) {
+            if (row.debitAccountId() != null) {
+                accounts.putIfAbsent(row.debitAccountId(), accounts.size());
+                accountNumbers.putIfAbsent(row.debitAccountId(), row.debitAccountNumber());
+            }
+            if (row.creditAccountId() != null) {
+                accounts.putIfAbsent(row.creditAccountId(), accounts.size());
+                accountNumbers.putIfAbsent(row.creditAccountId(), row.creditAccountNumber());
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            int blocks = (sorted.size() + BLOCK_ROWS - 1) / BLOCK_ROWS;
+            long[][] offsets = new long[blocks][COLUMNS.length];
+            int[][] lengths = new int[blocks][COLUMNS.length];
+            int[][] rawLengths = new int[blocks][COLUMNS.length];
+            for (int block = 0; block < blocks; block++) {
+                List<TransactionDTO> blockRows = sorted.subList(block * BLOCK_ROWS, Math.min(sorted.size(), (block + 1) * BLOCK_ROWS));
+                for (Column column : COLUMNS) {
+                    byte[] raw = encode(column, blockRows, accounts);
+                    offsets[block][column.ordinal()] = out.size();
+                    rawLengths[block][column.ordinal()] = raw.length;
+                    lengths[block][column.ordinal()] = deflateTo(out, raw);
+                }
+            }
+
+            ByteArrayOutputStream accountBytes = new ByteArrayOutputStream();
+            DataOutputStream accountTable = new DataOutputStream(accountBytes);
+            accountTable.writeInt(accounts.size());
+            for (Map.Entry<UUID, String> account : accountNumbers.entrySet()) {
+                accountTable.writeLong(account.getKey().getMostSignificantBits());
+                accountTable.writeLong(account.getKey().getLeastSignificantBits());
+                accountTable.writeUTF(account.getValue() != null ? account.getValue() : "");
+            }
+            long accountsOffset = out.size();
+            int accountsLength = deflateTo(out, accountBytes.toByteArray());
+
+            List<ReferenceEntry> references = new ArrayList<>(sorted.size());
+            for (int row = 0; row < sorted.size(); row++) {
+                references.add(new ReferenceEntry(hash(sorted.get(row).referenceNumber()), row));
+            }
+            references.sort(Comparator.comparingLong(ReferenceEntry::hash).thenComparingInt(ReferenceEntry::row));
+            long referenceOffset = out.size();
+            for (ReferenceEntry entry : references) {
+                out.writeLong(entry.hash());
+                out.writeInt(entry.row());
+            }
+
+            List<AccountEntry> sides = new ArrayList<>();
+            for (int row = 0; row < sorted.size(); row++) {
+                TransactionDTO transaction = sorted.get(row);
+                if (transaction.debitAccountId() != null) {
+                    sides.add(new AccountEntry(transaction.debitAccountId(), row));
+                }
+                if (transaction.creditAccountId() != null && !transaction.creditAccountId().equals(transaction.debitAccountId())) {
+                    sides.add(new AccountEntry(transaction.creditAccountId(), row));
+                }
+            }
+            sides.sort(Comparator.comparing(AccountEntry::accountId, KeysetCursor::compareIds)
+                    .thenComparingInt(AccountEntry::row));
+            long accountIndexOffset = out.size();
+            for (AccountEntry entry : sides) {
+                out.writeLong(entry.accountId().getMostSignificantBits());
+                out.writeLong(entry.accountId().getLeastSignificantBits());
+                out.writeInt(entry.row());
+            }
+
+            long footerOffset = out.size();
+            out.writeInt(sorted.size());
+            out.writeLong(sorted.isEmpty() ? 0 : encodeTime(sorted.get(0).createdAt()));
+            out.writeLong(sorted.isEmpty() ? 0 : encodeTime(sorted.get(sorted.size() - 1).createdAt()));
+            out.writeInt(blocks);
+            for (int block = 0; block < blocks; block++) {
+                for (int column = 0; column < COLUMNS.length; column++) {
+                    out.writeLong(offsets[block][column]);
+                    out.writeInt(lengths[block][column]);
+                    out.writeInt(rawLengths[block][column]);
+                }
+            }
+            out.writeLong(accountsOffset);
+            out.writeInt(accountsLength);
+            out.writeInt(accountBytes.size());
+            out.writeLong(referenceOffset);
+            out.writeLong(accountIndexOffset);
+            out.writeInt(sides.size());
+            out.writeLong(footerOffset);
+            out.writeInt(MAGIC);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+
+    LocalDateTime minCreatedAt() {
+        return minCreatedAt;
+    }
+
+    LocalDateTime maxCreatedAt() {
+        return maxCreatedAt;
+    }
+
+    /**
+     * Binary searches the reference index for the hash, then checks the reference numbers of the rows it
+     * points at - a hash that isn't in the segment costs no inflating at all.
+     */
+    TransactionDTO findByReferenceNumber(String referenceNumber) {
+        long hash = hash(referenceNumber);
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getLong(referenceIndex + mid * REFERENCE_ENTRY) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < rowCount && buffer.getLong(referenceIndex + i * REFERENCE_ENTRY) == hash; i++) {
+            int row = buffer.getInt(referenceIndex + i * REFERENCE_ENTRY + Long.BYTES);
+            String[] references = references(row / BLOCK_ROWS);
+            if (references[row % BLOCK_ROWS].equals(referenceNumber)) {
+                return rows(row / BLOCK_ROWS)[row % BLOCK_ROWS];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The account's rows on either side, newest first, that pass {@code matches} - at most {@code limit}.
+     */
+    List<TransactionDTO> findByAccount(UUID accountId, Predicate<TransactionDTO> matches, int limit) {
+        int low = 0;
+        int high = accountIndexCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (KeysetCursor.compareIds(indexedAccount(mid), accountId) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+        while (end < accountIndexCount && indexedAccount(end).equals(accountId)) {
+            end++;
+        }
+
+        List<TransactionDTO> found = new ArrayList<>();
+        int decodedBlock = -1;
+        TransactionDTO[] block = null;
+        for (int i = end - 1; i >= low && found.size() < limit; i--) {
+            int row = buffer.getInt(accountIndex + i * ACCOUNT_ENTRY + 2 * Long.BYTES);
+            if (row / BLOCK_ROWS != decodedBlock) {
+                decodedBlock = row / BLOCK_ROWS;
+                block = rows(decodedBlock);
+            }
+            TransactionDTO transaction = block[row % BLOCK_ROWS];
+            if (matches.test(transaction)) {
+                found.add(transaction);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Every row with either side in the account range {@code [fromAccount, toAccount]}, once each, oldest first.
+     * The index entries only mark their rows; each block is inflated once, however many accounts it holds.
+     */
+    void forEachRow(UUID fromAccount, UUID toAccount, Consumer<TransactionDTO> consumer) {
+        int low = 0;
+        int high = accountIndexCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (KeysetCursor.compareIds(indexedAccount(mid), fromAccount) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        BitSet marked = new BitSet(rowCount);
+        for (int i = low; i < accountIndexCount && KeysetCursor.compareIds(indexedAccount(i), toAccount) <= 0; i++) {
+            marked.set(buffer.getInt(accountIndex + i * ACCOUNT_ENTRY + 2 * Long.BYTES));
+        }
+
+        int decodedBlock = -1;
+        TransactionDTO[] block = null;
+        for (int row = marked.nextSetBit(0); row >= 0; row = marked.nextSetBit(row + 1)) {
+            if (row / BLOCK_ROWS != decodedBlock) {
+                decodedBlock = row / BLOCK_ROWS;
+                block = rows(decodedBlock);
+            }
+            consumer.accept(block[row % BLOCK_ROWS]);
+        }
+    }
+
+    private UUID indexedAccount(int entry) {
+        int offset = accountIndex + entry * ACCOUNT_ENTRY;
+        return new UUID(buffer.getLong(offset), buffer.getLong(offset + Long.BYTES));
+    }
+
+    private String[] references(int block) {
+        try (DataInputStream in = column(block, Column.REFERENCE)) {
+            String[] references = new String[blockSize(block)];
+            for (int i = 0; i < references.length; i++) {
+                references[i] = in.readUTF();
+            }
+            return references;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt archive segment " + path, e);
+        }
+    }
+
+    private TransactionDTO[] rows(int block) {
+        int size = blockSize(block);
+        TransactionDTO[] rows = new TransactionDTO[size];
+        String[] references = references(block);
+        try (DataInputStream ids = column(block, Column.ID);
+             DataInputStream debits = column(block, Column.DEBIT);
+             DataInputStream credits = column(block, Column.CREDIT);
+             DataInputStream amounts = column(block, Column.AMOUNT);
+             DataInputStream currencies = column(block, Column.CURRENCY);
+             DataInputStream types = column(block, Column.TYPE);
+             DataInputStream statuses = column(block, Column.STATUS);
+             DataInputStream created = column(block, Column.CREATED);
+             DataInputStream posted = column(block, Column.POSTED)) {
+            long createdAt = 0;
+            for (int i = 0; i < size; i++) {
+                UUID id = new UUID(ids.readLong(), ids.readLong());
+                int debit = debits.readInt();
+                int credit = credits.readInt();
+                int scale = amounts.readShort();
+                byte[] unscaled = new byte[amounts.readUnsignedByte()];
+                amounts.readFully(unscaled);
+                createdAt += created.readLong();
+                Long postedAt = posted.readBoolean() ? createdAt + posted.readLong() : null;
+                rows[i] = new TransactionDTO(
+                        id,
+                        references[i],
+                        debit < 0 ? null : accountIds[debit],
+                        debit < 0 ? null : accountNumbers[debit],
+                        credit < 0 ? null : accountIds[credit],
+                        credit < 0 ? null : accountNumbers[credit],
+                        new BigDecimal(new BigInteger(unscaled), scale),
+                        CurrencyCode.valueOf(currencies.readUTF()),
+                        TransactionType.valueOf(types.readUTF()),
+                        TransactionStatus.valueOf(statuses.readUTF()),
+                        decodeTime(createdAt),
+                        postedAt != null ? decodeTime(postedAt) : null
+                );
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt archive segment " + path, e);
+        }
+    }
+
+    private int blockSize(int block) {
+        return Math.min(BLOCK_ROWS, rowCount - block * BLOCK_ROWS);
+    }
+
+    private DataInputStream column(int block, Column column) {
+        return inflate(blockOffsets[block][column.ordinal()], blockLengths[block][column.ordinal()],
+                blockRawLengths[block][column.ordinal()]);
+    }
+
+    // NOTE: the inflater reads the compressed bytes straight out of the mapping, no copy onto the heap first
+    private DataInputStream inflate(long offset, int length, int rawLength) {
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice((int) offset, length));
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                read += inflater.inflate(raw, read, rawLength - read);
+            }
+            if (read != rawLength) {
+                throw new IllegalStateException("Corrupt archive segment " + path);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt archive segment " + path, e);
+        } finally {
+            inflater.end();
+        }
+        return new DataInputStream(new ByteArrayInputStream(raw));
+    }
+
+    private static byte[] encode(Column column, List<TransactionDTO> rows, Map<UUID, Integer> accounts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        long previous = 0;
+        for (TransactionDTO row : rows) {
+            switch (column) {
+                case ID -> {
+                    out.writeLong(row.id().getMostSignificantBits());
+                    out.writeLong(row.id().getLeastSignificantBits());
+                }
+                case REFERENCE -> out.writeUTF(row.referenceNumber());
+                case DEBIT -> out.writeInt(row.debitAccountId() != null ? accounts.get(row.debitAccountId()) : -1);
+                case CREDIT -> out.writeInt(row.creditAccountId() != null ? accounts.get(row.creditAccountId()) : -1);
+                case AMOUNT -> {
+                    byte[] unscaled = row.amount().unscaledValue().toByteArray();
+                    out.writeShort(row.amount().scale());
+                    out.writeByte(unscaled.length);
+                    out.write(unscaled);
+                }
+                case CURRENCY -> out.writeUTF(row.currency().name());
+                case TYPE -> out.writeUTF(row.type().name());
+                case STATUS -> out.writeUTF(row.status().name());
+                case CREATED -> {
+                    long createdAt = encodeTime(row.createdAt());
+                    out.writeLong(createdAt - previous);
+                    previous = createdAt;
+                }
+                case POSTED -> {
+                    out.writeBoolean(row.postedAt() != null);
+                    if (row.postedAt() != null) {
+                        out.writeLong(encodeTime(row.postedAt()) - encodeTime(row.createdAt()));
+                    }
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static int deflateTo(DataOutputStream out, byte[] raw) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] chunk = new byte[8192];
+            int length = 0;
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.write(chunk, 0, n);
+                length += n;
+            }
+            return length;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // NOTE: timestamps are local date-times, stored as nanoseconds since the epoch read as UTC
+    private static long encodeTime(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+
+    private static LocalDateTime decodeTime(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    // NOTE: 64-bit FNV-1a, wide enough that a reference number that isn't here almost never shares a hash
+    // with one that is and has to inflate a block to be ruled out
+    static long hash(String referenceNumber) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : referenceNumber.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,245 @@
+package com.kostas.banking.archive;
+
+import com.kostas.banking.dto.KeysetCursor;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.dto.TransactionFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * The cold tier of the transactions table: settled transactions the {@code TransactionArchiver} moved out of
+ * the database, kept as immutable {@link Segment} files in {@code banking.archive.directory}.
+ * <p>
+ * Segments are named by when they were written and searched newest first, so when a transaction ends up in
+ * two of them (its rows were written, then the database delete rolled back and a later pass archived them
+ * again) the later copy is the one returned. A node that doesn't archive picks up the segments another node
+ * wrote within {@code rescan-interval}; for that the directory has to be shared between them.
+ */
+@Slf4j
+@Component
+public class TransactionArchive implements MeterBinder {
+
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final Duration rescanInterval;
+    // NOTE: copy-on-write, newest segment first - readers never lock
+    private volatile List<Segment> segments = List.of();
+    private volatile long lastScan;
+    private long lastName;
+
+    public TransactionArchive(
+            @Value("${banking.archive.directory:archive}") String directory,
+            @Value("${banking.archive.rescan-interval:PT10S}") Duration rescanInterval) {
+        this.directory = Path.of(directory);
+        this.rescanInterval = rescanInterval;
+        rescan();
+    }
+
+    public Optional<TransactionDTO> findByReferenceNumber(String referenceNumber) {
+        for (Segment segment : segments()) {
+            TransactionDTO transaction = segment.findByReferenceNumber(referenceNumber);
+            if (transaction != null) {
+                return Optional.of(transaction);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public boolean contains(String referenceNumber) {
+        return findByReferenceNumber(referenceNumber).isPresent();
+    }
+
+    public Set<String> findExistingReferenceNumbers(Collection<String> referenceNumbers) {
+        Set<String> existing = new HashSet<>();
+        for (String referenceNumber : referenceNumbers) {
+            if (contains(referenceNumber)) {
+                existing.add(referenceNumber);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * The account's archived transactions on either side that match {@code filter} and come after
+     * {@code cursor}, newest first - at most {@code limit}. Segments that can't hold a row for the page (their
+     * createdAt range is outside the filter, after the cursor, or older than a full page) aren't searched.
+     */
+    public List<TransactionDTO> findByAccount(UUID accountId, TransactionFilter filter, KeysetCursor cursor, int limit) {
+        return findByAccount(accountId, row -> true, filter, cursor, limit);
+    }
+
+    /**
+     * Like {@link #findByAccount(UUID, TransactionFilter, KeysetCursor, int)}, only counting the rows that
+     * pass {@code side} towards {@code limit} - for listings of one side of the account.
+     */
+    public List<TransactionDTO> findByAccount(UUID accountId, Predicate<TransactionDTO> side, TransactionFilter filter,
+                                              KeysetCursor cursor, int limit) {
+        if (cursor != null && cursor.createdAt() == null) {
+            throw new IllegalArgumentException("Transactions are paged by createdAt and id, not by id only");
+        }
+        Predicate<TransactionDTO> matches = row -> side.test(row) && matches(row, filter) && after(row, cursor);
+        Set<UUID> seen = new HashSet<>();
+        List<TransactionDTO> rows = new ArrayList<>();
+        for (Segment segment : segments()) {
+            if ((filter.from() != null && segment.maxCreatedAt().isBefore(filter.from()))
+                    || (filter.to() != null && !segment.minCreatedAt().isBefore(filter.to()))
+                    || (cursor != null && segment.minCreatedAt().isAfter(cursor.createdAt()))
+                    || (rows.size() >= limit && segment.maxCreatedAt().isBefore(rows.get(limit - 1).createdAt()))) {
+                continue;
+            }
+            for (TransactionDTO row : segment.findByAccount(accountId, matches, limit)) {
+                if (seen.add(row.id())) {
+                    rows.add(row);
+                }
+            }
+            rows.sort(KeysetCursor.TRANSACTIONS_NEWEST_FIRST);
+            if (rows.size() > limit) {
+                rows.subList(limit, rows.size()).clear();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Every archived transaction with either side in the account range {@code [fromAccount, toAccount]}, in no
+     * particular order, one segment at a time - for jobs that read everything an account range ever posted
+     * without holding it on the heap. A transaction in more than one segment is passed on from the newest only,
+     * found through the newer segments' reference indexes rather than a set of what was already seen.
+     */
+    public void forEachRow(UUID fromAccount, UUID toAccount, Consumer<TransactionDTO> consumer) {
+        List<Segment> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            List<Segment> newer = segments.subList(0, i);
+            segments.get(i).forEachRow(fromAccount, toAccount, row -> {
+                for (Segment segment : newer) {
+                    if (segment.findByReferenceNumber(row.referenceNumber()) != null) {
+                        return;
+                    }
+                }
+                consumer.accept(row);
+            });
+        }
+    }
+
+    /**
+     * Writes {@code rows} as a new segment and makes it visible to readers on this node. The file is written
+     * under a temporary name, forced to disk and then renamed, so a crash never leaves half a segment behind.
+     */
+    public synchronized Path write(List<TransactionDTO> rows) {
+        try {
+            Files.createDirectories(directory);
+            // NOTE: names sort in write order, which is the order duplicates are resolved in
+            lastName = Math.max(lastName + 1, System.currentTimeMillis());
+            Path path = directory.resolve(String.format("segment-%015d-%s%s",
+                    lastName, UUID.randomUUID().toString().substring(0, 8), SUFFIX));
+            Path temporary = directory.resolve(path.getFileName() + ".tmp");
+            Segment.write(temporary, rows);
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+            Segment segment = Segment.open(path);
+
+            List<Segment> updated = new ArrayList<>(segments.size() + 1);
+            updated.add(segment);
+            updated.addAll(segments);
+            segments = List.copyOf(updated);
+            return path;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write an archive segment to " + directory, e);
+        }
+    }
+
+    /**
+     * Drops a segment {@link #write} just wrote, for when the rows in it couldn't be deleted from the database.
+     */
+    public synchronized void discard(Path path) {
+        segments = segments.stream().filter(segment -> !segment.path().equals(path)).toList();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete archive segment {}: {}", path, e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.archive.segments", this, archive -> archive.segments.size())
+                .description("Archive segment files open on this node")
+                .register(registry);
+        Gauge.builder("banking.archive.transactions", this,
+                        archive -> archive.segments.stream().mapToLong(Segment::rowCount).sum())
+                .description("Transactions in the archive segments open on this node")
+                .register(registry);
+    }
+
+    private List<Segment> segments() {
+        if (System.nanoTime() - lastScan >= rescanInterval.toNanos()) {
+            rescan();
+        }
+        return segments;
+    }
+
+    private synchronized void rescan() {
+        lastScan = System.nanoTime();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Map<Path, Segment> open = new HashMap<>();
+        for (Segment segment : segments) {
+            open.put(segment.path(), segment);
+        }
+        List<Segment> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                Segment segment = open.get(path);
+                if (segment == null) {
+                    segment = Segment.open(path);
+                }
+                found.add(segment);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not scan archive directory {}: {}", directory, e.getMessage());
+            return;
+        }
+        found.sort(Comparator.comparing((Segment segment) -> segment.path().getFileName().toString()).reversed());
+        segments = List.copyOf(found);
+    }
+
+    // NOTE: the in-memory counterpart of TransactionSpecifications.matches
+    private static boolean matches(TransactionDTO row, TransactionFilter filter) {
+        return (filter.from() == null || !row.createdAt().isBefore(filter.from()))
+                && (filter.to() == null || row.createdAt().isBefore(filter.to()))
+                && (filter.type() == null || row.type() == filter.type())
+                && (filter.status() == null || row.status() == filter.status())
+                && (filter.minAmount() == null || row.amount().compareTo(filter.minAmount()) >= 0)
+                && (filter.maxAmount() == null || row.amount().compareTo(filter.maxAmount()) <= 0);
+    }
+
+    private static boolean after(TransactionDTO row, KeysetCursor cursor) {
+        return cursor == null || row.createdAt().isBefore(cursor.createdAt())
+                || (row.createdAt().equals(cursor.createdAt()) && KeysetCursor.compareIds(row.id(), cursor.id()) < 0);
+    }
+}
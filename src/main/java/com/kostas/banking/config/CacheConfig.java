@@ -0,0 +1,52 @@
+package com.kostas.banking.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * Read-through caches for the lookups partner integrations hammer (account by number, customer by email), and
+ * the recently posted transactions a retried submission is answered from.
+ * Bounded by {@code banking.cache.maximum-size} entries per cache and {@code banking.cache.ttl} since the
+ * entry was loaded; {@code banking.cache.enabled=false} turns caching off entirely.
+ * <p>
+ * Write paths evict the entries they change. Those evictions are applied after the writing transaction
+ * commits, so a lookup can't re-cache the old row in between - one that read it before the commit can,
+ * which the TTL bounds.
+ */
+@Configuration
+// NOTE: ahead of @Transactional, so a cache hit doesn't open a transaction and borrow a connection first
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+
+    public static final String ACCOUNTS_BY_NUMBER = "accountsByNumber";
+    public static final String CUSTOMERS_BY_EMAIL = "customersByEmail";
+    public static final String TRANSACTIONS_BY_REFERENCE = "transactionsByReference";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${banking.cache.enabled:true}") boolean enabled,
+            @Value("${banking.cache.maximum-size:10000}") long maximumSize,
+            @Value("${banking.cache.ttl:PT5M}") Duration ttl) {
+        if (!enabled) {
+            return new NoOpCacheManager();
+        }
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(ACCOUNTS_BY_NUMBER, CUSTOMERS_BY_EMAIL, TRANSACTIONS_BY_REFERENCE);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats());
+        // NOTE: null results are never cached - lookups of unknown keys throw and go to the database every time
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,41 @@
+package com.kostas.banking.config;
+
+import com.kostas.banking.sql.SqlStatementCounter;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JpaConfig {
+
+    // NOTE: posting batches insert hundreds of transactions and update the touched balances - with
+    // ordered statements Hibernate groups them into a few JDBC batches instead of one round trip per row.
+    // putIfAbsent so spring.jpa.properties.* still wins
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatching(@Value("${banking.jpa.batch-size:500}") int batchSize) {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+            properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+            properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+        };
+    }
+
+    // NOTE: hibernate-micrometer publishes these as hibernate.* meters (statements, entity loads, cache hits...);
+    // the counters are per-session-factory LongAdders, cheap next to the statements they count. Statistics
+    // would also turn on the INFO "Session Metrics" dump at the end of every session, so that stays off
+    @Bean
+    public HibernatePropertiesCustomizer statistics(@Value("${banking.metrics.hibernate:true}") boolean enabled) {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.GENERATE_STATISTICS, enabled);
+            properties.putIfAbsent(AvailableSettings.LOG_SESSION_METRICS, false);
+        };
+    }
+
+    // NOTE: counts statements for SqlBudgetFilter, free outside a request
+    @Bean
+    public HibernatePropertiesCustomizer statementCounter() {
+        return properties -> properties.putIfAbsent(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+}
@@ -0,0 +1,114 @@
+package com.kostas.banking.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms for the three layers of a request, all scraped from {@code /actuator/prometheus}:
+ * <ul>
+ *     <li>{@code http.server.requests} - every controller endpoint, recorded by Spring MVC</li>
+ *     <li>{@code banking.service} - every public method of the {@code *Service} classes, timed here</li>
+ *     <li>{@code spring.data.repository.invocations} - every repository call, recorded by Spring Data</li>
+ * </ul>
+ * Each gets a fixed set of buckets from 1 ms to 30 s, so percentiles can be aggregated across instances.
+ * Recording is a lookup in a per-method map and a few atomic adds; {@code banking.metrics.services=false}
+ * drops the service timers.
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String SERVICE_TIMER = "banking.service";
+
+    private static final Set<String> HISTOGRAMS = Set.of(
+            "http.server.requests", SERVICE_TIMER, "spring.data.repository.invocations");
+
+    @Bean
+    public MeterFilter latencyHistograms() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!HISTOGRAMS.contains(id.getName())) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                        .maximumExpectedValue((double) Duration.ofSeconds(30).toNanos())
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+
+    // NOTE: infrastructure role so the proxy creator that @Transactional and @Cacheable already use picks it up,
+    // wrapping both - a cache hit and a transaction's commit are part of the service call's time
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    @ConditionalOnProperty(name = "banking.metrics.services", havingValue = "true", matchIfMissing = true)
+    public static Advisor serviceTimers(ObjectProvider<MeterRegistry> meterRegistry) {
+        Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+        MethodInterceptor interceptor = invocation -> {
+            long start = System.nanoTime();
+            Throwable failure = null;
+            try {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                failure = e;
+                throw e;
+            } finally {
+                TimerKey key = new TimerKey(invocation.getMethod(), failure == null ? null : failure.getClass());
+                Timer timer = timers.get(key);
+                if (timer == null) {
+                    timer = timers.computeIfAbsent(key, k -> k.register(meterRegistry.getObject()));
+                }
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return targetClass.isAnnotationPresent(Service.class)
+                        && targetClass.getPackageName().equals("com.kostas.banking.service")
+                        && targetClass.getSimpleName().endsWith("Service")
+                        && Modifier.isPublic(method.getModifiers())
+                        && method.getDeclaringClass() == targetClass;
+            }
+        }, interceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    private record TimerKey(Method method, Class<?> exception) {
+        Timer register(MeterRegistry registry) {
+            return Timer.builder(SERVICE_TIMER)
+                    .tag("service", method.getDeclaringClass().getSimpleName())
+                    .tag("method", method.getName())
+                    .tag("exception", exception == null ? "none" : exception.getSimpleName())
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.kostas.banking.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Opt-in with {@code spring.threads.virtual.enabled=true}: Boot then runs every request - and the
+ * {@code @Transactional} service calls under it - on its own virtual thread instead of Tomcat's 200 platform
+ * threads, so a slow database no longer exhausts the request pool.
+ * <p>
+ * That also removes the only thing that capped how many requests wait on the connection pool at once. Here
+ * connections go through {@link ConnectionPermitDataSource}, sized to the pool by default
+ * ({@code banking.threads.connection-permits}), and a request that gets no connection within
+ * {@code banking.threads.connection-wait} fails with 503 rather than queueing without bound.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionPermits(
+            @Value("${banking.threads.connection-permits:0}") int permits,
+            @Value("${banking.threads.connection-wait:PT5S}") Duration wait) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    int count = permits > 0 ? permits : dataSource.getMaximumPoolSize();
+                    log.info("Virtual threads enabled, bounding '{}' to {} concurrent connections", beanName, count);
+                    return new ConnectionPermitDataSource(dataSource, count, wait);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package com.kostas.banking.config;
+
+import com.kostas.banking.sql.SqlBudgetFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    // NOTE: streamed exports run as async requests, Tomcat's 30s async default would cut large ones off
+    @Value("${banking.export.timeout:PT1H}")
+    private Duration exportTimeout;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(exportTimeout.toMillis());
+    }
+
+    // NOTE: first in the chain, so statements run by the security filters count against the request too
+    @Bean
+    public FilterRegistrationBean<SqlBudgetFilter> sqlBudgetFilter(
+            @Value("${banking.sql.budget.mode:LOG}") SqlBudgetFilter.Mode mode) {
+        FilterRegistrationBean<SqlBudgetFilter> registration = new FilterRegistrationBean<>(new SqlBudgetFilter(mode));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
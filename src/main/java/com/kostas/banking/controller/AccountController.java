@@ -3,47 +3,81 @@ package com.kostas.banking.controller;
 import com.kostas.banking.dto.AccountCreateDTO;
 import com.kostas.banking.dto.AccountDTO;
 import com.kostas.banking.dto.AccountUpdateDTO;
+import com.kostas.banking.dto.PageDTO;
+import com.kostas.banking.dto.StatementDTO;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.security.Ownership;
 import com.kostas.banking.service.AccountService;
+import com.kostas.banking.service.StatementService;
+import com.kostas.banking.sql.SqlBudget;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
 @RestController
+// NOTE: with banking.auth.required on, the budgets include Ownership's lookup where there is one
+@SqlBudget(1)
 @RequestMapping("/api/accounts")
 @RequiredArgsConstructor
 public class AccountController {
 
     private final AccountService accountService;
+    private final StatementService statementService;
+    private final Ownership ownership;
 
     @GetMapping("/{id}")
     public ResponseEntity<AccountDTO> getAccount(@PathVariable UUID id) {
-        return ResponseEntity.ok(accountService.getAccount(id));
+        AccountDTO account = accountService.getAccount(id);
+        ownership.customer(account.ownerId());
+        return ResponseEntity.ok(account);
     }
 
     @GetMapping("/account-number/{accountNumber}")
     public ResponseEntity<AccountDTO> getAccountByAccountNumber(@PathVariable String accountNumber) {
-        return ResponseEntity.ok(accountService.getAccountByAccountNumber(accountNumber));
+        AccountDTO account = accountService.getAccountByAccountNumber(accountNumber);
+        ownership.customer(account.ownerId());
+        return ResponseEntity.ok(account);
     }
 
     @GetMapping
-    public ResponseEntity<List<AccountDTO>> getAllAccounts() {
-        return ResponseEntity.ok(accountService.getAllAccounts());
+    public ResponseEntity<PageDTO<AccountDTO>> getAllAccounts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(accountService.getAllAccounts(cursor, limit));
     }
 
     @GetMapping("/customer/{customerId}")
     public ResponseEntity<List<AccountDTO>> getAccountsByCustomerId(@PathVariable UUID customerId) {
+        ownership.customer(customerId);
         return ResponseEntity.ok(accountService.getAccountsByCustomerId(customerId));
     }
 
+    // NOTE: answered from the daily summaries, so the cost doesn't grow with the range or the activity in it.
+    // One query when anything was posted in the range, up to five to find the balance of a quiet one
+    @SqlBudget(6)
+    @GetMapping("/{id}/statement")
+    public ResponseEntity<StatementDTO> getStatement(
+            @PathVariable UUID id,
+            @RequestParam CurrencyCode currency,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        ownership.account(id);
+        return ResponseEntity.ok(statementService.getStatement(id, currency, from, to));
+    }
+
+    @SqlBudget(4)
     @PostMapping
     public ResponseEntity<AccountDTO> createAccount(@RequestBody @Valid AccountCreateDTO accountCreateDTO) {
+        ownership.customer(accountCreateDTO.ownerId());
         AccountDTO created = accountService.createAccount(accountCreateDTO);
         URI location = ServletUriComponentsBuilder
                 .fromCurrentRequest()
@@ -53,21 +87,27 @@ public class AccountController {
         return ResponseEntity.created(location).body(created);
     }
 
+    @SqlBudget(5)
     @PutMapping("/{id}")
     public ResponseEntity<AccountDTO> updateAccount(
             @PathVariable UUID id,
             @RequestBody @Valid AccountUpdateDTO accountUpdateDTO) {
+        ownership.account(id);
         return ResponseEntity.ok(accountService.updateAccount(id, accountUpdateDTO));
     }
 
+    @SqlBudget(6)
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteAccount(@PathVariable UUID id) {
+        ownership.account(id);
         accountService.deleteAccount(id);
     }
 
+    @SqlBudget(5)
     @PutMapping("/{id}/restore")
     public ResponseEntity<AccountDTO> restoreAccount(@PathVariable UUID id) {
+        ownership.account(id);
         return ResponseEntity.ok(accountService.restoreAccount(id));
     }
 }
@@ -3,7 +3,9 @@ package com.kostas.banking.controller;
 import com.kostas.banking.dto.AuthRequest;
 import com.kostas.banking.dto.AuthResponse;
 import com.kostas.banking.model.Customer;
+import com.kostas.banking.security.SessionTokenService;
 import com.kostas.banking.service.CustomerService;
+import com.kostas.banking.sql.SqlBudget;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -13,12 +15,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
+@SqlBudget(1)
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
 public class AuthController {
 
     private final CustomerService customerService;
+    private final SessionTokenService sessionTokenService;
 
+    @SqlBudget(2) // the lookup, plus the update when the hash is upgraded to the current cost
     @PostMapping("/login")
     public ResponseEntity<AuthResponse> login(@RequestBody @Valid AuthRequest request) {
         Customer customer = customerService.authenticate(
@@ -26,10 +31,13 @@ public class AuthController {
                 request.password()
         );
 
-        // TODO maybe JWT token
+        // NOTE: the only BCrypt check in a session - later requests send the token instead
+        SessionTokenService.SessionToken session = sessionTokenService.issue(customer.getId());
         return ResponseEntity.ok(new AuthResponse(
                 "Authentication successful",
-                customer.getId()
+                customer.getId(),
+                session.token(),
+                session.expiresAt()
         ));
     }
 }
\ No newline at end of file
@@ -3,7 +3,11 @@ package com.kostas.banking.controller;
 import com.kostas.banking.dto.BalanceCreateDTO;
 import com.kostas.banking.dto.BalanceDTO;
 import com.kostas.banking.dto.BalanceUpdateDTO;
+import com.kostas.banking.dto.PageDTO;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.security.Ownership;
 import com.kostas.banking.service.BalanceService;
+import com.kostas.banking.sql.SqlBudget;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -16,29 +20,49 @@ import java.util.List;
 import java.util.UUID;
 
 @RestController
+// NOTE: with banking.auth.required on, the budgets include Ownership's lookup where there is one
+@SqlBudget(1)
 @RequestMapping("/api/balances")
 @RequiredArgsConstructor
 public class BalanceController {
 
     private final BalanceService balanceService;
+    private final Ownership ownership;
 
+    @SqlBudget(2)
     @GetMapping("/{id}")
     public ResponseEntity<BalanceDTO> getBalance(@PathVariable UUID id) {
+        ownership.balance(id);
         return ResponseEntity.ok(balanceService.getBalance(id));
     }
 
     @GetMapping
-    public ResponseEntity<List<BalanceDTO>> getAllBalances() {
-        return ResponseEntity.ok(balanceService.getAllBalances());
+    public ResponseEntity<PageDTO<BalanceDTO>> getAllBalances(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(balanceService.getAllBalances(cursor, limit));
     }
 
+    @SqlBudget(2)
     @GetMapping("/account/{accountId}")
     public ResponseEntity<List<BalanceDTO>> getBalancesByAccountId(@PathVariable UUID accountId) {
+        ownership.account(accountId);
         return ResponseEntity.ok(balanceService.getBalancesByAccountId(accountId));
     }
 
+    @SqlBudget(2)
+    @GetMapping("/account/{accountId}/{currency}")
+    public ResponseEntity<BalanceDTO> getBalanceByAccountIdAndCurrency(
+            @PathVariable UUID accountId,
+            @PathVariable CurrencyCode currency) {
+        ownership.account(accountId);
+        return ResponseEntity.ok(balanceService.getBalance(accountId, currency));
+    }
+
+    @SqlBudget(4)
     @PostMapping
     public ResponseEntity<BalanceDTO> createBalance(@RequestBody @Valid BalanceCreateDTO balanceCreateDTO) {
+        ownership.account(balanceCreateDTO.accountId());
         BalanceDTO created = balanceService.createBalance(balanceCreateDTO);
         URI location = ServletUriComponentsBuilder
                 .fromCurrentRequest()
@@ -48,16 +72,20 @@ public class BalanceController {
         return ResponseEntity.created(location).body(created);
     }
 
+    @SqlBudget(5)
     @PutMapping("/{id}")
     public ResponseEntity<BalanceDTO> updateBalance(
             @PathVariable UUID id,
             @RequestBody @Valid BalanceUpdateDTO balanceUpdateDTO) {
+        ownership.balance(id);
         return ResponseEntity.ok(balanceService.updateBalance(id, balanceUpdateDTO));
     }
 
+    @SqlBudget(5)
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteBalance(@PathVariable UUID id) {
+        ownership.balance(id);
         balanceService.deleteBalance(id);
     }
 }
@@ -0,0 +1,26 @@
+package com.kostas.banking.controller;
+
+import com.kostas.banking.dto.CacheStatsDTO;
+import com.kostas.banking.service.CacheStatsService;
+import com.kostas.banking.sql.SqlBudget;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@SqlBudget(0)
+@RequestMapping("/api/caches")
+@RequiredArgsConstructor
+public class CacheController {
+
+    private final CacheStatsService cacheStatsService;
+
+    @GetMapping
+    public ResponseEntity<List<CacheStatsDTO>> getCacheStats() {
+        return ResponseEntity.ok(cacheStatsService.getStats());
+    }
+}
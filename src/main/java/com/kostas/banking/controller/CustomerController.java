@@ -1,43 +1,79 @@
 package com.kostas.banking.controller;
 
 import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.CustomerDashboardDTO;
 import com.kostas.banking.dto.CustomerDTO;
 import com.kostas.banking.dto.CustomerUpdateDTO;
+import com.kostas.banking.dto.PageDTO;
+import com.kostas.banking.security.Ownership;
 import com.kostas.banking.service.CustomerService;
+import com.kostas.banking.service.DashboardService;
+import com.kostas.banking.service.EventRelay;
+import com.kostas.banking.sql.SqlBudget;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
-import java.util.List;
 import java.util.UUID;
 
 @Slf4j
 @RestController
+@SqlBudget(1)
 @RequestMapping("/api/customers")
 @RequiredArgsConstructor
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final DashboardService dashboardService;
+    private final EventRelay eventRelay;
+    private final Ownership ownership;
 
     @GetMapping("/{id}")
     public ResponseEntity<CustomerDTO> getCustomer(@PathVariable UUID id) {
         log.debug("Received request to get customer with id: {}", id);
+        ownership.customer(id);
         return ResponseEntity.ok(customerService.getCustomer(id));
     }
 
+    @SqlBudget(7)
+    @GetMapping("/{id}/dashboard")
+    public ResponseEntity<CustomerDashboardDTO> getDashboard(
+            @PathVariable UUID id,
+            @RequestParam(defaultValue = "20") int recent) {
+        ownership.customer(id);
+        return ResponseEntity.ok(dashboardService.getDashboard(id, recent));
+    }
+
+    // NOTE: the stream stays open and EventRelay writes to it - the request thread returns right away
+    @SqlBudget(3)
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getEvents(
+            @PathVariable UUID id,
+            @RequestHeader(value = "Last-Event-ID", required = false) UUID lastEventId) {
+        ownership.customer(id);
+        customerService.getCustomer(id);
+        return eventRelay.subscribe(id, lastEventId);
+    }
+
     @GetMapping("/email/{email}")
     public ResponseEntity<CustomerDTO> getCustomerByEmail(@PathVariable String email) {
-        return ResponseEntity.ok(customerService.getCustomerByEmail(email));
+        CustomerDTO customer = customerService.getCustomerByEmail(email);
+        ownership.customer(customer.id());
+        return ResponseEntity.ok(customer);
     }
 
     @GetMapping
-    public ResponseEntity<List<CustomerDTO>> getAllCustomers() {
-        return ResponseEntity.ok(customerService.getAllCustomers());
+    public ResponseEntity<PageDTO<CustomerDTO>> getAllCustomers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(customerService.getAllCustomers(cursor, limit));
     }
 
     @PostMapping
@@ -51,16 +87,20 @@ public class CustomerController {
         return ResponseEntity.created(location).body(created);
     }
 
+    @SqlBudget(3)
     @PutMapping("/{id}")
     public ResponseEntity<CustomerDTO> updateCustomer(
             @PathVariable UUID id,
             @RequestBody @Valid CustomerUpdateDTO customerUpdateDTO) {
+        ownership.customer(id);
         return ResponseEntity.ok(customerService.updateCustomer(id, customerUpdateDTO));
     }
 
+    @SqlBudget(3)
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteCustomer(@PathVariable UUID id) {
+        ownership.customer(id);
         customerService.deleteCustomer(id);
     }
 }
\ No newline at end of file
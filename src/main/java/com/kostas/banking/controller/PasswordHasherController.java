@@ -0,0 +1,25 @@
+package com.kostas.banking.controller;
+
+import com.kostas.banking.dto.PasswordHasherStatsDTO;
+import com.kostas.banking.security.PasswordHasher;
+import com.kostas.banking.sql.SqlBudget;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// NOTE: not under /api/auth, which is open to anonymous requests for logging in
+@RestController
+@SqlBudget(0)
+@RequestMapping("/api/password-hasher")
+@RequiredArgsConstructor
+public class PasswordHasherController {
+
+    private final PasswordHasher passwordHasher;
+
+    @GetMapping
+    public ResponseEntity<PasswordHasherStatsDTO> getPasswordHasherStats() {
+        return ResponseEntity.ok(passwordHasher.getStats());
+    }
+}
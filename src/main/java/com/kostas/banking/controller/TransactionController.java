@@ -1,15 +1,24 @@
 package com.kostas.banking.controller;
 
+import com.kostas.banking.dto.PageDTO;
+import com.kostas.banking.dto.TransactionBatchDTO;
 import com.kostas.banking.dto.TransactionCreateDTO;
 import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.dto.TransactionFilter;
 import com.kostas.banking.dto.TransactionUpdateDTO;
 import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.security.Ownership;
+import com.kostas.banking.service.TransactionExportService;
 import com.kostas.banking.service.TransactionService;
+import com.kostas.banking.sql.SqlBudget;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
@@ -17,45 +26,104 @@ import java.util.List;
 import java.util.UUID;
 
 @RestController
+// NOTE: with banking.auth.required on, the budgets include Ownership's lookup where there is one
+@SqlBudget(1)
 @RequestMapping("/api/transactions")
 @RequiredArgsConstructor
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final TransactionExportService transactionExportService;
+    private final Ownership ownership;
 
+    @SqlBudget(2)
     @GetMapping("/{id}")
     public ResponseEntity<TransactionDTO> getTransaction(@PathVariable UUID id) {
-        return ResponseEntity.ok(transactionService.getTransaction(id));
+        TransactionDTO transaction = transactionService.getTransaction(id);
+        ownership.transaction(transaction);
+        return ResponseEntity.ok(transaction);
     }
 
+    @SqlBudget(2)
     @GetMapping("/reference/{referenceNumber}")
     public ResponseEntity<TransactionDTO> getTransactionByReferenceNumber(@PathVariable String referenceNumber) {
-        return ResponseEntity.ok(transactionService.getTransactionByReferenceNumber(referenceNumber));
+        TransactionDTO transaction = transactionService.getTransactionByReferenceNumber(referenceNumber);
+        ownership.transaction(transaction);
+        return ResponseEntity.ok(transaction);
     }
 
     @GetMapping
-    public ResponseEntity<List<TransactionDTO>> getAllTransactions() {
-        return ResponseEntity.ok(transactionService.getAllTransactions());
+    public ResponseEntity<PageDTO<TransactionDTO>> getAllTransactions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(transactionService.getAllTransactions(cursor, limit));
     }
 
+    @SqlBudget(3)
+    @GetMapping("/account/{accountId}")
+    public ResponseEntity<PageDTO<TransactionDTO>> getAccountHistory(
+            @PathVariable UUID accountId,
+            TransactionFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        ownership.account(accountId);
+        return ResponseEntity.ok(transactionService.getAccountHistory(accountId, filter, cursor, limit));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            TransactionFilter filter,
+            @RequestParam(defaultValue = "NDJSON") TransactionExportService.Format format) {
+        MediaType contentType = format == TransactionExportService.Format.CSV
+                ? MediaType.parseMediaType("text/csv")
+                : MediaType.parseMediaType("application/x-ndjson");
+        String fileName = "transactions." + format.name().toLowerCase();
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(out -> transactionExportService.export(filter, format, out));
+    }
+
+    @SqlBudget(3)
     @GetMapping("/debitAccount/{accountId}")
-    public ResponseEntity<List<TransactionDTO>> getTransactionsByDebitAccountId(@PathVariable UUID accountId) {
-        return ResponseEntity.ok(transactionService.getTransactionsByDebitAccountId(accountId));
+    public ResponseEntity<PageDTO<TransactionDTO>> getTransactionsByDebitAccountId(
+            @PathVariable UUID accountId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        ownership.account(accountId);
+        return ResponseEntity.ok(transactionService.getTransactionsByDebitAccountId(accountId, cursor, limit));
     }
 
+    @SqlBudget(3)
     @GetMapping("/creditAccount/{accountId}")
-    public ResponseEntity<List<TransactionDTO>> getTransactionsByCreditAccountId(@PathVariable UUID accountId) {
-        return ResponseEntity.ok(transactionService.getTransactionsByCreditAccountId(accountId));
+    public ResponseEntity<PageDTO<TransactionDTO>> getTransactionsByCreditAccountId(
+            @PathVariable UUID accountId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        ownership.account(accountId);
+        return ResponseEntity.ok(transactionService.getTransactionsByCreditAccountId(accountId, cursor, limit));
     }
 
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<TransactionDTO>> getTransactionsByStatus(@PathVariable TransactionStatus status) {
-        return ResponseEntity.ok(transactionService.getTransactionsByStatus(status));
+    public ResponseEntity<PageDTO<TransactionDTO>> getTransactionsByStatus(
+            @PathVariable TransactionStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(transactionService.getTransactionsByStatus(status, cursor, limit));
     }
 
+    // NOTE: 200 with the original transaction when the reference number was already posted with the same details.
+    // With the posting journal on, a new posting comes back PENDING: journaled, not yet applied
+    @SqlBudget(10)
     @PostMapping
     public ResponseEntity<TransactionDTO> createTransaction(@RequestBody @Valid TransactionCreateDTO transactionCreateDTO) {
-        TransactionDTO created = transactionService.createTransaction(transactionCreateDTO);
+        ownership.postings(List.of(transactionCreateDTO));
+        TransactionService.Submission submission = transactionService.submitTransaction(transactionCreateDTO);
+        TransactionDTO created = submission.transaction();
+        if (submission.replayed()) {
+            return ResponseEntity.ok(created);
+        }
         URI location = ServletUriComponentsBuilder
                 .fromCurrentRequest()
                 .path("/{id}")
@@ -64,16 +132,46 @@ public class TransactionController {
         return ResponseEntity.created(location).body(created);
     }
 
+    @SqlBudget(6)
+    @PostMapping("/holds")
+    public ResponseEntity<TransactionDTO> createHold(@RequestBody @Valid TransactionCreateDTO transactionCreateDTO) {
+        ownership.postings(List.of(transactionCreateDTO));
+        TransactionDTO created = transactionService.createHold(transactionCreateDTO);
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentContextPath()
+                .path("/api/transactions/{id}")
+                .buildAndExpand(created.id())
+                .toUri();
+        return ResponseEntity.created(location).body(created);
+    }
+
+    // NOTE: 200 even when some postings fail - the outcome of each one is in the body, in request order.
+    // The budget doesn't depend on the batch size: locks, reference check and one batched insert per table. That
+    // holds because a batch is at most banking.posting.batch.chunk-size postings - larger ones are a 400
+    @SqlBudget(10)
+    @PostMapping("/batch")
+    public ResponseEntity<TransactionBatchDTO> createTransactions(@RequestBody List<TransactionCreateDTO> transactionCreateDTOs) {
+        ownership.postings(transactionCreateDTOs);
+        return ResponseEntity.ok(transactionService.createTransactions(transactionCreateDTOs));
+    }
+
+    // NOTE: settling a hold locks the transaction, then its accounts and balances, before writing all three
+    // and the day's summaries
+    @SqlBudget(11)
     @PutMapping("/{id}")
     public ResponseEntity<TransactionDTO> updateTransaction(
             @PathVariable UUID id,
             @RequestBody @Valid TransactionUpdateDTO transactionUpdateDTO) {
+        ownership.transaction(id);
         return ResponseEntity.ok(transactionService.updateTransaction(id, transactionUpdateDTO));
     }
 
+    // NOTE: deleting a hold releases it first, which costs as much as settling one
+    @SqlBudget(8)
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteTransaction(@PathVariable UUID id) {
+        ownership.transaction(id);
         transactionService.deleteTransaction(id);
     }
 }
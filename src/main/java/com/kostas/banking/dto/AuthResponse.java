@@ -1,8 +1,11 @@
 package com.kostas.banking.dto;
 
+import java.time.Instant;
 import java.util.UUID;
 
 public record AuthResponse(
         String message,
-        UUID customerId
+        UUID customerId,
+        String token,
+        Instant expiresAt
 ) {}
\ No newline at end of file
@@ -11,14 +11,24 @@ public record BalanceDTO(
         UUID accountId,
         String accountNumber,
         BigDecimal amount,
+        BigDecimal heldAmount,
+        BigDecimal availableAmount,
         CurrencyCode currency
 ) {
+    // NOTE: used by the BalanceRepository projections, available is derived
+    public BalanceDTO(UUID id, UUID accountId, String accountNumber, BigDecimal amount, BigDecimal heldAmount,
+                      CurrencyCode currency) {
+        this(id, accountId, accountNumber, amount, heldAmount, amount.subtract(heldAmount), currency);
+    }
+
     public static BalanceDTO fromEntity(Balance balance) {
         return new BalanceDTO(
                 balance.getId(),
                 balance.getAccount().getId(),
                 balance.getAccount().getAccountNumber(),
                 balance.getAmount(),
+                balance.getHeldAmount(),
+                balance.getAvailableAmount(),
                 balance.getCurrency()
         );
     }
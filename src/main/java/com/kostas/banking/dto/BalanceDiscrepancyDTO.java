@@ -0,0 +1,18 @@
+package com.kostas.banking.dto;
+
+import com.kostas.banking.enums.CurrencyCode;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * A balance that doesn't match its postings. {@code actual} is null when the postings add up to something but
+ * there is no balance row; {@code difference} is how far the balance is off, {@code actual - expected}.
+ */
+public record BalanceDiscrepancyDTO(
+        UUID accountId,
+        CurrencyCode currency,
+        BigDecimal expected,
+        BigDecimal actual,
+        BigDecimal difference
+) {}
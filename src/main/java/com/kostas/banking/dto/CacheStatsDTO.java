@@ -0,0 +1,10 @@
+package com.kostas.banking.dto;
+
+public record CacheStatsDTO(
+        String name,
+        long size,
+        long hits,
+        long misses,
+        double hitRate,
+        long evictions
+) {}
@@ -0,0 +1,11 @@
+package com.kostas.banking.dto;
+
+import java.util.List;
+
+public record CustomerDashboardDTO(
+        CustomerDTO customer,
+        List<AccountDTO> accounts,
+        List<BalanceDTO> balances,
+        List<TransactionDTO> recentTransactions,
+        long transactionsThisMonth
+) {}
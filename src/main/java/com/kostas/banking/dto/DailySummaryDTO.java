@@ -0,0 +1,26 @@
+package com.kostas.banking.dto;
+
+import com.kostas.banking.model.DailyAccountSummary;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record DailySummaryDTO(
+        LocalDate day,
+        BigDecimal opening,
+        BigDecimal closing,
+        BigDecimal debits,
+        BigDecimal credits,
+        long count
+) {
+    public static DailySummaryDTO fromEntity(DailyAccountSummary summary) {
+        return new DailySummaryDTO(
+                summary.getDay(),
+                summary.getOpening(),
+                summary.getClosing(),
+                summary.getDebits(),
+                summary.getCredits(),
+                summary.getCount()
+        );
+    }
+}
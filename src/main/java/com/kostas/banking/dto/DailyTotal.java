@@ -0,0 +1,11 @@
+package com.kostas.banking.dto;
+
+import com.kostas.banking.enums.CurrencyCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * The sum and number of one account's completed postings on one side (debit or credit) in one currency on one day.
+ */
+public record DailyTotal(CurrencyCode currency, LocalDate day, BigDecimal amount, long count) {}
@@ -0,0 +1,57 @@
+package com.kostas.banking.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Position of the last row of a page. Handed to clients as an opaque base64 string so the
+ * sort keys can change without breaking them. {@code createdAt} is null for listings keyed by id only.
+ */
+public record KeysetCursor(
+        LocalDateTime createdAt,
+        UUID id
+) {
+    /**
+     * Transactions in the order the keyset listings page them, for merging rows read from more than one
+     * place (both account sides, the archive). Must match {@code TransactionSpecifications.NEWEST_FIRST},
+     * including how the database orders uuids.
+     */
+    public static final Comparator<TransactionDTO> TRANSACTIONS_NEWEST_FIRST = Comparator
+            .comparing(TransactionDTO::createdAt)
+            .thenComparing(TransactionDTO::id, KeysetCursor::compareIds)
+            .reversed();
+
+    public String encode() {
+        String raw = (createdAt != null ? createdAt.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            String createdAt = raw.substring(0, separator);
+            return new KeysetCursor(
+                    createdAt.isEmpty() ? null : LocalDateTime.parse(createdAt),
+                    UUID.fromString(raw.substring(separator + 1))
+            );
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Orders ids the way Postgres and H2 order uuid columns (unsigned, byte by byte), which is not
+     * what {@link UUID#compareTo} does.
+     */
+    public static int compareIds(UUID a, UUID b) {
+        int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+}
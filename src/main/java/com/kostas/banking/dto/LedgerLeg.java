@@ -0,0 +1,11 @@
+package com.kostas.banking.dto;
+
+import com.kostas.banking.enums.CurrencyCode;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * One side of a completed posting: the account it moved, in which currency and by how much.
+ */
+public record LedgerLeg(UUID accountId, CurrencyCode currency, BigDecimal amount) {}
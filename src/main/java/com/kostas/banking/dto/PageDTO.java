@@ -0,0 +1,25 @@
+package com.kostas.banking.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+public record PageDTO<T>(
+        List<T> items,
+        String nextCursor
+) {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    public static int limit(int requested) {
+        return Math.max(1, Math.min(requested, MAX_LIMIT));
+    }
+
+    /**
+     * Builds a page from up to {@code limit + 1} rows - the extra row only tells whether there is a next page.
+     */
+    public static <E, T> PageDTO<T> of(List<E> rows, int limit, Function<E, T> mapper, Function<E, KeysetCursor> cursorOf) {
+        List<E> page = rows.size() > limit ? rows.subList(0, limit) : rows;
+        String nextCursor = rows.size() > limit ? cursorOf.apply(page.get(page.size() - 1)).encode() : null;
+        return new PageDTO<>(page.stream().map(mapper).toList(), nextCursor);
+    }
+}
@@ -0,0 +1,12 @@
+package com.kostas.banking.dto;
+
+public record PasswordHasherStatsDTO(
+        int cost,
+        int threads,
+        int active,
+        int queued,
+        long completed,
+        long rejected,
+        double averageMillis,
+        double maxMillis
+) {}
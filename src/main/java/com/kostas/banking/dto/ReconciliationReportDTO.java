@@ -0,0 +1,18 @@
+package com.kostas.banking.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The outcome of one reconciliation run. {@code discrepancies} holds the largest ones, at most as many as the
+ * run was configured to report; {@code discrepancyCount} counts all of them.
+ */
+public record ReconciliationReportDTO(
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        long accounts,
+        long balances,
+        long postings,
+        long discrepancyCount,
+        List<BalanceDiscrepancyDTO> discrepancies
+) {}
@@ -0,0 +1,24 @@
+package com.kostas.banking.dto;
+
+import com.kostas.banking.enums.CurrencyCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An account's activity in one currency over {@code [from, to]}, with one entry per day that had postings.
+ */
+public record StatementDTO(
+        UUID accountId,
+        CurrencyCode currency,
+        LocalDate from,
+        LocalDate to,
+        BigDecimal opening,
+        BigDecimal closing,
+        BigDecimal debits,
+        BigDecimal credits,
+        long count,
+        List<DailySummaryDTO> days
+) {}
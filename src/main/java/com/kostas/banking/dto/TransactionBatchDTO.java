@@ -0,0 +1,9 @@
+package com.kostas.banking.dto;
+
+import java.util.List;
+
+public record TransactionBatchDTO(
+        int posted,
+        int failed,
+        List<TransactionBatchItemDTO> results
+) {}
@@ -0,0 +1,13 @@
+package com.kostas.banking.dto;
+
+import com.kostas.banking.exception.ErrorResponse;
+
+/**
+ * Outcome of one posting in a batch request, in request order - either {@code transaction} or {@code error} is set.
+ */
+public record TransactionBatchItemDTO(
+        int index,
+        String referenceNumber,
+        TransactionDTO transaction,
+        ErrorResponse error
+) {}
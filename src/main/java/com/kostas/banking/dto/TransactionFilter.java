@@ -0,0 +1,20 @@
+package com.kostas.banking.dto;
+
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.enums.TransactionType;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// NOTE: every field is optional, bound from query parameters
+public record TransactionFilter(
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        TransactionType type,
+        TransactionStatus status,
+        BigDecimal minAmount,
+        BigDecimal maxAmount
+) {
+    public static final TransactionFilter NONE = new TransactionFilter(null, null, null, null, null, null);
+}
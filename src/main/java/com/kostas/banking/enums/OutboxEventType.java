@@ -0,0 +1,16 @@
+package com.kostas.banking.enums;
+
+/**
+ * What an outbox event carries - also the SSE event name, lower-cased with dashes.
+ */
+public enum OutboxEventType {
+    ACCOUNT,
+    BALANCE,
+    BALANCE_DELETED,
+    TRANSACTION,
+    TRANSACTION_DELETED;
+
+    public String eventName() {
+        return name().toLowerCase().replace('_', '-');
+    }
+}
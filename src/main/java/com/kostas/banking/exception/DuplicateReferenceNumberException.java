@@ -0,0 +1,7 @@
+package com.kostas.banking.exception;
+
+public class DuplicateReferenceNumberException extends RuntimeException {
+    public DuplicateReferenceNumberException(String referenceNumber) {
+        super("Transaction with reference number already exists: " + referenceNumber);
+    }
+}
@@ -1,8 +1,12 @@
 package com.kostas.banking.exception;
 
 import io.swagger.v3.oas.annotations.Hidden;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -23,12 +27,67 @@ public class GlobalExceptionHandler {
                 .body(new ErrorResponse(409, "Email already exists", ex.getMessage()));
     }
 
+    @ExceptionHandler(DuplicateReferenceNumberException.class)
+    public ResponseEntity<ErrorResponse> handleDuplicateReference(DuplicateReferenceNumberException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ErrorResponse(409, "Duplicate reference number", ex.getMessage()));
+    }
+
     @ExceptionHandler(InvalidCredentialsException.class)
     public ResponseEntity<ErrorResponse> handleInvalidCredentials(InvalidCredentialsException ex) {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                 .body(new ErrorResponse(401, "Invalid credentials", ex.getMessage()));
     }
 
+    // NOTE: Ownership throws these for customers, accounts, ... the authenticated customer doesn't own
+    @ExceptionHandler(AccessDeniedException.class)
+    public ResponseEntity<ErrorResponse> handleAccessDenied(AccessDeniedException ex) {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(new ErrorResponse(403, "Forbidden", ex.getMessage()));
+    }
+
+    @ExceptionHandler(InsufficientFundsException.class)
+    public ResponseEntity<ErrorResponse> handleInsufficientFunds(InsufficientFundsException ex) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(new ErrorResponse(422, "Insufficient funds", ex.getMessage()));
+    }
+
+    @ExceptionHandler(PostingQueueFullException.class)
+    public ResponseEntity<ErrorResponse> handlePostingQueueFull(PostingQueueFullException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new ErrorResponse(503, "Service busy", ex.getMessage()));
+    }
+
+    // NOTE: the posting may still go through - a retry with the same reference number gets its outcome
+    @ExceptionHandler(PostingUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handlePostingUnavailable(PostingUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse(503, "Service busy", ex.getMessage()));
+    }
+
+    @ExceptionHandler(PasswordHasherBusyException.class)
+    public ResponseEntity<ErrorResponse> handlePasswordHasherBusy(PasswordHasherBusyException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse(429, "Too many requests", ex.getMessage()));
+    }
+
+    // NOTE: no database connection within the pool's (or, on virtual threads, the permit) timeout
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<ErrorResponse> handleNoConnection(RuntimeException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse(503, "Service busy", "No database connection available, try again later"));
+    }
+
+    // NOTE: posting validation (same-account transfer, closed account, ...) throws these
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new ErrorResponse(400, "Invalid request", ex.getMessage()));
+    }
+
     // NOTE: triggers on failure of Jakarta's @Valid on @RequestBody
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleValidation(MethodArgumentNotValidException ex) {
@@ -0,0 +1,12 @@
+package com.kostas.banking.exception;
+
+import com.kostas.banking.enums.CurrencyCode;
+
+import java.math.BigDecimal;
+
+public class InsufficientFundsException extends RuntimeException {
+    public InsufficientFundsException(BigDecimal available, BigDecimal required, CurrencyCode currency) {
+        super("Insufficient funds. Available balance: " + available + " " + currency
+                + ", Required: " + required + " " + currency);
+    }
+}
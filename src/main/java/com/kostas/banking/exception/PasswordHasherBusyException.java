@@ -0,0 +1,7 @@
+package com.kostas.banking.exception;
+
+public class PasswordHasherBusyException extends RuntimeException {
+    public PasswordHasherBusyException() {
+        super("Too many logins in progress, try again shortly");
+    }
+}
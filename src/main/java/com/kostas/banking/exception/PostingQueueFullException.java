@@ -0,0 +1,7 @@
+package com.kostas.banking.exception;
+
+public class PostingQueueFullException extends RuntimeException {
+    public PostingQueueFullException() {
+        super("Posting queue is full, try again later");
+    }
+}
@@ -0,0 +1,7 @@
+package com.kostas.banking.exception;
+
+public class PostingUnavailableException extends RuntimeException {
+    public PostingUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.kostas.banking.id;
+
+import java.util.UUID;
+
+/**
+ * Source of primary keys for every entity. Ids are assigned by the services before save, so the
+ * implementation picked here decides where in the primary key index new rows land.
+ * <p>
+ * Selected with {@code banking.ids.generator}: {@code v7} (default) or {@code random}.
+ */
+public interface IdGenerator {
+    UUID next();
+}
@@ -0,0 +1,19 @@
+package com.kostas.banking.id;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Random (v4) UUIDs - what every entity used before {@link UuidV7Generator}. Kept for comparison and as an escape hatch.
+ */
+@Component
+@ConditionalOnProperty(name = "banking.ids.generator", havingValue = "random")
+public class RandomIdGenerator implements IdGenerator {
+
+    @Override
+    public UUID next() {
+        return UUID.randomUUID();
+    }
+}
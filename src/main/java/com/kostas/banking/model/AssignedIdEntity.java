@@ -0,0 +1,38 @@
+package com.kostas.banking.model;
+
+import jakarta.persistence.Id;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.util.UUID;
+
+/**
+ * An entity whose id is assigned before save(). Without {@link #isNew()} Spring Data would treat every new row
+ * as detached and merge it - a SELECT before each INSERT, which also defeats JDBC insert batching.
+ */
+@MappedSuperclass
+public abstract class AssignedIdEntity implements Persistable<UUID> {
+    @Id
+    @Getter
+    @Setter
+    private UUID id;
+
+    @Transient
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
@@ -4,9 +4,9 @@ import com.kostas.banking.enums.CurrencyCode;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
-import java.util.UUID;
 
 @Getter
 @Setter
@@ -14,10 +14,7 @@ import java.util.UUID;
 @Table(name = "balances", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"account_id", "currency"})
 })
-public class Balance {
-    @Id
-    private UUID id;
-
+public class Balance extends AssignedIdEntity {
     @ManyToOne(fetch = FetchType.LAZY)
     private Account account;
 
@@ -26,4 +23,13 @@ public class Balance {
 
     @Enumerated(EnumType.STRING)
     private CurrencyCode currency;
+
+    // NOTE: reserved by PENDING transactions - still part of amount (the ledger balance) until they settle
+    @Column(precision = 19, scale = 4, nullable = false)
+    @ColumnDefault("0")
+    private BigDecimal heldAmount = BigDecimal.ZERO;
+
+    public BigDecimal getAvailableAmount() {
+        return amount.subtract(heldAmount);
+    }
 }
@@ -4,7 +4,6 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.Check;
-import org.springframework.security.crypto.bcrypt.BCrypt;
 
 import java.time.LocalDate;
 import java.util.UUID;
@@ -29,12 +28,4 @@ public class Customer {
 
     @Column(nullable = false, length = 60) // NOTE: BCrypt hashes are always 60 chars
     private String passwordHash;
-
-    public void setPassword(String plainPassword) {
-        this.passwordHash = BCrypt.hashpw(plainPassword, BCrypt.gensalt(12));
-    }
-
-    public boolean verifyPassword(String plainPassword) {
-        return BCrypt.checkpw(plainPassword, this.passwordHash);
-    }
 }
@@ -0,0 +1,48 @@
+package com.kostas.banking.model;
+
+import com.kostas.banking.enums.CurrencyCode;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One account's postings in one currency on one day: the ledger balance before the first and after the last
+ * of them, and their totals. A read model - kept up to date by the posting engine, rebuilt from the
+ * transactions by {@code DailySummaryBackfill}.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "daily_account_summaries", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"account_id", "currency", "posting_day"})
+})
+public class DailyAccountSummary extends AssignedIdEntity {
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private Account account;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private CurrencyCode currency;
+
+    // NOTE: "day" is a keyword in some databases (H2 among them)
+    @Column(name = "posting_day", nullable = false)
+    private LocalDate day;
+
+    @Column(precision = 19, scale = 4, nullable = false)
+    private BigDecimal opening;
+
+    @Column(precision = 19, scale = 4, nullable = false)
+    private BigDecimal closing;
+
+    @Column(precision = 19, scale = 4, nullable = false)
+    private BigDecimal debits = BigDecimal.ZERO;
+
+    @Column(precision = 19, scale = 4, nullable = false)
+    private BigDecimal credits = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private long count;
+}
@@ -0,0 +1,42 @@
+package com.kostas.banking.model;
+
+import com.kostas.banking.enums.OutboxEventType;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A change to one customer's accounts, balances or transactions, written in the same DB transaction as the
+ * change itself. The payload is the JSON of the DTO the REST API would return for it. {@code position} is
+ * null until the {@code EventRelay} numbers the event, after it committed.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "outbox_events", indexes = {
+    @Index(name = "idx_outbox_created", columnList = "created_at, id"),
+    @Index(name = "idx_outbox_position", columnList = "position", unique = true),
+    @Index(name = "idx_outbox_customer_position", columnList = "customer_id, position")
+})
+public class OutboxEvent extends AssignedIdEntity {
+    @Column(nullable = false)
+    private UUID customerId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxEventType type;
+
+    // NOTE: one DTO, a few hundred characters - a plain varchar rather than a LOB column
+    @Column(nullable = false, length = 2000)
+    private String payload;
+
+    @Column(nullable = false)
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    private Long position;
+}
@@ -0,0 +1,23 @@
+package com.kostas.banking.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The last position handed to an {@link OutboxEvent}. A single row, locked by whichever node's
+ * {@code EventRelay} is numbering new events, so positions become visible in the order they're handed out.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "outbox_sequence")
+public class OutboxSequence {
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private long lastPosition;
+}
@@ -11,16 +11,17 @@ import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 @Getter
 @Setter
 @Entity
-@Table(name = "transactions")
-public class Transaction {
-    @Id
-    private UUID id;
-
+@Table(name = "transactions", indexes = {
+    @Index(name = "idx_transaction_debit_history", columnList = "debit_account_id, created_at, id"),
+    @Index(name = "idx_transaction_credit_history", columnList = "credit_account_id, created_at, id"),
+    @Index(name = "idx_transaction_created", columnList = "created_at, id"),
+    @Index(name = "idx_transaction_status_created", columnList = "status, created_at, id")
+})
+public class Transaction extends AssignedIdEntity {
     @Column(unique = true, nullable = false)
     private String referenceNumber;
 
@@ -50,4 +51,4 @@ public class Transaction {
     private LocalDateTime createdAt;
 
     private LocalDateTime postedAt;
-}
\ No newline at end of file
+}
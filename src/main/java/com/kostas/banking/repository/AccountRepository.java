@@ -1,17 +1,59 @@
 package com.kostas.banking.repository;
 
+import com.kostas.banking.dto.AccountDTO;
 import com.kostas.banking.model.Account;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, UUID> {
+
+    // NOTE: read paths project straight into AccountDTO with the owner joined in, so listing N accounts
+    // is one query instead of 1 + N lazy owner loads
+    String SELECT_DTO = """
+            select new com.kostas.banking.dto.AccountDTO(a.id, a.accountNumber, a.type, a.status, o.id, o.fullName)
+            from Account a join a.owner o""";
+
     Optional<Account> findByAccountNumber(String accountNumber);
     boolean existsByAccountNumber(String accountNumber);
     List<Account> findByOwnerId(UUID ownerId);
     long countByOwnerId(UUID ownerId);
-}
\ No newline at end of file
+    long countByIdInAndOwnerId(Collection<UUID> ids, UUID ownerId);
+
+    @Query(SELECT_DTO + " where a.id = :id")
+    Optional<AccountDTO> findDtoById(UUID id);
+
+    @Query(SELECT_DTO + " where a.accountNumber = :accountNumber")
+    Optional<AccountDTO> findDtoByAccountNumber(String accountNumber);
+
+    @Query(SELECT_DTO + " where o.id = :ownerId order by a.accountNumber")
+    List<AccountDTO> findDtosByOwnerId(UUID ownerId);
+
+    // NOTE: keyset pagination by id for the bounded getAll listing
+    @Query(SELECT_DTO + " order by a.id")
+    List<AccountDTO> findDtoPage(Limit limit);
+
+    @Query(SELECT_DTO + " where a.id > :id order by a.id")
+    List<AccountDTO> findDtoPageAfter(UUID id, Limit limit);
+
+    // NOTE: ids only, for jobs that walk every account
+    @Query("select a.id from Account a order by a.id")
+    List<UUID> findIdPage(Limit limit);
+
+    @Query("select a.id from Account a where a.id > :id order by a.id")
+    List<UUID> findIdPageAfter(UUID id, Limit limit);
+
+    // NOTE: rows are locked in id order so two postings touching the same pair of accounts can't deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.id in :ids order by a.id")
+    List<Account> findAllByIdForUpdate(Collection<UUID> ids);
+}
@@ -1,18 +1,50 @@
 package com.kostas.banking.repository;
 
+import com.kostas.banking.dto.BalanceDTO;
 import com.kostas.banking.model.Balance;
 import com.kostas.banking.enums.CurrencyCode;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface BalanceRepository extends JpaRepository<Balance, UUID> {
+
+    // NOTE: read paths project straight into BalanceDTO with the account joined in (no lazy loads per row)
+    String SELECT_DTO = """
+            select new com.kostas.banking.dto.BalanceDTO(b.id, a.id, a.accountNumber, b.amount, b.heldAmount, b.currency)
+            from Balance b join b.account a""";
+
     List<Balance> findByAccountId(UUID accountId);
     List<Balance> findByAccountOwnerId(UUID ownerId);
     Optional<Balance> findByAccountIdAndCurrency(UUID accountId, CurrencyCode currency);
     boolean existsByAccountIdAndCurrency(UUID accountId, CurrencyCode currency);
-}
\ No newline at end of file
+    boolean existsByIdAndAccountOwnerId(UUID id, UUID ownerId);
+    List<Balance> findByAccountIdIn(Collection<UUID> accountIds);
+
+    @Query(SELECT_DTO + " where b.id = :id")
+    Optional<BalanceDTO> findDtoById(UUID id);
+
+    // NOTE: one row off the (account_id, currency) unique index
+    @Query(SELECT_DTO + " where a.id = :accountId and b.currency = :currency")
+    Optional<BalanceDTO> findDtoByAccountIdAndCurrency(UUID accountId, CurrencyCode currency);
+
+    @Query(SELECT_DTO + " where a.id = :accountId")
+    List<BalanceDTO> findDtosByAccountId(UUID accountId);
+
+    @Query(SELECT_DTO + " where a.id in :accountIds")
+    List<BalanceDTO> findDtosByAccountIdIn(Collection<UUID> accountIds);
+
+    // NOTE: keyset pagination by id for the bounded getAll listing
+    @Query(SELECT_DTO + " order by b.id")
+    List<BalanceDTO> findDtoPage(Limit limit);
+
+    @Query(SELECT_DTO + " where b.id > :id order by b.id")
+    List<BalanceDTO> findDtoPageAfter(UUID id, Limit limit);
+}
@@ -1,9 +1,15 @@
 package com.kostas.banking.repository;
 
 import com.kostas.banking.model.Customer;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -11,4 +17,22 @@ import java.util.UUID;
 public interface CustomerRepository extends JpaRepository<Customer, UUID> {
     Optional<Customer> findByEmail(String email);
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    // NOTE: the unique email index is the check - 0 rows inserted means the email is already taken
+    @Transactional
+    @Modifying
+    @Query(value = """
+            insert into customers (id, full_name, email, date_of_birth, password_hash)
+            values (:id, :fullName, :email, :dateOfBirth, :passwordHash)
+            on conflict do nothing""", nativeQuery = true)
+    int insertIfEmailFree(UUID id, String fullName, String email, LocalDate dateOfBirth, String passwordHash);
+
+    @Transactional
+    @Modifying
+    @Query("update Customer c set c.passwordHash = :passwordHash where c.id = :id")
+    void updatePasswordHash(UUID id, String passwordHash);
+
+    // NOTE: keyset pagination by id for the bounded getAll listing
+    List<Customer> findAllByOrderByIdAsc(Limit limit);
+    List<Customer> findByIdGreaterThanOrderByIdAsc(UUID id, Limit limit);
+}
@@ -0,0 +1,38 @@
+package com.kostas.banking.repository;
+
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.model.DailyAccountSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface DailyAccountSummaryRepository extends JpaRepository<DailyAccountSummary, UUID> {
+
+    // NOTE: all off the (account_id, currency, posting_day) unique index
+    @Query("select s from DailyAccountSummary s where s.account.id in :accountIds and s.day in :days")
+    List<DailyAccountSummary> findByAccountIdsAndDays(Collection<UUID> accountIds, Collection<LocalDate> days);
+
+    @Query("""
+            select s from DailyAccountSummary s
+            where s.account.id = :accountId and s.currency = :currency and s.day between :from and :to
+            order by s.day""")
+    List<DailyAccountSummary> findRange(UUID accountId, CurrencyCode currency, LocalDate from, LocalDate to);
+
+    Optional<DailyAccountSummary> findFirstByAccountIdAndCurrencyAndDayLessThanOrderByDayDesc(
+            UUID accountId, CurrencyCode currency, LocalDate day);
+
+    Optional<DailyAccountSummary> findFirstByAccountIdAndCurrencyAndDayGreaterThanOrderByDayAsc(
+            UUID accountId, CurrencyCode currency, LocalDate day);
+
+    @Modifying
+    @Query("delete from DailyAccountSummary s where s.account.id = :accountId")
+    int deleteByAccountId(UUID accountId);
+}
@@ -0,0 +1,31 @@
+package com.kostas.banking.repository;
+
+import com.kostas.banking.model.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    // NOTE: committed events not numbered yet - the ones in open transactions aren't visible, so they can't
+    // be passed over
+    List<OutboxEvent> findByPositionIsNullOrderByCreatedAtAscIdAsc(Limit limit);
+
+    List<OutboxEvent> findByPositionGreaterThanOrderByPositionAsc(long position, Limit limit);
+
+    // NOTE: what a reconnecting client missed, off the (customer_id, position) index
+    List<OutboxEvent> findByCustomerIdAndPositionBetweenOrderByPositionAsc(UUID customerId, long from, long to, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxEvent e where e.createdAt < :before")
+    int deleteByCreatedAtBefore(LocalDateTime before);
+}
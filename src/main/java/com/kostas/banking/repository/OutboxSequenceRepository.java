@@ -0,0 +1,18 @@
+package com.kostas.banking.repository;
+
+import com.kostas.banking.model.OutboxSequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface OutboxSequenceRepository extends JpaRepository<OutboxSequence, Integer> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from OutboxSequence s where s.id = :id")
+    Optional<OutboxSequence> findByIdForUpdate(Integer id);
+}
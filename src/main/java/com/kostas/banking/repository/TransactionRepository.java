@@ -1,19 +1,144 @@
 package com.kostas.banking.repository;
 
+import com.kostas.banking.dto.DailyTotal;
+import com.kostas.banking.dto.LedgerLeg;
+import com.kostas.banking.dto.TransactionDTO;
 import com.kostas.banking.model.Transaction;
 import com.kostas.banking.enums.TransactionStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
+public interface TransactionRepository extends JpaRepository<Transaction, UUID>, TransactionRepositoryCustom {
+
+    // NOTE: read paths project straight into TransactionDTO with both accounts outer-joined in, so a
+    // listing is one query instead of 1 + 2N lazy account loads
+    String SELECT_DTO = """
+            select new com.kostas.banking.dto.TransactionDTO(
+                t.id, t.referenceNumber, d.id, d.accountNumber, c.id, c.accountNumber,
+                t.amount, t.currency, t.type, t.status, t.createdAt, t.postedAt)
+            from Transaction t left join t.debitAccount d left join t.creditAccount c""";
+
     Optional<Transaction> findByReferenceNumber(String referenceNumber);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Transaction t where t.id = :id")
+    Optional<Transaction> findByIdForUpdate(UUID id);
+
+    @Query("""
+            select count(t) > 0 from Transaction t left join t.debitAccount d left join t.creditAccount c
+            where t.id = :id and (d.owner.id = :ownerId or c.owner.id = :ownerId)""")
+    boolean existsByIdAndAccountOwnerId(UUID id, UUID ownerId);
+
+    // NOTE: rows another settler has claimed are passed over instead of waited on, so any number of settlers
+    // can run against the same table. Native because Hibernate's H2 dialect drops SKIP LOCKED (H2 has it)
+    @Query(value = """
+            select * from transactions
+            where status = 'PENDING' and created_at <= :createdBefore
+            order by created_at, id
+            limit :limit
+            for update skip locked""", nativeQuery = true)
+    List<Transaction> claimPending(LocalDateTime createdBefore, int limit);
+
+    // NOTE: the settled rows TransactionArchiver moves out, claimed the same way so archivers don't collide
+    @Query(value = """
+            select * from transactions
+            where status in ('COMPLETED', 'FAILED', 'CANCELLED') and created_at < :createdBefore
+            order by created_at, id
+            limit :limit
+            for update skip locked""", nativeQuery = true)
+    List<Transaction> claimArchivable(LocalDateTime createdBefore, int limit);
     boolean existsByReferenceNumber(String referenceNumber);
+
+    @Query("select t.referenceNumber from Transaction t where t.referenceNumber in :referenceNumbers")
+    Set<String> findExistingReferenceNumbers(Collection<String> referenceNumbers);
     List<Transaction> findByDebitAccountId(UUID accountId);
     List<Transaction> findByCreditAccountId(UUID accountId);
     List<Transaction> findByStatus(TransactionStatus status);
-}
\ No newline at end of file
+
+    @Query(SELECT_DTO + " where t.id = :id")
+    Optional<TransactionDTO> findDtoById(UUID id);
+
+    @Query(SELECT_DTO + " where t.id in :ids")
+    List<TransactionDTO> findDtosByIdIn(Collection<UUID> ids);
+
+    @Query(SELECT_DTO + " where t.referenceNumber = :referenceNumber")
+    Optional<TransactionDTO> findDtoByReferenceNumber(String referenceNumber);
+
+    // NOTE: one side per query, like the history path - an OR across the two account columns can't use either
+    // history index, so it scans everything the accounts ever posted before the limit applies
+    @Query(SELECT_DTO + " where d.id in :accountIds order by t.createdAt desc, t.id desc")
+    List<TransactionDTO> findRecentDtosByDebitAccountIds(Collection<UUID> accountIds, Limit limit);
+
+    @Query(SELECT_DTO + " where c.id in :accountIds order by t.createdAt desc, t.id desc")
+    List<TransactionDTO> findRecentDtosByCreditAccountIds(Collection<UUID> accountIds, Limit limit);
+
+    // NOTE: one account side at a time for DailySummaryBackfill, off the history index. A posting's day is the
+    // day it was posted, which for a settled hold isn't the day it was created
+    @Query("""
+            select new com.kostas.banking.dto.DailyTotal(
+                t.currency, cast(coalesce(t.postedAt, t.createdAt) as LocalDate), sum(t.amount), count(t))
+            from Transaction t
+            where t.debitAccount.id = :accountId and t.status = com.kostas.banking.enums.TransactionStatus.COMPLETED
+            group by t.currency, cast(coalesce(t.postedAt, t.createdAt) as LocalDate)""")
+    List<DailyTotal> sumDebitsByDay(UUID accountId);
+
+    @Query("""
+            select new com.kostas.banking.dto.DailyTotal(
+                t.currency, cast(coalesce(t.postedAt, t.createdAt) as LocalDate), sum(t.amount), count(t))
+            from Transaction t
+            where t.creditAccount.id = :accountId and t.status = com.kostas.banking.enums.TransactionStatus.COMPLETED
+            group by t.currency, cast(coalesce(t.postedAt, t.createdAt) as LocalDate)""")
+    List<DailyTotal> sumCreditsByDay(UUID accountId);
+
+    @Query("""
+            select count(t) from Transaction t
+            where t.debitAccount.id in :accountIds and t.createdAt >= :since""")
+    long countDebitsByAccountIdsSince(Collection<UUID> accountIds, LocalDateTime since);
+
+    // NOTE: a transfer between two of the accounts was counted on its debit side already
+    @Query("""
+            select count(t) from Transaction t
+            where t.creditAccount.id in :accountIds and t.createdAt >= :since
+            and (t.debitAccount.id is null or t.debitAccount.id not in :accountIds)""")
+    long countCreditsByAccountIdsSince(Collection<UUID> accountIds, LocalDateTime since);
+
+    // NOTE: LedgerReconciliation streams one side of a range of accounts at a time, off the history index.
+    // Must be consumed inside a transaction and closed, it holds an open cursor
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new com.kostas.banking.dto.LedgerLeg(t.debitAccount.id, t.currency, t.amount)
+            from Transaction t
+            where t.debitAccount.id between :first and :last
+            and t.status = com.kostas.banking.enums.TransactionStatus.COMPLETED""")
+    Stream<LedgerLeg> streamCompletedDebits(UUID first, UUID last);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new com.kostas.banking.dto.LedgerLeg(t.creditAccount.id, t.currency, t.amount)
+            from Transaction t
+            where t.creditAccount.id between :first and :last
+            and t.status = com.kostas.banking.enums.TransactionStatus.COMPLETED""")
+    Stream<LedgerLeg> streamCompletedCredits(UUID first, UUID last);
+}
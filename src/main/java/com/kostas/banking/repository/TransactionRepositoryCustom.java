@@ -0,0 +1,20 @@
+package com.kostas.banking.repository;
+
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.model.Transaction;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * {@link TransactionDTO} projections for dynamic (specification based) queries, which
+ * {@code @Query} constructor expressions can't express.
+ */
+public interface TransactionRepositoryCustom {
+    List<TransactionDTO> findDtos(Specification<Transaction> spec, Sort sort, int limit);
+
+    // NOTE: must be consumed inside a transaction and closed, it holds an open cursor
+    Stream<TransactionDTO> streamDtos(Specification<Transaction> spec, Sort sort, int fetchSize);
+}
@@ -0,0 +1,64 @@
+package com.kostas.banking.repository;
+
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.model.Account;
+import com.kostas.banking.model.Transaction;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+class TransactionRepositoryCustomImpl implements TransactionRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<TransactionDTO> findDtos(Specification<Transaction> spec, Sort sort, int limit) {
+        return query(spec, sort)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<TransactionDTO> streamDtos(Specification<Transaction> spec, Sort sort, int fetchSize) {
+        return query(spec, sort)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    // Same shape as TransactionRepository.SELECT_DTO
+    private TypedQuery<TransactionDTO> query(Specification<Transaction> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TransactionDTO> query = cb.createQuery(TransactionDTO.class);
+        Root<Transaction> root = query.from(Transaction.class);
+        Join<Transaction, Account> debit = root.join("debitAccount", JoinType.LEFT);
+        Join<Transaction, Account> credit = root.join("creditAccount", JoinType.LEFT);
+
+        query.select(cb.construct(TransactionDTO.class,
+                root.get("id"), root.get("referenceNumber"),
+                debit.get("id"), debit.get("accountNumber"),
+                credit.get("id"), credit.get("accountNumber"),
+                root.get("amount"), root.get("currency"), root.get("type"), root.get("status"),
+                root.get("createdAt"), root.get("postedAt")));
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        return entityManager.createQuery(query);
+    }
+}
@@ -0,0 +1,79 @@
+package com.kostas.banking.repository;
+
+import com.kostas.banking.dto.KeysetCursor;
+import com.kostas.banking.dto.TransactionFilter;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.model.Transaction;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Building blocks for the keyset-paginated transaction listings. Pages are ordered newest first by
+ * {@link #NEWEST_FIRST}; the indexes on (debit/credit account, createdAt, id) and (status, createdAt, id)
+ * serve both the filter and the order, so a page deep in the history costs the same as the first one.
+ */
+public final class TransactionSpecifications {
+
+    public static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+    public static final Sort OLDEST_FIRST = Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("id"));
+
+    private TransactionSpecifications() {}
+
+    public static Specification<Transaction> debitAccount(UUID accountId) {
+        return (root, query, cb) -> cb.equal(root.get("debitAccount").get("id"), accountId);
+    }
+
+    public static Specification<Transaction> creditAccount(UUID accountId) {
+        return (root, query, cb) -> cb.equal(root.get("creditAccount").get("id"), accountId);
+    }
+
+    public static Specification<Transaction> status(TransactionStatus status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    // Rows strictly after the cursor in NEWEST_FIRST order
+    public static Specification<Transaction> after(KeysetCursor cursor) {
+        return (root, query, cb) -> {
+            if (cursor == null) {
+                return null;
+            }
+            return cb.or(
+                    cb.lessThan(root.get("createdAt"), cursor.createdAt()),
+                    cb.and(
+                            cb.equal(root.get("createdAt"), cursor.createdAt()),
+                            cb.lessThan(root.get("id"), cursor.id())
+                    )
+            );
+        };
+    }
+
+    public static Specification<Transaction> matches(TransactionFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.from() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), filter.from()));
+            }
+            if (filter.to() != null) {
+                predicates.add(cb.lessThan(root.get("createdAt"), filter.to()));
+            }
+            if (filter.type() != null) {
+                predicates.add(cb.equal(root.get("type"), filter.type()));
+            }
+            if (filter.status() != null) {
+                predicates.add(cb.equal(root.get("status"), filter.status()));
+            }
+            if (filter.minAmount() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("amount"), filter.minAmount()));
+            }
+            if (filter.maxAmount() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("amount"), filter.maxAmount()));
+            }
+            return predicates.isEmpty() ? null : cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+}
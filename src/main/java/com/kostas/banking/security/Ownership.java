@@ -0,0 +1,138 @@
+package com.kostas.banking.security;
+
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.repository.AccountRepository;
+import com.kostas.banking.repository.BalanceRepository;
+import com.kostas.banking.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Checks that the customer a request is authenticated as owns what it asks for, throwing
+ * {@link AccessDeniedException} (403) when it doesn't - unknown ids included, so the answer doesn't tell
+ * whether they exist. SecurityConfig only makes sure there is a customer (an admin, for the whole-table
+ * listings); controllers call these with the ids in the path or body before (or, for reads that already
+ * return the owner, after) doing the work.
+ * <p>
+ * Nothing is checked, and nothing queried, unless {@code banking.auth.required} is on.
+ */
+@Component
+public class Ownership {
+
+    private final AccountRepository accountRepository;
+    private final BalanceRepository balanceRepository;
+    private final TransactionRepository transactionRepository;
+    private final boolean authRequired;
+
+    public Ownership(
+            AccountRepository accountRepository,
+            BalanceRepository balanceRepository,
+            TransactionRepository transactionRepository,
+            @Value("${banking.auth.required:false}") boolean authRequired) {
+        this.accountRepository = accountRepository;
+        this.balanceRepository = balanceRepository;
+        this.transactionRepository = transactionRepository;
+        this.authRequired = authRequired;
+    }
+
+    public void customer(UUID customerId) {
+        UUID customer = current();
+        if (customer != null && !customer.equals(customerId)) {
+            throw denied();
+        }
+    }
+
+    public void account(UUID accountId) {
+        UUID customer = current();
+        if (customer != null
+                && (accountId == null || accountRepository.countByIdInAndOwnerId(Set.of(accountId), customer) == 0)) {
+            throw denied();
+        }
+    }
+
+    /** Every one of the accounts. */
+    public void accounts(Collection<UUID> accountIds) {
+        UUID customer = current();
+        if (customer != null && accountRepository.countByIdInAndOwnerId(accountIds, customer) != accountIds.size()) {
+            throw denied();
+        }
+    }
+
+    public void balance(UUID balanceId) {
+        UUID customer = current();
+        if (customer != null && !balanceRepository.existsByIdAndAccountOwnerId(balanceId, customer)) {
+            throw denied();
+        }
+    }
+
+    /** Either side of the transaction. */
+    public void transaction(UUID transactionId) {
+        UUID customer = current();
+        if (customer != null && !transactionRepository.existsByIdAndAccountOwnerId(transactionId, customer)) {
+            throw denied();
+        }
+    }
+
+    /** Either side of an already loaded transaction - it may have been archived since. */
+    public void transaction(TransactionDTO transaction) {
+        UUID customer = current();
+        if (customer == null) {
+            return;
+        }
+        Set<UUID> accountIds = new HashSet<>();
+        if (transaction.debitAccountId() != null) {
+            accountIds.add(transaction.debitAccountId());
+        }
+        if (transaction.creditAccountId() != null) {
+            accountIds.add(transaction.creditAccountId());
+        }
+        if (accountIds.isEmpty() || accountRepository.countByIdInAndOwnerId(accountIds, customer) == 0) {
+            throw denied();
+        }
+    }
+
+    /**
+     * The accounts money would be taken from: the debit account, or the credit account of a deposit.
+     * Items without either are left for validation to reject.
+     */
+    public void postings(Collection<TransactionCreateDTO> postings) {
+        if (current() == null) {
+            return;
+        }
+        Set<UUID> accountIds = new HashSet<>();
+        for (TransactionCreateDTO posting : postings) {
+            if (posting != null) {
+                accountIds.add(posting.debitAccountId() != null ? posting.debitAccountId() : posting.creditAccountId());
+            }
+        }
+        accountIds.remove(null);
+        if (!accountIds.isEmpty()) {
+            accounts(accountIds);
+        }
+    }
+
+    private UUID current() {
+        if (!authRequired) {
+            return null;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UUID customer)) {
+            // NOTE: SecurityConfig turns these away first - this only runs on a request that got past it
+            throw denied();
+        }
+        return customer;
+    }
+
+    private static AccessDeniedException denied() {
+        return new AccessDeniedException("Not accessible to the authenticated customer");
+    }
+}
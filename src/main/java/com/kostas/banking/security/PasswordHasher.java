@@ -0,0 +1,143 @@
+package com.kostas.banking.security;
+
+import com.kostas.banking.dto.PasswordHasherStatsDTO;
+import com.kostas.banking.exception.PasswordHasherBusyException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs BCrypt on its own small pool instead of on Tomcat's request threads, so a login storm can use at
+ * most {@code banking.password.threads} cores (default: all of them, but no more) and the rest of the API
+ * keeps its threads. Callers still wait for their hash, but once {@code banking.password.queue-capacity}
+ * are already waiting new ones are turned away with {@link PasswordHasherBusyException} (429) right away.
+ * <p>
+ * New hashes use {@code banking.password.cost}; {@link #needsRehash} tells login when a stored hash was
+ * made with a different cost.
+ * <p>
+ * The same numbers as {@link #getStats} are published as {@code banking.password.*} meters.
+ */
+@Service
+public class PasswordHasher implements MeterBinder {
+
+    private final int cost;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public PasswordHasher(
+            @Value("${banking.password.cost:12}") int cost,
+            @Value("${banking.password.threads:0}") int threads,
+            @Value("${banking.password.queue-capacity:64}") int queueCapacity) {
+        this.cost = cost;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public String hash(String password) {
+        return run(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+    }
+
+    public boolean verify(String password, String hash) {
+        return run(() -> BCrypt.checkpw(password, hash));
+    }
+
+    // NOTE: "$2a$12$..." - the cost is the two digits after the version
+    public boolean needsRehash(String hash) {
+        return hash.length() < 7 || Integer.parseInt(hash.substring(4, 6)) != cost;
+    }
+
+    public PasswordHasherStatsDTO getStats() {
+        long count = completed.sum();
+        return new PasswordHasherStatsDTO(
+                cost,
+                executor.getMaximumPoolSize(),
+                executor.getActiveCount(),
+                executor.getQueue().size(),
+                count,
+                rejected.sum(),
+                count == 0 ? 0 : totalNanos.get() / 1e6 / count,
+                maxNanos.get() / 1e6
+        );
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashes running right now")
+                .register(registry);
+        Gauge.builder("banking.password.queued", executor, e -> e.getQueue().size())
+                .description("Hashes waiting for a thread")
+                .register(registry);
+        FunctionCounter.builder("banking.password.rejected", rejected, LongAdder::sum)
+                .description("Hashes turned away because the queue was full")
+                .register(registry);
+        FunctionTimer.builder("banking.password.hashes", this,
+                        hasher -> hasher.completed.sum(), hasher -> hasher.totalNanos.get(), TimeUnit.NANOSECONDS)
+                .tag("cost", String.valueOf(cost))
+                .register(registry);
+    }
+
+    private <T> T run(Callable<T> work) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return work.call();
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    completed.increment();
+                    totalNanos.addAndGet(elapsed);
+                    maxNanos.accumulateAndGet(elapsed, Math::max);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHasherBusyException();
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the password hasher", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,75 @@
+package com.kostas.banking.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kostas.banking.exception.ErrorResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Authenticates requests carrying {@code Authorization: Bearer <session token>} as the token's customer.
+ * No header means an anonymous request (SecurityConfig decides whether that's allowed); a bad or expired
+ * token is a 401 straight away.
+ * <p>
+ * A browser {@code EventSource} can't set headers, so event stream requests may pass the token as the
+ * {@code access_token} query parameter instead - only those, to keep tokens out of other URLs and logs.
+ * <p>
+ * Customers listed in {@code banking.auth.admins} are also granted {@link #ADMIN}.
+ */
+@RequiredArgsConstructor
+public class SessionTokenFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+    private static final String ACCESS_TOKEN = "access_token";
+    public static final String ADMIN = "ADMIN";
+
+    private final SessionTokenService sessionTokenService;
+    private final ObjectMapper objectMapper;
+    private final Set<UUID> admins;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        UUID customerId;
+        if (header != null && header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            customerId = sessionTokenService.verify(header, BEARER.length());
+        } else if (isEventStream(request) && request.getParameter(ACCESS_TOKEN) != null) {
+            customerId = sessionTokenService.verify(request.getParameter(ACCESS_TOKEN), 0);
+        } else {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (customerId == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    new ErrorResponse(401, "Invalid session token", "Session token is invalid or expired"));
+            return;
+        }
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(customerId, null,
+                        admins.contains(customerId) ? List.of(new SimpleGrantedAuthority(ADMIN)) : List.of()));
+        chain.doFilter(request, response);
+    }
+
+    private static boolean isEventStream(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+}
@@ -0,0 +1,241 @@
+package com.kostas.banking.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Stateless session tokens, issued once per login so requests don't have to re-check a BCrypt password.
+ * <p>
+ * A token is {@code <key id>.<payload>.<signature>}: the payload is the customer id and expiry (24 bytes,
+ * base64url), the signature an HMAC-SHA256 over everything before the last dot.
+ * <p>
+ * Keys come from {@code banking.auth.keys} as {@code id:base64-secret} pairs, comma separated. The first key
+ * signs new tokens, all of them verify - to rotate, put the new key first and drop the old one once its
+ * tokens have expired ({@code banking.auth.token-ttl}). Without configured keys a random one is generated,
+ * which only works for a single instance and logs everyone out on restart.
+ * <p>
+ * {@link #verify} works on the header string in place: no substrings, no decoded byte arrays, and MACs
+ * are pooled rather than kept per thread - on virtual threads every request is a new thread.
+ */
+@Slf4j
+@Service
+public class SessionTokenService {
+
+    private static final int PAYLOAD_BYTES = 24;
+    private static final int PAYLOAD_CHARS = 32;
+    private static final int SIGNATURE_BYTES = 32;
+    private static final int SIGNATURE_CHARS = 43;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    public record SessionToken(String token, Instant expiresAt) {}
+
+    private final SigningKey[] keys;
+    private final SigningKey signingKey;
+    private final Duration ttl;
+    private final Clock clock;
+
+    @Autowired
+    public SessionTokenService(
+            @Value("${banking.auth.keys:}") String keys,
+            @Value("${banking.auth.token-ttl:PT1H}") Duration ttl) {
+        this(keys, ttl, Clock.systemUTC());
+    }
+
+    SessionTokenService(String keys, Duration ttl, Clock clock) {
+        Map<String, SigningKey> parsed = new LinkedHashMap<>();
+        for (String entry : keys.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int colon = entry.indexOf(':');
+            if (colon <= 0 || entry.indexOf('.') >= 0) {
+                throw new IllegalArgumentException("banking.auth.keys entries must look like <id>:<base64 secret>");
+            }
+            String id = entry.substring(0, colon).trim();
+            parsed.put(id, new SigningKey(id, Base64.getDecoder().decode(entry.substring(colon + 1).trim())));
+        }
+        if (parsed.isEmpty()) {
+            log.warn("No banking.auth.keys configured, signing session tokens with a random key");
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            parsed.put("dev", new SigningKey("dev", secret));
+        }
+        this.keys = parsed.values().toArray(SigningKey[]::new);
+        this.signingKey = this.keys[0];
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    public SessionToken issue(UUID customerId) {
+        Instant expiresAt = clock.instant().plus(ttl);
+        byte[] payload = new byte[PAYLOAD_BYTES];
+        putLong(payload, 0, customerId.getMostSignificantBits());
+        putLong(payload, 8, customerId.getLeastSignificantBits());
+        putLong(payload, 16, expiresAt.getEpochSecond());
+
+        String signed = signingKey.id + "." + ENCODER.encodeToString(payload);
+        byte[] signature;
+        Mac mac = signingKey.borrow();
+        try {
+            signature = mac.doFinal(signed.getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            signingKey.giveBack(mac);
+        }
+        return new SessionToken(signed + "." + ENCODER.encodeToString(signature), expiresAt);
+    }
+
+    /**
+     * The customer id of a valid, unexpired token starting at {@code offset} of {@code value} (so an
+     * {@code Authorization} header can be passed as is), or null.
+     */
+    public UUID verify(String value, int offset) {
+        int firstDot = value.indexOf('.', offset);
+        int secondDot = firstDot + 1 + PAYLOAD_CHARS;
+        if (firstDot < 0 || value.length() != secondDot + 1 + SIGNATURE_CHARS || value.charAt(secondDot) != '.') {
+            return null;
+        }
+        SigningKey key = key(value, offset, firstDot - offset);
+        if (key == null) {
+            return null;
+        }
+
+        // NOTE: [0, 32) is the expected signature, [32, 64) the one on the token - later reused for the payload
+        byte[] buffer = new byte[2 * SIGNATURE_BYTES];
+        Mac mac = key.borrow();
+        try {
+            for (int i = offset; i < secondDot; i++) {
+                mac.update((byte) value.charAt(i));
+            }
+            mac.doFinal(buffer, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            key.giveBack(mac);
+        }
+        if (decode(value, secondDot + 1, SIGNATURE_CHARS, buffer, SIGNATURE_BYTES) != SIGNATURE_BYTES) {
+            return null;
+        }
+        int difference = 0;
+        for (int i = 0; i < SIGNATURE_BYTES; i++) {
+            difference |= buffer[i] ^ buffer[SIGNATURE_BYTES + i];
+        }
+        if (difference != 0) {
+            return null;
+        }
+
+        decode(value, firstDot + 1, PAYLOAD_CHARS, buffer, 0);
+        if (getLong(buffer, 16) <= clock.millis() / 1000) {
+            return null;
+        }
+        return new UUID(getLong(buffer, 0), getLong(buffer, 8));
+    }
+
+    private SigningKey key(String value, int offset, int length) {
+        for (SigningKey key : keys) {
+            if (key.id.length() == length && value.regionMatches(offset, key.id, 0, length)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    // Base64url without padding, straight from the string into out; -1 on a character outside the alphabet or
+    // on set leftover bits, which would otherwise let several strings decode to the same signature
+    private static int decode(String value, int from, int chars, byte[] out, int outOffset) {
+        int written = 0;
+        int bits = 0;
+        int accumulator = 0;
+        for (int i = from; i < from + chars; i++) {
+            char c = value.charAt(i);
+            int sextet = c < DECODE.length ? DECODE[c] : -1;
+            if (sextet < 0) {
+                return -1;
+            }
+            accumulator = (accumulator << 6) | sextet;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                out[outOffset + written++] = (byte) (accumulator >> bits);
+            }
+        }
+        if ((accumulator & ((1 << bits) - 1)) != 0) {
+            return -1;
+        }
+        return written;
+    }
+
+    private static final class SigningKey {
+        private final String id;
+        private final SecretKeySpec secret;
+        private final Queue<Mac> idle = new ConcurrentLinkedQueue<>();
+
+        SigningKey(String id, byte[] secret) {
+            this.id = id;
+            this.secret = new SecretKeySpec(secret, "HmacSHA256");
+        }
+
+        Mac borrow() {
+            Mac mac = idle.poll();
+            if (mac != null) {
+                return mac;
+            }
+            try {
+                mac = Mac.getInstance("HmacSHA256");
+                mac.init(secret);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        // NOTE: doFinal resets the Mac already - this is for one given back halfway through a failed update.
+        // The pool grows to peak concurrency
+        void giveBack(Mac mac) {
+            mac.reset();
+            idle.offer(mac);
+        }
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+}
@@ -1,21 +1,30 @@
 package com.kostas.banking.service;
 
+import com.kostas.banking.config.CacheConfig;
 import com.kostas.banking.dto.AccountCreateDTO;
 import com.kostas.banking.dto.AccountDTO;
 import com.kostas.banking.dto.AccountUpdateDTO;
+import com.kostas.banking.dto.KeysetCursor;
+import com.kostas.banking.dto.PageDTO;
 import com.kostas.banking.enums.AccountStatus;
 import com.kostas.banking.exception.AccountNotFoundException;
 import com.kostas.banking.exception.CustomerNotFoundException;
+import com.kostas.banking.id.IdGenerator;
 import com.kostas.banking.model.Account;
 import com.kostas.banking.model.Customer;
 import com.kostas.banking.repository.AccountRepository;
 import com.kostas.banking.repository.CustomerRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -23,36 +32,40 @@ public class AccountService {
 
     private final AccountRepository accountRepository;
     private final CustomerRepository customerRepository;
+    private final IdGenerator idGenerator;
+    private final CacheManager cacheManager;
+    private final Outbox outbox;
 
     @Transactional(readOnly = true)
     public AccountDTO getAccount(UUID id) {
-        Account account = accountRepository.findById(id)
+        return accountRepository.findDtoById(id)
                 .orElseThrow(() -> new AccountNotFoundException(id));
-        return AccountDTO.fromEntity(account);
     }
 
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.ACCOUNTS_BY_NUMBER)
     public AccountDTO getAccountByAccountNumber(String accountNumber) {
-        return accountRepository.findByAccountNumber(accountNumber)
-                .map(AccountDTO::fromEntity)
+        return accountRepository.findDtoByAccountNumber(accountNumber)
                 .orElseThrow(() -> new AccountNotFoundException(accountNumber));
     }
 
     @Transactional(readOnly = true)
-    public List<AccountDTO> getAllAccounts() {
-        return accountRepository.findAll().stream()
-                .map(AccountDTO::fromEntity)
-                .toList();
+    public PageDTO<AccountDTO> getAllAccounts(String cursor, int limit) {
+        int size = PageDTO.limit(limit);
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        List<AccountDTO> rows = position == null
+                ? accountRepository.findDtoPage(Limit.of(size + 1))
+                : accountRepository.findDtoPageAfter(position.id(), Limit.of(size + 1));
+        return PageDTO.of(rows, size, Function.identity(), account -> new KeysetCursor(null, account.id()));
     }
 
     @Transactional(readOnly = true)
     public List<AccountDTO> getAccountsByCustomerId(UUID customerId) {
-        if (!customerRepository.existsById(customerId)) {
+        List<AccountDTO> accounts = accountRepository.findDtosByOwnerId(customerId);
+        if (accounts.isEmpty() && !customerRepository.existsById(customerId)) {
             throw new CustomerNotFoundException(customerId);
         }
-        return accountRepository.findByOwnerId(customerId).stream()
-                .map(AccountDTO::fromEntity)
-                .toList();
+        return accounts;
     }
 
     @Transactional
@@ -61,13 +74,14 @@ public class AccountService {
                 .orElseThrow(() -> new CustomerNotFoundException(dto.ownerId()));
 
         Account account = new Account();
-        account.setId(UUID.randomUUID());
+        account.setId(idGenerator.next());
         account.setAccountNumber(dto.accountNumber());
         account.setType(dto.type());
         account.setStatus(AccountStatus.ACTIVE);
         account.setOwner(owner);
 
         Account saved = accountRepository.save(account);
+        outbox.account(saved);
         return AccountDTO.fromEntity(saved);
     }
 
@@ -82,6 +96,8 @@ public class AccountService {
         }
 
         Account saved = accountRepository.save(account);
+        evictAccountNumber(account.getAccountNumber());
+        outbox.account(saved);
         return AccountDTO.fromEntity(saved);
     }
 
@@ -96,6 +112,8 @@ public class AccountService {
 
         account.setStatus(AccountStatus.CLOSED);
         accountRepository.save(account);
+        evictAccountNumber(account.getAccountNumber());
+        outbox.account(account);
     }
 
     @Transactional
@@ -105,7 +123,16 @@ public class AccountService {
 
         account.setStatus(AccountStatus.ACTIVE);
         Account saved = accountRepository.save(account);
+        evictAccountNumber(account.getAccountNumber());
+        outbox.account(saved);
         return AccountDTO.fromEntity(saved);
     }
+
+    private void evictAccountNumber(String accountNumber) {
+        Cache cache = cacheManager.getCache(CacheConfig.ACCOUNTS_BY_NUMBER);
+        if (cache != null) {
+            cache.evict(accountNumber);
+        }
+    }
 }
 
@@ -1,20 +1,28 @@
 package com.kostas.banking.service;
 
+import com.kostas.banking.dto.AccountDTO;
 import com.kostas.banking.dto.BalanceCreateDTO;
 import com.kostas.banking.dto.BalanceDTO;
 import com.kostas.banking.dto.BalanceUpdateDTO;
+import com.kostas.banking.dto.KeysetCursor;
+import com.kostas.banking.dto.PageDTO;
+import com.kostas.banking.enums.CurrencyCode;
 import com.kostas.banking.exception.AccountNotFoundException;
 import com.kostas.banking.exception.BalanceNotFoundException;
+import com.kostas.banking.id.IdGenerator;
 import com.kostas.banking.model.Account;
 import com.kostas.banking.model.Balance;
 import com.kostas.banking.repository.AccountRepository;
 import com.kostas.banking.repository.BalanceRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -22,29 +30,46 @@ public class BalanceService {
 
     private final BalanceRepository balanceRepository;
     private final AccountRepository accountRepository;
+    private final IdGenerator idGenerator;
+    private final Outbox outbox;
 
     @Transactional(readOnly = true)
     public BalanceDTO getBalance(UUID id) {
-        Balance balance = balanceRepository.findById(id)
+        return balanceRepository.findDtoById(id)
                 .orElseThrow(() -> new BalanceNotFoundException(id));
-        return BalanceDTO.fromEntity(balance);
+    }
+
+    /**
+     * Ledger, held and available amount of one (account, currency) pair in a single row lookup. An account
+     * that never had that currency gets zeros.
+     */
+    @Transactional(readOnly = true)
+    public BalanceDTO getBalance(UUID accountId, CurrencyCode currency) {
+        return balanceRepository.findDtoByAccountIdAndCurrency(accountId, currency)
+                .orElseGet(() -> {
+                    AccountDTO account = accountRepository.findDtoById(accountId)
+                            .orElseThrow(() -> new AccountNotFoundException(accountId));
+                    return new BalanceDTO(null, accountId, account.accountNumber(), BigDecimal.ZERO, BigDecimal.ZERO, currency);
+                });
     }
 
     @Transactional(readOnly = true)
-    public List<BalanceDTO> getAllBalances() {
-        return balanceRepository.findAll().stream()
-                .map(BalanceDTO::fromEntity)
-                .toList();
+    public PageDTO<BalanceDTO> getAllBalances(String cursor, int limit) {
+        int size = PageDTO.limit(limit);
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        List<BalanceDTO> rows = position == null
+                ? balanceRepository.findDtoPage(Limit.of(size + 1))
+                : balanceRepository.findDtoPageAfter(position.id(), Limit.of(size + 1));
+        return PageDTO.of(rows, size, Function.identity(), balance -> new KeysetCursor(null, balance.id()));
     }
 
     @Transactional(readOnly = true)
     public List<BalanceDTO> getBalancesByAccountId(UUID accountId) {
-        if (!accountRepository.existsById(accountId)) {
+        List<BalanceDTO> balances = balanceRepository.findDtosByAccountId(accountId);
+        if (balances.isEmpty() && !accountRepository.existsById(accountId)) {
             throw new AccountNotFoundException(accountId);
         }
-        return balanceRepository.findByAccountId(accountId).stream()
-                .map(BalanceDTO::fromEntity)
-                .toList();
+        return balances;
     }
 
     @Transactional
@@ -53,12 +78,13 @@ public class BalanceService {
                 .orElseThrow(() -> new AccountNotFoundException(dto.accountId()));
 
         Balance balance = new Balance();
-        balance.setId(UUID.randomUUID());
+        balance.setId(idGenerator.next());
         balance.setAccount(account);
         balance.setAmount(dto.amount());
         balance.setCurrency(dto.currency());
 
         Balance saved = balanceRepository.save(balance);
+        outbox.balance(saved);
         return BalanceDTO.fromEntity(saved);
     }
 
@@ -68,16 +94,17 @@ public class BalanceService {
                 .orElseThrow(() -> new BalanceNotFoundException(id));
 
         balance.setAmount(dto.amount());
+        outbox.balance(balance);
 
         return BalanceDTO.fromEntity(balance);
     }
 
     @Transactional
     public void deleteBalance(UUID id) {
-        if (!balanceRepository.existsById(id)) {
-            throw new BalanceNotFoundException(id);
-        }
-        balanceRepository.deleteById(id);
+        Balance balance = balanceRepository.findById(id)
+                .orElseThrow(() -> new BalanceNotFoundException(id));
+        outbox.balanceDeleted(balance);
+        balanceRepository.delete(balance);
     }
 }
 
@@ -0,0 +1,33 @@
+package com.kostas.banking.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.kostas.banking.dto.CacheStatsDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+
+@Service
+@RequiredArgsConstructor
+public class CacheStatsService {
+
+    private final CacheManager cacheManager;
+
+    // NOTE: empty when caching is switched off
+    public List<CacheStatsDTO> getStats() {
+        return cacheManager.getCacheNames().stream()
+                .map(cacheManager::getCache)
+                .filter(Objects::nonNull)
+                .filter(cache -> cache.getNativeCache() instanceof Cache<?, ?>)
+                .map(cache -> {
+                    Cache<?, ?> nativeCache = (Cache<?, ?>) cache.getNativeCache();
+                    CacheStats stats = nativeCache.stats();
+                    return new CacheStatsDTO(cache.getName(), nativeCache.estimatedSize(),
+                            stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+                })
+                .toList();
+    }
+}
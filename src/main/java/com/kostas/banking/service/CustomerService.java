@@ -1,15 +1,26 @@
 package com.kostas.banking.service;
 
+import com.kostas.banking.config.CacheConfig;
 import com.kostas.banking.dto.CustomerCreateDTO;
 import com.kostas.banking.dto.CustomerDTO;
 import com.kostas.banking.dto.CustomerUpdateDTO;
+import com.kostas.banking.dto.KeysetCursor;
+import com.kostas.banking.dto.PageDTO;
 import com.kostas.banking.exception.EmailAlreadyExistsException;
 import com.kostas.banking.exception.CustomerNotFoundException;
 import com.kostas.banking.exception.InvalidCredentialsException;
+import com.kostas.banking.exception.PasswordHasherBusyException;
+import com.kostas.banking.id.IdGenerator;
 import com.kostas.banking.model.Customer;
+import com.kostas.banking.repository.AccountRepository;
 import com.kostas.banking.repository.CustomerRepository;
+import com.kostas.banking.security.PasswordHasher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,6 +33,10 @@ import java.util.UUID;
 public class CustomerService {
 
     private final CustomerRepository customerRepository;
+    private final AccountRepository accountRepository;
+    private final IdGenerator idGenerator;
+    private final PasswordHasher passwordHasher;
+    private final CacheManager cacheManager;
 
     @Transactional(readOnly = true)
     public CustomerDTO getCustomer(UUID id) {
@@ -32,6 +47,7 @@ public class CustomerService {
     }
 
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.CUSTOMERS_BY_EMAIL)
     public CustomerDTO getCustomerByEmail(String email) {
         return customerRepository.findByEmail(email)
                 .map(CustomerDTO::fromEntity)
@@ -39,10 +55,13 @@ public class CustomerService {
     }
 
     @Transactional(readOnly = true)
-    public List<CustomerDTO> getAllCustomers() {
-        return customerRepository.findAll().stream()
-                .map(CustomerDTO::fromEntity)
-                .toList();
+    public PageDTO<CustomerDTO> getAllCustomers(String cursor, int limit) {
+        int size = PageDTO.limit(limit);
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        List<Customer> rows = position == null
+                ? customerRepository.findAllByOrderByIdAsc(Limit.of(size + 1))
+                : customerRepository.findByIdGreaterThanOrderByIdAsc(position.id(), Limit.of(size + 1));
+        return PageDTO.of(rows, size, CustomerDTO::fromEntity, customer -> new KeysetCursor(null, customer.getId()));
     }
 
     @Transactional
@@ -50,6 +69,13 @@ public class CustomerService {
         Customer customer = customerRepository.findById(id)
                 .orElseThrow(() -> new CustomerNotFoundException(id));
 
+        evict(CacheConfig.CUSTOMERS_BY_EMAIL, customer.getEmail());
+        // NOTE: cached accounts carry the owner's name
+        if (!customer.getFullName().equals(dto.fullName())) {
+            accountRepository.findDtosByOwnerId(id)
+                    .forEach(account -> evict(CacheConfig.ACCOUNTS_BY_NUMBER, account.accountNumber()));
+        }
+
         customer.setFullName(dto.fullName());
         customer.setEmail(dto.email());
 
@@ -58,38 +84,65 @@ public class CustomerService {
 
     @Transactional
     public void deleteCustomer(UUID id) {
-        if (!customerRepository.existsById(id)) {
-            throw new CustomerNotFoundException(id);
-        }
-        customerRepository.deleteById(id);
+        Customer customer = customerRepository.findById(id)
+                .orElseThrow(() -> new CustomerNotFoundException(id));
+        evict(CacheConfig.CUSTOMERS_BY_EMAIL, customer.getEmail());
+        customerRepository.delete(customer);
     }
 
-    @Transactional
+    // NOTE: deliberately not @Transactional - the hash takes a few hundred ms and no connection should sit idle
+    // behind it, so it runs first and the insert is the only statement
     public CustomerDTO createCustomer(CustomerCreateDTO dto) {
         log.info("Creating customer with email: {}", dto.email());
-        if (customerRepository.existsByEmail(dto.email())) {
-            throw new EmailAlreadyExistsException(dto.email());
-        }
-
         Customer customer = new Customer();
-        customer.setId(UUID.randomUUID());
+        customer.setId(idGenerator.next());
         customer.setFullName(dto.fullName());
         customer.setEmail(dto.email());
         customer.setDateOfBirth(dto.dateOfBirth());
-        customer.setPassword(dto.password());
-
-        Customer saved = customerRepository.save(customer);
-        return CustomerDTO.fromEntity(saved);
+        customer.setPasswordHash(passwordHasher.hash(dto.password()));
+
+        int inserted = customerRepository.insertIfEmailFree(
+                customer.getId(),
+                customer.getFullName(),
+                customer.getEmail(),
+                customer.getDateOfBirth(),
+                customer.getPasswordHash()
+        );
+        if (inserted == 0) {
+            throw new EmailAlreadyExistsException(dto.email());
+        }
+        return CustomerDTO.fromEntity(customer);
     }
 
     public Customer authenticate(String email, String password) {
         Customer customer = customerRepository.findByEmail(email)
                 .orElseThrow(InvalidCredentialsException::new);
 
-        if (!customer.verifyPassword(password)) {
+        if (!passwordHasher.verify(password, customer.getPasswordHash())) {
             throw new InvalidCredentialsException();
         }
+        if (passwordHasher.needsRehash(customer.getPasswordHash())) {
+            rehash(customer, password);
+        }
 
         return customer;
     }
+
+    // NOTE: the cost factor changed since this hash was made - the plain password is only around at login
+    private void rehash(Customer customer, String password) {
+        try {
+            String passwordHash = passwordHasher.hash(password);
+            customerRepository.updatePasswordHash(customer.getId(), passwordHash);
+            customer.setPasswordHash(passwordHash);
+        } catch (PasswordHasherBusyException e) {
+            log.debug("Password hasher busy, rehashing customer {} on a later login", customer.getId());
+        }
+    }
+
+    private void evict(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
 }
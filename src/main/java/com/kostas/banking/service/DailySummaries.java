@@ -0,0 +1,109 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.id.IdGenerator;
+import com.kostas.banking.model.Balance;
+import com.kostas.banking.model.DailyAccountSummary;
+import com.kostas.banking.repository.DailyAccountSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Folds what the posting engine did to each balance into that balance's {@link DailyAccountSummary} for the
+ * day, inside the posting's DB transaction. The engine holds the account locks, so a (account, currency, day)
+ * row is never updated by two transactions at once and can be read, then inserted or updated.
+ * <p>
+ * Only postings move a rollup: a balance amount set directly through {@code BalanceService} isn't a posting,
+ * so it shows up as the difference between one day's closing and the next one's opening.
+ */
+@Component
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class DailySummaries {
+
+    private final DailyAccountSummaryRepository summaryRepository;
+    private final IdGenerator idGenerator;
+
+    /**
+     * The postings one DB transaction applied to one balance on one day. {@code opening} is the balance
+     * amount before the first of them; the closing amount is read off the balance when recorded.
+     */
+    static final class Change {
+        private final Balance balance;
+        private final LocalDate day;
+        private final BigDecimal opening;
+        private BigDecimal debits = BigDecimal.ZERO;
+        private BigDecimal credits = BigDecimal.ZERO;
+        private long count;
+
+        Change(Balance balance, LocalDate day) {
+            this.balance = balance;
+            this.day = day;
+            this.opening = balance.getAmount();
+        }
+
+        void add(BigDecimal delta) {
+            if (delta.signum() < 0) {
+                debits = debits.subtract(delta);
+            } else {
+                credits = credits.add(delta);
+            }
+            count++;
+        }
+
+        Key key() {
+            return new Key(balance.getAccount().getId(), balance.getCurrency(), day);
+        }
+    }
+
+    record Key(UUID accountId, CurrencyCode currency, LocalDate day) {}
+
+    public void record(Collection<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Set<UUID> accountIds = new HashSet<>();
+        Set<LocalDate> days = new HashSet<>();
+        for (Change change : changes) {
+            accountIds.add(change.balance.getAccount().getId());
+            days.add(change.day);
+        }
+        Map<Key, DailyAccountSummary> rows = new HashMap<>();
+        for (DailyAccountSummary row : summaryRepository.findByAccountIdsAndDays(accountIds, days)) {
+            rows.put(new Key(row.getAccount().getId(), row.getCurrency(), row.getDay()), row);
+        }
+
+        List<DailyAccountSummary> created = new ArrayList<>();
+        for (Change change : changes) {
+            DailyAccountSummary row = rows.get(change.key());
+            if (row == null) {
+                row = new DailyAccountSummary();
+                row.setId(idGenerator.next());
+                row.setAccount(change.balance.getAccount());
+                row.setCurrency(change.balance.getCurrency());
+                row.setDay(change.day);
+                row.setOpening(change.opening);
+                created.add(row);
+            }
+            row.setDebits(row.getDebits().add(change.debits));
+            row.setCredits(row.getCredits().add(change.credits));
+            row.setCount(row.getCount() + change.count);
+            row.setClosing(change.balance.getAmount());
+        }
+        // NOTE: rows that existed are managed, their changes go out as one UPDATE batch at commit
+        summaryRepository.saveAll(created);
+    }
+}
@@ -0,0 +1,204 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.archive.TransactionArchive;
+import com.kostas.banking.dto.AccountDTO;
+import com.kostas.banking.dto.DailyTotal;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.dto.TransactionFilter;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.id.IdGenerator;
+import com.kostas.banking.model.Account;
+import com.kostas.banking.model.Balance;
+import com.kostas.banking.model.DailyAccountSummary;
+import com.kostas.banking.repository.AccountRepository;
+import com.kostas.banking.repository.BalanceRepository;
+import com.kostas.banking.repository.DailyAccountSummaryRepository;
+import com.kostas.banking.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Rebuilds the {@link DailyAccountSummary} rows from the transactions, for when they're new, were lost or
+ * drifted. Accounts are rebuilt {@code threads} at a time, each in its own DB transaction holding the
+ * account's lock - the lock postings take too, so an account's summaries are never rebuilt under a posting.
+ * <p>
+ * The days are walked back from the current balance: the newest day closes at it and every day opens at
+ * what it closed at minus its postings. A balance amount that was ever set directly (not posted) is thereby
+ * folded into the oldest day instead of breaking the chain in the middle.
+ * <p>
+ * Archived postings are counted from the {@link TransactionArchive}. A transaction the archiver is moving
+ * while its account is rebuilt can be counted on both sides; rebuilding the account again fixes that.
+ * <p>
+ * Runs on startup with {@code banking.summaries.backfill.on-startup=true}, e.g. the first time this is
+ * deployed against existing transactions.
+ */
+@Slf4j
+@Service
+public class DailySummaryBackfill {
+
+    private static final int PAGE_SIZE = 500;
+
+    private final AccountRepository accountRepository;
+    private final BalanceRepository balanceRepository;
+    private final TransactionRepository transactionRepository;
+    private final DailyAccountSummaryRepository summaryRepository;
+    private final TransactionArchive archive;
+    private final IdGenerator idGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final int threads;
+    private final boolean onStartup;
+
+    public DailySummaryBackfill(
+            AccountRepository accountRepository,
+            BalanceRepository balanceRepository,
+            TransactionRepository transactionRepository,
+            DailyAccountSummaryRepository summaryRepository,
+            TransactionArchive archive,
+            IdGenerator idGenerator,
+            TransactionTemplate transactionTemplate,
+            @Value("${banking.summaries.backfill.threads:4}") int threads,
+            @Value("${banking.summaries.backfill.on-startup:false}") boolean onStartup) {
+        this.accountRepository = accountRepository;
+        this.balanceRepository = balanceRepository;
+        this.transactionRepository = transactionRepository;
+        this.summaryRepository = summaryRepository;
+        this.archive = archive;
+        this.idGenerator = idGenerator;
+        this.transactionTemplate = transactionTemplate;
+        this.threads = threads;
+        this.onStartup = onStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!onStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            long start = System.nanoTime();
+            int accounts = rebuildAll();
+            log.info("Rebuilt the daily summaries of {} accounts in {} ms", accounts, (System.nanoTime() - start) / 1_000_000);
+        }, "summary-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Rebuilds every account's summaries and returns how many accounts there were.
+     */
+    public int rebuildAll() {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            int accounts = 0;
+            List<AccountDTO> page = accountRepository.findDtoPage(Limit.of(PAGE_SIZE));
+            while (!page.isEmpty()) {
+                List<Future<?>> futures = new ArrayList<>(page.size());
+                for (AccountDTO account : page) {
+                    futures.add(executor.submit(() -> rebuild(account.id())));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                accounts += page.size();
+                page = accountRepository.findDtoPageAfter(page.get(page.size() - 1).id(), Limit.of(PAGE_SIZE));
+            }
+            return accounts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Daily summary backfill was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Daily summary backfill failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void rebuild(UUID accountId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Account> locked = accountRepository.findAllByIdForUpdate(Set.of(accountId));
+            if (locked.isEmpty()) {
+                return;
+            }
+            Account account = locked.get(0);
+            summaryRepository.deleteByAccountId(accountId);
+
+            Map<CurrencyCode, NavigableMap<LocalDate, DailyAccountSummary>> days = new EnumMap<>(CurrencyCode.class);
+            for (DailyTotal debits : transactionRepository.sumDebitsByDay(accountId)) {
+                DailyAccountSummary day = day(days, account, debits.currency(), debits.day());
+                day.setDebits(debits.amount());
+                day.setCount(day.getCount() + debits.count());
+            }
+            for (DailyTotal credits : transactionRepository.sumCreditsByDay(accountId)) {
+                DailyAccountSummary day = day(days, account, credits.currency(), credits.day());
+                day.setCredits(credits.amount());
+                day.setCount(day.getCount() + credits.count());
+            }
+            for (TransactionDTO archived : archive.findByAccount(accountId, TransactionFilter.NONE, null, Integer.MAX_VALUE)) {
+                if (archived.status() != TransactionStatus.COMPLETED) {
+                    continue;
+                }
+                LocalDateTime postedAt = archived.postedAt() != null ? archived.postedAt() : archived.createdAt();
+                DailyAccountSummary day = day(days, account, archived.currency(), postedAt.toLocalDate());
+                if (accountId.equals(archived.debitAccountId())) {
+                    day.setDebits(day.getDebits().add(archived.amount()));
+                    day.setCount(day.getCount() + 1);
+                }
+                if (accountId.equals(archived.creditAccountId())) {
+                    day.setCredits(day.getCredits().add(archived.amount()));
+                    day.setCount(day.getCount() + 1);
+                }
+            }
+
+            Map<CurrencyCode, BigDecimal> balances = new EnumMap<>(CurrencyCode.class);
+            for (Balance balance : balanceRepository.findByAccountId(accountId)) {
+                balances.put(balance.getCurrency(), balance.getAmount());
+            }
+            List<DailyAccountSummary> rows = new ArrayList<>();
+            days.forEach((currency, byDay) -> {
+                BigDecimal closing = balances.getOrDefault(currency, BigDecimal.ZERO);
+                for (DailyAccountSummary day : byDay.descendingMap().values()) {
+                    day.setClosing(closing);
+                    day.setOpening(closing.subtract(day.getCredits()).add(day.getDebits()));
+                    closing = day.getOpening();
+                    rows.add(day);
+                }
+            });
+            summaryRepository.saveAll(rows);
+        });
+    }
+
+    private DailyAccountSummary day(Map<CurrencyCode, NavigableMap<LocalDate, DailyAccountSummary>> days,
+                                    Account account, CurrencyCode currency, LocalDate postingDay) {
+        return days.computeIfAbsent(currency, c -> new TreeMap<>())
+                .computeIfAbsent(postingDay, day -> {
+                    DailyAccountSummary summary = new DailyAccountSummary();
+                    summary.setId(idGenerator.next());
+                    summary.setAccount(account);
+                    summary.setCurrency(currency);
+                    summary.setDay(day);
+                    return summary;
+                });
+    }
+}
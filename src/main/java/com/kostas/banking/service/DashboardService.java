@@ -0,0 +1,86 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.AccountDTO;
+import com.kostas.banking.dto.BalanceDTO;
+import com.kostas.banking.dto.CustomerDTO;
+import com.kostas.banking.dto.CustomerDashboardDTO;
+import com.kostas.banking.dto.KeysetCursor;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.exception.CustomerNotFoundException;
+import com.kostas.banking.model.Customer;
+import com.kostas.banking.repository.AccountRepository;
+import com.kostas.banking.repository.BalanceRepository;
+import com.kostas.banking.repository.CustomerRepository;
+import com.kostas.banking.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Everything the front-end dashboard needs for one customer in a fixed number of queries
+ * (customer, accounts, balances, then recent transactions and the month count per account side) regardless of
+ * how many accounts they have.
+ */
+@Service
+@RequiredArgsConstructor
+public class DashboardService {
+
+    public static final int MAX_RECENT_TRANSACTIONS = 500;
+
+    private final CustomerRepository customerRepository;
+    private final AccountRepository accountRepository;
+    private final BalanceRepository balanceRepository;
+    private final TransactionRepository transactionRepository;
+
+    @Transactional(readOnly = true)
+    public CustomerDashboardDTO getDashboard(UUID customerId, int recent) {
+        Customer customer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new CustomerNotFoundException(customerId));
+
+        List<AccountDTO> accounts = accountRepository.findDtosByOwnerId(customerId);
+        if (accounts.isEmpty()) {
+            return new CustomerDashboardDTO(CustomerDTO.fromEntity(customer), List.of(), List.of(), List.of(), 0);
+        }
+        List<UUID> accountIds = accounts.stream().map(AccountDTO::id).toList();
+
+        List<BalanceDTO> balances = balanceRepository.findDtosByAccountIdIn(accountIds);
+
+        int limit = Math.max(1, Math.min(recent, MAX_RECENT_TRANSACTIONS));
+        List<TransactionDTO> recentTransactions = recent(accountIds, limit);
+
+        LocalDateTime monthStart = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+        long transactionsThisMonth = transactionRepository.countDebitsByAccountIdsSince(accountIds, monthStart)
+                + transactionRepository.countCreditsByAccountIdsSince(accountIds, monthStart);
+
+        return new CustomerDashboardDTO(
+                CustomerDTO.fromEntity(customer),
+                accounts,
+                balances,
+                recentTransactions,
+                transactionsThisMonth
+        );
+    }
+
+    // NOTE: the newest of each side, merged - a transfer between two of the accounts is on both
+    private List<TransactionDTO> recent(List<UUID> accountIds, int limit) {
+        Map<UUID, TransactionDTO> recent = new HashMap<>();
+        for (TransactionDTO transaction : transactionRepository.findRecentDtosByDebitAccountIds(accountIds, Limit.of(limit))) {
+            recent.put(transaction.id(), transaction);
+        }
+        for (TransactionDTO transaction : transactionRepository.findRecentDtosByCreditAccountIds(accountIds, Limit.of(limit))) {
+            recent.putIfAbsent(transaction.id(), transaction);
+        }
+        return recent.values().stream()
+                .sorted(KeysetCursor.TRANSACTIONS_NEWEST_FIRST)
+                .limit(limit)
+                .toList();
+    }
+}
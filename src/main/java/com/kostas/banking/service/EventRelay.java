@@ -0,0 +1,348 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.model.OutboxEvent;
+import com.kostas.banking.model.OutboxSequence;
+import com.kostas.banking.repository.OutboxEventRepository;
+import com.kostas.banking.repository.OutboxSequenceRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes {@link Outbox} events to the customers they belong to as Server-Sent Events.
+ * <p>
+ * A subscription is an {@link SseEmitter}: the request goes async and Tomcat parks the connection without a
+ * thread, so idle subscribers only cost a socket and an entry in {@link #subscribers} (Tomcat's
+ * {@code server.tomcat.max-connections}, 8192 by default, is the ceiling per node). One relay thread polls the
+ * outbox every {@code poll-interval} and queues each new event for its customer's open emitters; it also sends
+ * a comment every {@code heartbeat} so dead connections are noticed and proxies don't cut idle ones, and drops
+ * events older than {@code retention}.
+ * <p>
+ * An event's {@code created_at} is stamped before its transaction commits, possibly long before, so it can't
+ * tell a poller what it has seen. Instead each poll first numbers the committed events that have no position
+ * yet, holding the {@link OutboxSequence} row lock, and then reads by position. Whoever numbers next sees
+ * every position handed out before, so reading past a position never skips one that commits later. Every node
+ * with subscribers numbers what it finds and reads every event for its own subscribers, so nothing is claimed
+ * or partitioned; a node without any doesn't poll.
+ * <p>
+ * Each emitter has its own queue of up to {@code queue-capacity} events, written out on a virtual thread, so
+ * a client that reads slowly only holds up itself. One that falls further behind is disconnected. A
+ * reconnecting {@code EventSource} sends the last event id it saw and gets what it missed replayed, or a
+ * {@code resync} event when that is gone. The relay thread does the replay, up to the position it has read
+ * through, so the stream stays in order with nothing missed or sent twice.
+ */
+@Slf4j
+@Service
+public class EventRelay implements MeterBinder {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSequenceRepository outboxSequenceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration pollInterval;
+    private final Duration heartbeat;
+    private final Duration retention;
+    private final Duration timeout;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final Map<UUID, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Queue<Subscriber> replays = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread thread;
+
+    // NOTE: only touched by the relay thread, -1 while there is nobody to deliver to
+    private long lastPosition = -1;
+    private long lastHeartbeat = System.nanoTime();
+    private long lastCleanup = System.nanoTime();
+
+    public EventRelay(
+            OutboxEventRepository outboxEventRepository,
+            OutboxSequenceRepository outboxSequenceRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${banking.events.poll-interval:PT0.5S}") Duration pollInterval,
+            @Value("${banking.events.heartbeat:PT30S}") Duration heartbeat,
+            @Value("${banking.events.retention:PT1H}") Duration retention,
+            @Value("${banking.events.timeout:PT30M}") Duration timeout,
+            @Value("${banking.events.batch-size:500}") int batchSize,
+            @Value("${banking.events.queue-capacity:1000}") int queueCapacity) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxSequenceRepository = outboxSequenceRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.pollInterval = pollInterval;
+        this.heartbeat = heartbeat;
+        this.retention = retention;
+        this.timeout = timeout;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.thread = new Thread(this::run, "event-relay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Opens a stream of the customer's events. With {@code lastEventId} (the {@code Last-Event-ID} header a
+     * reconnecting {@code EventSource} sends) the events after it are replayed first.
+     */
+    public SseEmitter subscribe(UUID customerId, UUID lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(customerId, emitter, lastEventId);
+        subscribers.computeIfAbsent(customerId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscriberCount.incrementAndGet();
+        if (lastEventId != null) {
+            replays.add(subscriber);
+        }
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> emitter.complete());
+        return emitter;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.events.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open event streams on this node")
+                .register(registry);
+        FunctionCounter.builder("banking.events.sent", sent, LongAdder::sum)
+                .description("Events and heartbeats written to event streams")
+                .register(registry);
+    }
+
+    // NOTE: on close, before the web server stops - a graceful shutdown would otherwise wait out the open streams
+    @EventListener(ContextClosedEvent.class)
+    public void closeStreams() {
+        for (Set<Subscriber> customerSubscribers : subscribers.values()) {
+            customerSubscribers.forEach(subscriber -> subscriber.emitter.complete());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        thread.interrupt();
+        senders.shutdownNow();
+        closeStreams();
+    }
+
+    // NOTE: up to lastPosition - what comes after it reaches the subscriber like any other event
+    private void replay(Subscriber subscriber) {
+        Optional<OutboxEvent> last = outboxEventRepository.findById(subscriber.lastEventId)
+                .filter(event -> event.getPosition() != null);
+        List<OutboxEvent> missed = last.isEmpty() ? List.of() : outboxEventRepository
+                .findByCustomerIdAndPositionBetweenOrderByPositionAsc(
+                        subscriber.customerId, last.get().getPosition() + 1, lastPosition, Limit.of(batchSize));
+        if (last.isEmpty() || missed.size() == batchSize) {
+            subscriber.send(SseEmitter.event().name("resync").data("{}"));
+            return;
+        }
+        for (OutboxEvent event : missed) {
+            subscriber.send(event(event));
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                poll();
+                if (System.nanoTime() - lastHeartbeat >= heartbeat.toNanos()) {
+                    heartbeat();
+                }
+                if (System.nanoTime() - lastCleanup >= retention.toNanos() / 10) {
+                    lastCleanup = System.nanoTime();
+                    outboxEventRepository.deleteByCreatedAtBefore(LocalDateTime.now().minus(retention));
+                }
+                Thread.sleep(pollInterval.toMillis());
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Event relay poll failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void poll() {
+        if (subscribers.isEmpty()) {
+            // NOTE: nobody to deliver to - the next subscriber starts from wherever the outbox is by then, and
+            // replays from its Last-Event-ID what it missed
+            lastPosition = -1;
+            return;
+        }
+        long numbered = number();
+        if (lastPosition < 0) {
+            lastPosition = numbered;
+        }
+        Subscriber reconnected;
+        while ((reconnected = replays.poll()) != null) {
+            try {
+                replay(reconnected);
+            } catch (RuntimeException e) {
+                log.warn("Event replay failed: {}", e.getMessage());
+                reconnected.send(SseEmitter.event().name("resync").data("{}"));
+            }
+        }
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        List<OutboxEvent> page;
+        do {
+            page = outboxEventRepository.findByPositionGreaterThanOrderByPositionAsc(lastPosition, Limit.of(batchSize));
+            for (OutboxEvent event : page) {
+                dispatch(event);
+                lastPosition = event.getPosition();
+            }
+        } while (page.size() == batchSize);
+    }
+
+    /**
+     * Numbers the committed events that have no position yet and returns the last position handed out.
+     */
+    private long number() {
+        return transactionTemplate.execute(status -> {
+            OutboxSequence sequence = outboxSequenceRepository.findByIdForUpdate(OutboxSequence.ID)
+                    .orElseGet(this::createSequence);
+            long position = sequence.getLastPosition();
+            List<OutboxEvent> unnumbered;
+            do {
+                unnumbered = outboxEventRepository.findByPositionIsNullOrderByCreatedAtAscIdAsc(Limit.of(batchSize));
+                for (OutboxEvent event : unnumbered) {
+                    event.setPosition(++position);
+                }
+                outboxEventRepository.flush();
+            } while (unnumbered.size() == batchSize);
+            sequence.setLastPosition(position);
+            return position;
+        });
+    }
+
+    // NOTE: the first poll on an empty database - two nodes doing it at once fails one insert, which retries
+    private OutboxSequence createSequence() {
+        OutboxSequence sequence = new OutboxSequence();
+        sequence.setId(OutboxSequence.ID);
+        outboxSequenceRepository.saveAndFlush(sequence);
+        return outboxSequenceRepository.findByIdForUpdate(OutboxSequence.ID).orElseThrow();
+    }
+
+    private void dispatch(OutboxEvent event) {
+        Set<Subscriber> customerSubscribers = subscribers.get(event.getCustomerId());
+        if (customerSubscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : customerSubscribers) {
+            subscriber.send(event(event));
+        }
+    }
+
+    private void heartbeat() {
+        lastHeartbeat = System.nanoTime();
+        subscribers.values().forEach(customerSubscribers -> {
+            for (Subscriber subscriber : customerSubscribers) {
+                subscriber.send(SseEmitter.event().comment("heartbeat"));
+            }
+        });
+    }
+
+    private static SseEmitter.SseEventBuilder event(OutboxEvent event) {
+        return SseEmitter.event()
+                .id(event.getId().toString())
+                .name(event.getType().eventName())
+                .data(event.getPayload(), MediaType.APPLICATION_JSON);
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.customerId, (id, customerSubscribers) -> {
+            if (customerSubscribers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return customerSubscribers.isEmpty() ? null : customerSubscribers;
+        });
+    }
+
+    /**
+     * One open stream and the events queued for it. At most one virtual thread writes to it at a time.
+     */
+    private final class Subscriber {
+        private final UUID customerId;
+        private final SseEmitter emitter;
+        private final UUID lastEventId;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new LinkedBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean writing = new AtomicBoolean();
+
+        private Subscriber(UUID customerId, SseEmitter emitter, UUID lastEventId) {
+            this.customerId = customerId;
+            this.emitter = emitter;
+            this.lastEventId = lastEventId;
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) {
+            if (!queue.offer(event)) {
+                // NOTE: too far behind to catch up - it reconnects and replays, or gets a resync
+                log.debug("Event stream of customer {} fell {} events behind, closing it", customerId, queueCapacity);
+                unsubscribe(this);
+                emitter.complete();
+                return;
+            }
+            if (writing.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::write);
+                } catch (RejectedExecutionException e) {
+                    writing.set(false); // shutting down
+                }
+            }
+        }
+
+        private void write() {
+            do {
+                SseEmitter.SseEventBuilder event;
+                while ((event = queue.poll()) != null) {
+                    try {
+                        emitter.send(event);
+                        sent.increment();
+                    } catch (IOException | IllegalStateException e) {
+                        // NOTE: the client went away (or the emitter already completed) - Tomcat ends the
+                        // request, EventSource reconnects
+                        unsubscribe(this);
+                        queue.clear();
+                        return;
+                    }
+                }
+                writing.set(false);
+                // NOTE: an event queued after the last poll but before the flag was cleared
+            } while (!queue.isEmpty() && writing.compareAndSet(false, true));
+        }
+    }
+}
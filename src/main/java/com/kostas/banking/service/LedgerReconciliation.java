@@ -0,0 +1,307 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.archive.TransactionArchive;
+import com.kostas.banking.dto.BalanceDTO;
+import com.kostas.banking.dto.BalanceDiscrepancyDTO;
+import com.kostas.banking.dto.KeysetCursor;
+import com.kostas.banking.dto.LedgerLeg;
+import com.kostas.banking.dto.ReconciliationReportDTO;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.repository.AccountRepository;
+import com.kostas.banking.repository.BalanceRepository;
+import com.kostas.banking.repository.TransactionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Recomputes every balance from the completed postings and reports the ones that don't match. Balances can be
+ * set directly, so nothing else keeps the two in line.
+ * <p>
+ * Accounts are walked in id order, {@code page-size} at a time. Each page is split fork/join style into ranges
+ * of at most {@code leaf-size} accounts, reconciled on a pool of {@code parallelism} threads. A range streams
+ * its accounts' debits and credits off the history indexes and nets them into one {@code long} per (account,
+ * currency), in units of the amount columns' scale. Archived postings are added the same way, one pass over
+ * each {@link TransactionArchive} segment per range. The heap holds a page of ids plus one range of
+ * accumulators per thread, however many transactions there are.
+ * <p>
+ * A range is read in one REPEATABLE READ transaction, so its postings and balances come from the same
+ * snapshot and a posting committed mid-run is not reported. A transaction the archiver moves while its range
+ * is read can be counted on both sides or on neither; running again tells whether a discrepancy is real.
+ * <p>
+ * Runs every {@code interval} with {@code banking.reconciliation.enabled=true} and logs what it found.
+ */
+@Slf4j
+@Service
+public class LedgerReconciliation implements MeterBinder {
+
+    private static final int SCALE = 4;
+    private static final int CURRENCIES = CurrencyCode.values().length;
+    private static final CurrencyCode[] CURRENCY_CODES = CurrencyCode.values();
+
+    private final AccountRepository accountRepository;
+    private final BalanceRepository balanceRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchive archive;
+    private final TransactionTemplate snapshot;
+    private final int parallelism;
+    private final int pageSize;
+    private final int leafSize;
+    private final int maxReported;
+    private final Duration interval;
+    private final Thread thread;
+    private volatile long lastDiscrepancies;
+
+    public LedgerReconciliation(
+            AccountRepository accountRepository,
+            BalanceRepository balanceRepository,
+            TransactionRepository transactionRepository,
+            TransactionArchive archive,
+            PlatformTransactionManager transactionManager,
+            @Value("${banking.reconciliation.enabled:false}") boolean enabled,
+            @Value("${banking.reconciliation.interval:PT24H}") Duration interval,
+            @Value("${banking.reconciliation.parallelism:4}") int parallelism,
+            @Value("${banking.reconciliation.page-size:4096}") int pageSize,
+            @Value("${banking.reconciliation.leaf-size:256}") int leafSize,
+            @Value("${banking.reconciliation.max-reported:100}") int maxReported) {
+        this.accountRepository = accountRepository;
+        this.balanceRepository = balanceRepository;
+        this.transactionRepository = transactionRepository;
+        this.archive = archive;
+        this.snapshot = new TransactionTemplate(transactionManager);
+        snapshot.setReadOnly(true);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.parallelism = parallelism;
+        this.pageSize = pageSize;
+        this.leafSize = leafSize;
+        this.maxReported = maxReported;
+        this.interval = interval;
+        this.thread = enabled ? new Thread(this::run, "ledger-reconciliation") : null;
+        if (thread != null) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Reconciles every account's balances against its postings.
+     */
+    public ReconciliationReportDTO reconcile() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        Tally tally = new Tally(maxReported);
+        long accounts = 0;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<UUID> page = accountRepository.findIdPage(Limit.of(pageSize));
+            while (!page.isEmpty()) {
+                pool.invoke(new Range(page.toArray(UUID[]::new), 0, page.size(), tally));
+                accounts += page.size();
+                page = accountRepository.findIdPageAfter(page.get(page.size() - 1), Limit.of(pageSize));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        lastDiscrepancies = tally.discrepancies.sum();
+        return new ReconciliationReportDTO(startedAt, LocalDateTime.now(), accounts, tally.balances.sum(),
+                tally.postings.sum(), tally.discrepancies.sum(), tally.largest());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.reconciliation.discrepancies", this, reconciliation -> reconciliation.lastDiscrepancies)
+                .description("Balances that didn't match their postings in the last reconciliation")
+                .register(registry);
+    }
+
+    /**
+     * Accounts {@code ids[from, to)} - split in halves until a range is small enough to reconcile in one go.
+     */
+    private final class Range extends RecursiveAction {
+        private final UUID[] ids;
+        private final int from;
+        private final int to;
+        private final Tally tally;
+
+        private Range(UUID[] ids, int from, int to, Tally tally) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+            this.tally = tally;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > leafSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Range(ids, from, middle, tally), new Range(ids, middle, to, tally));
+            } else {
+                snapshot.executeWithoutResult(status -> reconcile(ids, from, to, tally));
+            }
+        }
+    }
+
+    private void reconcile(UUID[] ids, int from, int to, Tally tally) {
+        // NOTE: credits minus debits per account and currency, slot (account - from) * CURRENCIES + currency
+        long[] net = new long[(to - from) * CURRENCIES];
+        long postings;
+        try (Stream<LedgerLeg> debits = transactionRepository.streamCompletedDebits(ids[from], ids[to - 1])) {
+            postings = add(net, ids, from, to, debits.iterator(), false);
+        }
+        try (Stream<LedgerLeg> credits = transactionRepository.streamCompletedCredits(ids[from], ids[to - 1])) {
+            postings += add(net, ids, from, to, credits.iterator(), true);
+        }
+        // NOTE: one pass over each segment's account index for the whole range, not a lookup per account
+        long[] archived = new long[1];
+        archive.forEachRow(ids[from], ids[to - 1], row -> {
+            if (row.status() == TransactionStatus.COMPLETED) {
+                archived[0] += add(net, ids, from, to, row.debitAccountId(), row.currency(), row.amount(), false)
+                        + add(net, ids, from, to, row.creditAccountId(), row.currency(), row.amount(), true);
+            }
+        });
+        postings += archived[0];
+        tally.postings.add(postings);
+
+        List<BalanceDTO> balances = balanceRepository.findDtosByAccountIdIn(Arrays.asList(ids).subList(from, to));
+        for (BalanceDTO balance : balances) {
+            int index = Arrays.binarySearch(ids, from, to, balance.accountId(), KeysetCursor::compareIds);
+            int slot = (index - from) * CURRENCIES + balance.currency().ordinal();
+            if (unscaled(balance.amount()) != net[slot]) {
+                tally.report(balance.accountId(), balance.currency(), net[slot], balance.amount());
+            }
+            net[slot] = 0;
+        }
+        tally.balances.add(balances.size());
+        // NOTE: what is left had postings but no balance row
+        for (int slot = 0; slot < net.length; slot++) {
+            if (net[slot] != 0) {
+                tally.report(ids[from + slot / CURRENCIES], CURRENCY_CODES[slot % CURRENCIES], net[slot], null);
+            }
+        }
+    }
+
+    private static long add(long[] net, UUID[] ids, int from, int to, Iterator<LedgerLeg> legs, boolean credit) {
+        long count = 0;
+        while (legs.hasNext()) {
+            LedgerLeg leg = legs.next();
+            count += add(net, ids, from, to, leg.accountId(), leg.currency(), leg.amount(), credit);
+        }
+        return count;
+    }
+
+    private static int add(long[] net, UUID[] ids, int from, int to, UUID accountId, CurrencyCode currency,
+                           BigDecimal amount, boolean credit) {
+        // NOTE: an account created in the range after its page was read, or the other side of an archived row
+        int index = accountId != null ? Arrays.binarySearch(ids, from, to, accountId, KeysetCursor::compareIds) : -1;
+        if (index < 0) {
+            return 0;
+        }
+        int slot = (index - from) * CURRENCIES + currency.ordinal();
+        // NOTE: a long holds 922 trillion at 4 decimals - addExact fails the run instead of wrapping around
+        net[slot] = credit
+                ? Math.addExact(net[slot], unscaled(amount))
+                : Math.subtractExact(net[slot], unscaled(amount));
+        return 1;
+    }
+
+    private static long unscaled(BigDecimal amount) {
+        return (amount.scale() == SCALE ? amount : amount.setScale(SCALE)).unscaledValue().longValueExact();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                long start = System.nanoTime();
+                ReconciliationReportDTO report = reconcile();
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                if (report.discrepancyCount() == 0) {
+                    log.info("Reconciled {} balances against {} postings in {} ms, all match",
+                            report.balances(), report.postings(), millis);
+                } else {
+                    log.warn("Reconciled {} balances against {} postings in {} ms, {} don't match",
+                            report.balances(), report.postings(), millis, report.discrepancyCount());
+                    for (BalanceDiscrepancyDTO discrepancy : report.discrepancies()) {
+                        log.warn("Balance of account {} in {} is {}, its postings add up to {}", discrepancy.accountId(),
+                                discrepancy.currency(), discrepancy.actual(), discrepancy.expected());
+                    }
+                }
+                Thread.sleep(interval.toMillis());
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Ledger reconciliation failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(interval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts shared by the ranges of a run, and the {@code maxReported} largest discrepancies.
+     */
+    private static final class Tally {
+        private static final Comparator<BalanceDiscrepancyDTO> BY_SIZE =
+                Comparator.comparing(discrepancy -> discrepancy.difference().abs());
+
+        private final LongAdder balances = new LongAdder();
+        private final LongAdder postings = new LongAdder();
+        private final LongAdder discrepancies = new LongAdder();
+        // NOTE: smallest on top, so it is the one dropped when a larger one comes in
+        private final PriorityQueue<BalanceDiscrepancyDTO> largest = new PriorityQueue<>(BY_SIZE);
+        private final int maxReported;
+
+        private Tally(int maxReported) {
+            this.maxReported = maxReported;
+        }
+
+        private void report(UUID accountId, CurrencyCode currency, long expected, BigDecimal actual) {
+            discrepancies.increment();
+            BigDecimal expectedAmount = BigDecimal.valueOf(expected, SCALE);
+            BigDecimal difference = (actual != null ? actual : BigDecimal.ZERO).subtract(expectedAmount);
+            synchronized (largest) {
+                largest.add(new BalanceDiscrepancyDTO(accountId, currency, expectedAmount, actual, difference));
+                if (largest.size() > maxReported) {
+                    largest.poll();
+                }
+            }
+        }
+
+        private List<BalanceDiscrepancyDTO> largest() {
+            synchronized (largest) {
+                return largest.stream().sorted(BY_SIZE.reversed()).toList();
+            }
+        }
+    }
+}
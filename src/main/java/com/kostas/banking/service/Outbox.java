@@ -0,0 +1,83 @@
+package com.kostas.banking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kostas.banking.dto.AccountDTO;
+import com.kostas.banking.dto.BalanceDTO;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.enums.OutboxEventType;
+import com.kostas.banking.id.IdGenerator;
+import com.kostas.banking.model.Account;
+import com.kostas.banking.model.Balance;
+import com.kostas.banking.model.OutboxEvent;
+import com.kostas.banking.model.Transaction;
+import com.kostas.banking.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/**
+ * Records changes for {@link EventRelay} to push to the customers they belong to. Only callable inside the
+ * DB transaction making the change, so an event is committed exactly when its change is - no change goes
+ * out without one and no event describes a change that was rolled back.
+ * <p>
+ * The rows are saved, not flushed: they go out as one JDBC insert batch with the rest of the transaction.
+ */
+@Component
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class Outbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final IdGenerator idGenerator;
+    private final ObjectMapper objectMapper;
+
+    public void account(Account account) {
+        add(account.getOwner().getId(), OutboxEventType.ACCOUNT, AccountDTO.fromEntity(account));
+    }
+
+    public void balance(Balance balance) {
+        add(balance.getAccount().getOwner().getId(), OutboxEventType.BALANCE, BalanceDTO.fromEntity(balance));
+    }
+
+    public void balanceDeleted(Balance balance) {
+        add(balance.getAccount().getOwner().getId(), OutboxEventType.BALANCE_DELETED, BalanceDTO.fromEntity(balance));
+    }
+
+    public void transaction(Transaction transaction) {
+        transaction(transaction, OutboxEventType.TRANSACTION);
+    }
+
+    public void transactionDeleted(Transaction transaction) {
+        transaction(transaction, OutboxEventType.TRANSACTION_DELETED);
+    }
+
+    // NOTE: both sides' owners see it - one event when they're the same customer
+    private void transaction(Transaction transaction, OutboxEventType type) {
+        TransactionDTO dto = TransactionDTO.fromEntity(transaction);
+        UUID debitOwner = transaction.getDebitAccount() != null ? transaction.getDebitAccount().getOwner().getId() : null;
+        UUID creditOwner = transaction.getCreditAccount() != null ? transaction.getCreditAccount().getOwner().getId() : null;
+        if (debitOwner != null) {
+            add(debitOwner, type, dto);
+        }
+        if (creditOwner != null && !creditOwner.equals(debitOwner)) {
+            add(creditOwner, type, dto);
+        }
+    }
+
+    private void add(UUID customerId, OutboxEventType type, Object dto) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(idGenerator.next());
+        event.setCustomerId(customerId);
+        event.setType(type);
+        try {
+            event.setPayload(objectMapper.writeValueAsString(dto));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + type + " event", e);
+        }
+        outboxEventRepository.save(event);
+    }
+}
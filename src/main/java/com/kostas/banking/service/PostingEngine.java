@@ -0,0 +1,529 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.archive.TransactionArchive;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.enums.AccountStatus;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.exception.AccountNotFoundException;
+import com.kostas.banking.exception.DuplicateReferenceNumberException;
+import com.kostas.banking.exception.InsufficientFundsException;
+import com.kostas.banking.exception.TransactionNotFoundException;
+import com.kostas.banking.id.IdGenerator;
+import com.kostas.banking.model.Account;
+import com.kostas.banking.model.Balance;
+import com.kostas.banking.model.Transaction;
+import com.kostas.banking.repository.AccountRepository;
+import com.kostas.banking.repository.BalanceRepository;
+import com.kostas.banking.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Applies postings to the ledger: validates them, debits and credits the {@link Balance} rows and
+ * records the {@link Transaction}, all in one DB transaction.
+ * <p>
+ * Every account touched by a posting (or a batch of postings) is locked with {@code SELECT ... FOR UPDATE}
+ * in id order before any balance is read, so concurrent postings on the same accounts are serialized
+ * and can't deadlock.
+ * <p>
+ * Funds are checked against the available balance, i.e. the ledger amount minus what PENDING transactions
+ * hold (see {@link #hold}), read off the one locked (account, currency) balance row.
+ * <p>
+ * Each DB transaction also writes its outbox events: one per transaction recorded or changed and one per
+ * balance row it changed, however many postings hit that row. What the postings did to each balance is
+ * folded into its {@link DailySummaries daily summary} the same way.
+ */
+@Service
+@RequiredArgsConstructor
+public class PostingEngine {
+
+    // NOTE: only these types are checked against the available balance, same as before the engine existed
+    private static final Set<TransactionType> FUNDED_TYPES = EnumSet.of(TransactionType.WITHDRAWAL, TransactionType.TRANSFER);
+
+    private final AccountRepository accountRepository;
+    private final BalanceRepository balanceRepository;
+    private final TransactionRepository transactionRepository;
+    private final IdGenerator idGenerator;
+    private final PostingMetrics postingMetrics;
+    private final Outbox outbox;
+    private final DailySummaries dailySummaries;
+    private final TransactionArchive archive;
+
+    /**
+     * Outcome of one posting in a batch - exactly one of the two fields is set.
+     */
+    public record Result(TransactionDTO transaction, RuntimeException error) {}
+
+    /**
+     * What one {@link #settlePending} call did with the holds it claimed.
+     */
+    public record Settlement(int settled, int failed) {
+
+        public int claimed() {
+            return settled + failed;
+        }
+    }
+
+    @Transactional
+    public TransactionDTO post(TransactionCreateDTO dto) {
+        try {
+            validate(dto);
+            checkNotArchived(dto);
+            Ledger ledger = lock(List.of(dto));
+            Transaction posted = ledger.apply(dto, idGenerator.next());
+            // NOTE: flushed here rather than at commit so createdAt (stamped on insert) is in the returned DTO
+            TransactionDTO result = TransactionDTO.fromEntity(transactionRepository.saveAndFlush(posted));
+            recordChanges(ledger, List.of(posted));
+            postingMetrics.applied(dto.type(), PostingMetrics.POSTED);
+            return result;
+        } catch (RuntimeException e) {
+            postingMetrics.rejected(dto == null ? null : dto.type(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Reserves the funds for a posting without moving them: the debit side's held amount goes up, so its
+     * available balance drops while its ledger balance stays put, and the transaction is recorded as
+     * PENDING. {@link #settle} later moves the money, {@link #release} gives the hold back.
+     */
+    @Transactional
+    public TransactionDTO hold(TransactionCreateDTO dto) {
+        try {
+            validate(dto);
+            checkNotArchived(dto);
+            Ledger ledger = lock(List.of(dto));
+            Transaction pending = ledger.hold(dto);
+            TransactionDTO result = TransactionDTO.fromEntity(transactionRepository.saveAndFlush(pending));
+            recordChanges(ledger, List.of(pending));
+            postingMetrics.applied(dto.type(), PostingMetrics.HELD);
+            return result;
+        } catch (RuntimeException e) {
+            postingMetrics.rejected(dto == null ? null : dto.type(), e);
+            throw e;
+        }
+    }
+
+    @Transactional
+    public TransactionDTO settle(UUID transactionId) {
+        Transaction transaction = lockPending(transactionId);
+        Ledger ledger = lock(accountIds(transaction));
+        ledger.settle(transaction);
+        recordChanges(ledger, List.of(transaction));
+        postingMetrics.applied(transaction.getType(), PostingMetrics.SETTLED);
+        return TransactionDTO.fromEntity(transaction);
+    }
+
+    /**
+     * Ends a PENDING transaction without posting it, freeing the funds it held.
+     */
+    @Transactional
+    public TransactionDTO release(UUID transactionId, TransactionStatus status) {
+        if (status != TransactionStatus.FAILED && status != TransactionStatus.CANCELLED) {
+            throw new IllegalArgumentException("A hold can only be released as FAILED or CANCELLED.");
+        }
+        Transaction transaction = lockPending(transactionId);
+        Ledger ledger = lock(accountIds(transaction));
+        ledger.release(transaction);
+        transaction.setStatus(status);
+        recordChanges(ledger, List.of(transaction));
+        postingMetrics.applied(transaction.getType(), PostingMetrics.RELEASED);
+        return TransactionDTO.fromEntity(transaction);
+    }
+
+    /**
+     * Settles up to {@code limit} PENDING transactions created before {@code createdBefore}, oldest first, in
+     * one DB transaction. The transactions are claimed with {@code FOR UPDATE SKIP LOCKED}, so concurrent
+     * callers - on this node or another - each get a disjoint set, then their accounts are locked in id order
+     * like any posting. A hold that can't be settled (its credit account was closed meanwhile) is released
+     * and marked FAILED instead of failing the rest. The status changes and balance updates go out as JDBC
+     * batches at commit.
+     */
+    @Transactional
+    public Settlement settlePending(LocalDateTime createdBefore, int limit) {
+        List<Transaction> claimed = transactionRepository.claimPending(createdBefore, limit);
+        if (claimed.isEmpty()) {
+            return new Settlement(0, 0);
+        }
+        Set<UUID> ids = new HashSet<>();
+        for (Transaction transaction : claimed) {
+            ids.addAll(accountIds(transaction));
+        }
+
+        Ledger ledger = lock(ids);
+        int failed = 0;
+        for (Transaction transaction : claimed) {
+            try {
+                ledger.settle(transaction);
+                postingMetrics.applied(transaction.getType(), PostingMetrics.SETTLED);
+            } catch (RuntimeException e) {
+                ledger.release(transaction);
+                transaction.setStatus(TransactionStatus.FAILED);
+                postingMetrics.rejected(transaction.getType(), e);
+                failed++;
+            }
+        }
+        recordChanges(ledger, claimed);
+        return new Settlement(claimed.size() - failed, failed);
+    }
+
+    /**
+     * Posts the whole batch in one DB transaction, taking the account locks once and writing each
+     * touched balance row once no matter how many postings hit it. Reference numbers are checked
+     * against the table (and each other) up front with one query, then against the archive. A posting
+     * that fails validation is reported in its {@link Result} and doesn't affect the others; a failure
+     * while writing rolls back the whole batch.
+     */
+    @Transactional
+    public List<Result> postBatch(List<TransactionCreateDTO> dtos) {
+        return postAll(lock(dtos), dtos, null);
+    }
+
+    /**
+     * Applies postings {@link PostingJournal} already acknowledged, in one DB transaction and under the ids it
+     * handed out. The journal is replayed after a crash, so a posting that was written under its id before -
+     * applied or rejected - is skipped. One that fails is recorded as a FAILED transaction instead: its submitter
+     * was told it was accepted, and that row is how they find out it didn't go through. When the failure is that
+     * another posting took its reference number, the row gets {@link #rejectedReferenceNumber} instead.
+     */
+    @Transactional
+    public void applyJournaled(List<TransactionCreateDTO> dtos, List<UUID> ids) {
+        Ledger ledger = lock(dtos);
+        List<Result> results = postAll(ledger, dtos, ids);
+        List<Transaction> failed = new ArrayList<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            RuntimeException error = results.get(i).error();
+            TransactionCreateDTO dto = dtos.get(i);
+            if (error == null
+                    || (error instanceof DuplicateReferenceNumberException && appliedBefore(dto, ids.get(i)))) {
+                continue;
+            }
+            Transaction transaction = ledger.transaction(dto, ids.get(i), ledger.accounts.get(dto.debitAccountId()),
+                    ledger.accounts.get(dto.creditAccountId()), TransactionStatus.FAILED);
+            if (error instanceof DuplicateReferenceNumberException) {
+                transaction.setReferenceNumber(rejectedReferenceNumber(dto.referenceNumber(), ids.get(i)));
+            }
+            failed.add(transaction);
+        }
+        // NOTE: flushed first, like postAll - createdAt is only set on insert and the events carry it
+        transactionRepository.saveAllAndFlush(failed);
+        for (Transaction transaction : failed) {
+            outbox.transaction(transaction);
+        }
+    }
+
+    /**
+     * The reference number a journaled posting is recorded FAILED under when its own was taken by another
+     * posting (reference numbers are unique): the original, cut to fit, with the acknowledged id appended.
+     */
+    static String rejectedReferenceNumber(String referenceNumber, UUID id) {
+        String suffix = "#" + id;
+        return referenceNumber.substring(0, Math.min(referenceNumber.length(), 255 - suffix.length())) + suffix;
+    }
+
+    // NOTE: a replay of a posting written before, as opposed to one whose reference number another posting took
+    // (another node, the direct path, the same reference journaled twice)
+    private boolean appliedBefore(TransactionCreateDTO dto, UUID id) {
+        return transactionRepository.existsById(id)
+                || archive.findByReferenceNumber(dto.referenceNumber()).filter(archived -> archived.id().equals(id)).isPresent()
+                || archive.contains(rejectedReferenceNumber(dto.referenceNumber(), id));
+    }
+
+    private List<Result> postAll(Ledger ledger, List<TransactionCreateDTO> dtos, List<UUID> ids) {
+        Set<String> taken = existingReferenceNumbers(dtos);
+        List<Transaction> posted = new ArrayList<>();
+        Transaction[] byIndex = new Transaction[dtos.size()];
+        RuntimeException[] errors = new RuntimeException[dtos.size()];
+        for (int i = 0; i < dtos.size(); i++) {
+            TransactionCreateDTO dto = dtos.get(i);
+            try {
+                validate(dto);
+                if (!taken.add(dto.referenceNumber())) {
+                    throw new DuplicateReferenceNumberException(dto.referenceNumber());
+                }
+                byIndex[i] = ledger.apply(dto, ids != null ? ids.get(i) : idGenerator.next());
+                posted.add(byIndex[i]);
+            } catch (RuntimeException e) {
+                errors[i] = e;
+            }
+        }
+
+        transactionRepository.saveAllAndFlush(posted);
+        recordChanges(ledger, posted);
+        List<Result> results = new ArrayList<>(dtos.size());
+        for (int i = 0; i < dtos.size(); i++) {
+            TransactionCreateDTO dto = dtos.get(i);
+            if (errors[i] != null) {
+                postingMetrics.rejected(dto == null ? null : dto.type(), errors[i]);
+                results.add(new Result(null, errors[i]));
+            } else {
+                postingMetrics.applied(dto.type(), PostingMetrics.POSTED);
+                results.add(new Result(TransactionDTO.fromEntity(byIndex[i]), null));
+            }
+        }
+        return results;
+    }
+
+    private void recordChanges(Ledger ledger, List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            outbox.transaction(transaction);
+        }
+        for (Balance balance : ledger.changed) {
+            outbox.balance(balance);
+        }
+        dailySummaries.record(ledger.days.values());
+    }
+
+    private Set<String> existingReferenceNumbers(List<TransactionCreateDTO> dtos) {
+        Set<String> referenceNumbers = new HashSet<>();
+        for (TransactionCreateDTO dto : dtos) {
+            if (dto != null && dto.referenceNumber() != null) {
+                referenceNumbers.add(dto.referenceNumber());
+            }
+        }
+        if (referenceNumbers.isEmpty()) {
+            return new HashSet<>();
+        }
+        Set<String> taken = new HashSet<>(transactionRepository.findExistingReferenceNumbers(referenceNumbers));
+        taken.addAll(archive.findExistingReferenceNumbers(referenceNumbers));
+        return taken;
+    }
+
+    // NOTE: package-private for PostingJournal, which rejects malformed postings before acknowledging them
+    static void validate(TransactionCreateDTO dto) {
+        if (dto == null) {
+            throw new IllegalArgumentException("Transaction is required.");
+        }
+        if (dto.referenceNumber() == null || dto.referenceNumber().isBlank()) {
+            throw new IllegalArgumentException("Transaction reference number is required.");
+        }
+        if (dto.amount() == null || dto.amount().signum() <= 0) {
+            throw new IllegalArgumentException("Transaction amount must be greater than zero.");
+        }
+        if (dto.currency() == null || dto.type() == null) {
+            throw new IllegalArgumentException("Transaction currency and type are required.");
+        }
+        if (dto.debitAccountId() == null && dto.creditAccountId() == null) {
+            throw new IllegalArgumentException("Transaction needs a debit account, a credit account or both.");
+        }
+        if (dto.debitAccountId() != null && dto.debitAccountId().equals(dto.creditAccountId())) {
+            throw new IllegalArgumentException("Cannot transfer to the same account.");
+        }
+    }
+
+    // NOTE: archived transactions are out of reach of the unique constraint on reference_number
+    private void checkNotArchived(TransactionCreateDTO dto) {
+        if (archive.contains(dto.referenceNumber())) {
+            throw new DuplicateReferenceNumberException(dto.referenceNumber());
+        }
+    }
+
+    // NOTE: package-private for PostingBenchmark; deposits and adjustments skip the BigDecimal work entirely
+    static void checkFunds(Balance debitBalance, TransactionCreateDTO dto) {
+        if (!FUNDED_TYPES.contains(dto.type())) {
+            return;
+        }
+        BigDecimal available = debitBalance != null ? debitBalance.getAvailableAmount() : BigDecimal.ZERO;
+        if (available.compareTo(dto.amount()) < 0) {
+            throw new InsufficientFundsException(available, dto.amount(), dto.currency());
+        }
+    }
+
+    // NOTE: the transaction row is locked before its accounts - postings never lock transaction rows, so no cycle
+    // NOTE: callers must not have loaded the transaction before - the lock doesn't refresh a managed entity
+    private Transaction lockPending(UUID transactionId) {
+        Transaction transaction = transactionRepository.findByIdForUpdate(transactionId)
+                .orElseThrow(() -> new TransactionNotFoundException(transactionId));
+        if (transaction.getStatus() != TransactionStatus.PENDING) {
+            throw new IllegalArgumentException("Transaction " + transaction.getReferenceNumber() + " is not pending.");
+        }
+        return transaction;
+    }
+
+    private static Set<UUID> accountIds(Transaction transaction) {
+        Set<UUID> ids = new HashSet<>();
+        if (transaction.getDebitAccount() != null) {
+            ids.add(transaction.getDebitAccount().getId());
+        }
+        if (transaction.getCreditAccount() != null) {
+            ids.add(transaction.getCreditAccount().getId());
+        }
+        return ids;
+    }
+
+    private Ledger lock(List<TransactionCreateDTO> dtos) {
+        Set<UUID> ids = new HashSet<>();
+        for (TransactionCreateDTO dto : dtos) {
+            if (dto == null) {
+                continue;
+            }
+            if (dto.debitAccountId() != null) {
+                ids.add(dto.debitAccountId());
+            }
+            if (dto.creditAccountId() != null) {
+                ids.add(dto.creditAccountId());
+            }
+        }
+        return lock(ids);
+    }
+
+    private Ledger lock(Set<UUID> ids) {
+        Ledger ledger = new Ledger();
+        if (ids.isEmpty()) {
+            return ledger;
+        }
+        for (Account account : accountRepository.findAllByIdForUpdate(ids)) {
+            ledger.accounts.put(account.getId(), account);
+        }
+        for (Balance balance : balanceRepository.findByAccountIdIn(ids)) {
+            ledger.balances.put(new BalanceKey(balance.getAccount().getId(), balance.getCurrency()), balance);
+        }
+        return ledger;
+    }
+
+    private record BalanceKey(UUID accountId, CurrencyCode currency) {}
+
+    /**
+     * The locked accounts and their balances for one DB transaction. Balances are managed entities,
+     * so the amounts changed here are flushed as one UPDATE per row at commit.
+     */
+    private class Ledger {
+        private final Map<UUID, Account> accounts = new HashMap<>();
+        private final Map<BalanceKey, Balance> balances = new HashMap<>();
+        private final Set<Balance> changed = new LinkedHashSet<>();
+        private final Map<DailySummaries.Key, DailySummaries.Change> days = new LinkedHashMap<>();
+
+        Transaction apply(TransactionCreateDTO dto, UUID id) {
+            Account debitAccount = account(dto.debitAccountId());
+            Account creditAccount = account(dto.creditAccountId());
+            checkTransfer(dto, debitAccount, creditAccount);
+
+            if (debitAccount != null) {
+                checkFunds(debitAccount, dto);
+                add(debitAccount, dto.currency(), dto.amount().negate());
+            }
+            if (creditAccount != null) {
+                add(creditAccount, dto.currency(), dto.amount());
+            }
+            return transaction(dto, id, debitAccount, creditAccount, TransactionStatus.COMPLETED);
+        }
+
+        Transaction hold(TransactionCreateDTO dto) {
+            Account debitAccount = account(dto.debitAccountId());
+            Account creditAccount = account(dto.creditAccountId());
+            checkTransfer(dto, debitAccount, creditAccount);
+
+            if (debitAccount != null) {
+                checkFunds(debitAccount, dto);
+                Balance balance = balance(debitAccount, dto.currency());
+                balance.setHeldAmount(balance.getHeldAmount().add(dto.amount()));
+                changed.add(balance);
+            }
+            return transaction(dto, idGenerator.next(), debitAccount, creditAccount, TransactionStatus.PENDING);
+        }
+
+        // NOTE: the debit side was checked when the hold was taken, so only the credit side has to be active now.
+        // It's checked before anything is touched, settlePending carries on with the ledger after a failure
+        void settle(Transaction transaction) {
+            Account creditAccount = transaction.getCreditAccount() == null
+                    ? null
+                    : account(transaction.getCreditAccount().getId());
+            release(transaction);
+            if (transaction.getDebitAccount() != null) {
+                add(transaction.getDebitAccount(), transaction.getCurrency(), transaction.getAmount().negate());
+            }
+            if (creditAccount != null) {
+                add(creditAccount, transaction.getCurrency(), transaction.getAmount());
+            }
+            transaction.setStatus(TransactionStatus.COMPLETED);
+            transaction.setPostedAt(LocalDateTime.now());
+        }
+
+        void release(Transaction transaction) {
+            if (transaction.getDebitAccount() == null) {
+                return;
+            }
+            Balance balance = balances.get(new BalanceKey(transaction.getDebitAccount().getId(), transaction.getCurrency()));
+            balance.setHeldAmount(balance.getHeldAmount().subtract(transaction.getAmount()));
+            changed.add(balance);
+        }
+
+        // For internal transfers, ensure credit account also belongs to the same customer
+        private void checkTransfer(TransactionCreateDTO dto, Account debitAccount, Account creditAccount) {
+            if (dto.type() == TransactionType.TRANSFER && debitAccount != null && creditAccount != null
+                    && !creditAccount.getOwner().getId().equals(debitAccount.getOwner().getId())) {
+                throw new IllegalArgumentException("Cannot transfer to an account not owned by the same customer for internal transfers.");
+            }
+        }
+
+        private void checkFunds(Account debitAccount, TransactionCreateDTO dto) {
+            PostingEngine.checkFunds(balances.get(new BalanceKey(debitAccount.getId(), dto.currency())), dto);
+        }
+
+        private Transaction transaction(TransactionCreateDTO dto, UUID id, Account debitAccount, Account creditAccount,
+                                        TransactionStatus status) {
+            Transaction transaction = new Transaction();
+            transaction.setId(id);
+            transaction.setReferenceNumber(dto.referenceNumber());
+            transaction.setDebitAccount(debitAccount);
+            transaction.setCreditAccount(creditAccount);
+            transaction.setAmount(dto.amount());
+            transaction.setCurrency(dto.currency());
+            transaction.setType(dto.type());
+            transaction.setStatus(status);
+            transaction.setPostedAt(status == TransactionStatus.COMPLETED ? LocalDateTime.now() : null);
+            return transaction;
+        }
+
+        private Account account(UUID id) {
+            if (id == null) {
+                return null;
+            }
+            Account account = accounts.get(id);
+            if (account == null) {
+                throw new AccountNotFoundException(id);
+            }
+            if (account.getStatus() != AccountStatus.ACTIVE) {
+                throw new IllegalArgumentException("Account " + account.getAccountNumber() + " is not active.");
+            }
+            return account;
+        }
+
+        private void add(Account account, CurrencyCode currency, BigDecimal delta) {
+            Balance balance = balance(account, currency);
+            days.computeIfAbsent(new DailySummaries.Key(account.getId(), currency, LocalDate.now()),
+                    key -> new DailySummaries.Change(balance, key.day())).add(delta);
+            balance.setAmount(balance.getAmount().add(delta));
+            changed.add(balance);
+        }
+
+        private Balance balance(Account account, CurrencyCode currency) {
+            return balances.computeIfAbsent(new BalanceKey(account.getId(), currency), key -> {
+                Balance balance = new Balance();
+                balance.setId(idGenerator.next());
+                balance.setAccount(account);
+                balance.setAmount(BigDecimal.ZERO);
+                balance.setCurrency(currency);
+                return balanceRepository.save(balance);
+            });
+        }
+    }
+}
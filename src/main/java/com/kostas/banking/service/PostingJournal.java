@@ -0,0 +1,518 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.exception.DuplicateReferenceNumberException;
+import com.kostas.banking.exception.PostingQueueFullException;
+import com.kostas.banking.exception.PostingUnavailableException;
+import com.kostas.banking.id.IdGenerator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * A write-ahead journal in front of the posting engine, for when one database commit per posting is the
+ * bottleneck. A posting is appended to a memory-mapped journal file and acknowledged once that file range is
+ * forced to disk. A background applier then writes it to {@code transactions} and {@code balances} through
+ * {@link PostingEngine#applyJournaled}, under the id the acknowledgement carried.
+ * <p>
+ * Appends are group-committed: one writer thread collects postings for up to {@code window} or
+ * {@code max-batch} of them and forces them with a single {@code msync}. That one flush covers the whole
+ * group, and the applier spends one DB transaction on each group too. The acknowledgement is the
+ * transaction as accepted: status PENDING until it's applied, then COMPLETED - or FAILED if it was rejected
+ * (insufficient funds, closed account). Malformed postings are rejected before they're journaled.
+ * <p>
+ * Each record is {@code length, CRC32C, sequence, posting}. On startup the files left behind are read up to
+ * the first record whose checksum doesn't match (a write torn by the crash) and everything in them is applied
+ * again. That is safe: a posting already written under its acknowledged id is skipped. New files are synced
+ * along with their directory entry before anything in them is acknowledged. New appends always start a new
+ * file. A file is deleted once everything in it has been applied.
+ * <p>
+ * Enabled with {@code banking.posting.journal.enabled=true}. The journal is per node, on local disk.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "banking.posting.journal.enabled", havingValue = "true")
+public class PostingJournal implements MeterBinder {
+
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final String SUFFIX = ".wal";
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+    /**
+     * One journaled posting: its place in the journal, the id it was acknowledged with and when.
+     */
+    public record Entry(long sequence, UUID id, LocalDateTime acceptedAt, TransactionCreateDTO posting) {
+
+        public TransactionDTO acknowledgement() {
+            return new TransactionDTO(id, posting.referenceNumber(), posting.debitAccountId(), null,
+                    posting.creditAccountId(), null, posting.amount(), posting.currency(), posting.type(),
+                    TransactionStatus.PENDING, acceptedAt, null);
+        }
+    }
+
+    // NOTE: PostingEngine#applyJournaled in production, a stand-in for a database that's down in tests
+    interface Applier {
+        void apply(List<Entry> entries);
+    }
+
+    private final Applier applier;
+    private final IdGenerator idGenerator;
+    private final Path directory;
+    private final int fileSize;
+    private final Duration window;
+    private final int maxBatch;
+    private final BlockingQueue<Pending> queue;
+    private final BlockingQueue<List<Entry>> durable = new LinkedBlockingQueue<>();
+    private final Map<String, Entry> unapplied = new ConcurrentHashMap<>();
+    private final Deque<JournalFile> files = new ConcurrentLinkedDeque<>();
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder forced = new LongAdder();
+    private final Thread writer;
+    private final Thread applierThread;
+    private volatile boolean stopped;
+
+    // NOTE: only touched by the writer thread
+    private JournalFile current;
+    private long nextSequence = 1;
+
+    @Autowired
+    public PostingJournal(
+            PostingEngine postingEngine,
+            IdGenerator idGenerator,
+            @Value("${banking.posting.journal.directory:journal}") String directory,
+            @Value("${banking.posting.journal.file-size:64MB}") DataSize fileSize,
+            @Value("${banking.posting.journal.window:PT0.001S}") Duration window,
+            @Value("${banking.posting.journal.max-batch:512}") int maxBatch,
+            @Value("${banking.posting.journal.queue-capacity:8192}") int queueCapacity) {
+        this(entries -> postingEngine.applyJournaled(
+                        entries.stream().map(Entry::posting).toList(), entries.stream().map(Entry::id).toList()),
+                idGenerator, directory, fileSize, window, maxBatch, queueCapacity);
+    }
+
+    PostingJournal(Applier applier, IdGenerator idGenerator, String directory, DataSize fileSize, Duration window,
+                   int maxBatch, int queueCapacity) {
+        this.applier = applier;
+        this.idGenerator = idGenerator;
+        this.directory = Path.of(directory);
+        this.fileSize = (int) Math.min(Integer.MAX_VALUE, fileSize.toBytes());
+        this.window = window;
+        this.maxBatch = maxBatch;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        recover();
+
+        this.writer = new Thread(this::write, "posting-journal");
+        writer.setDaemon(true);
+        writer.start();
+        this.applierThread = new Thread(this::applyLoop, "journal-applier");
+        applierThread.setDaemon(true);
+        applierThread.start();
+    }
+
+    /**
+     * Journals a posting. The future completes with its acknowledgement once it's durable, or exceptionally
+     * with {@link PostingQueueFullException} when the journal can't keep up.
+     */
+    public CompletableFuture<TransactionDTO> append(TransactionCreateDTO dto) {
+        PostingEngine.validate(dto);
+        Entry entry = new Entry(0, idGenerator.next(), LocalDateTime.now(), dto);
+        byte[] payload = encode(entry);
+        if (HEADER_SIZE + payload.length > fileSize) {
+            throw new IllegalArgumentException("Posting is too large for the journal.");
+        }
+        // NOTE: nothing behind the journal rejects a reused reference number before it's acknowledged, so
+        // two in flight at once are caught here
+        if (unapplied.putIfAbsent(dto.referenceNumber(), entry) != null) {
+            throw new DuplicateReferenceNumberException(dto.referenceNumber());
+        }
+        Pending pending = new Pending(entry, payload, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            unapplied.remove(dto.referenceNumber(), entry);
+            pending.future.completeExceptionally(new PostingQueueFullException());
+        } else if (stopped) {
+            // NOTE: the writer may have drained the queue for the last time before this was offered
+            failQueued();
+        }
+        return pending.future;
+    }
+
+    /**
+     * The acknowledgement of a journaled posting that hasn't been applied yet.
+     */
+    public Optional<TransactionDTO> find(String referenceNumber) {
+        Entry entry = unapplied.get(referenceNumber);
+        return entry != null ? Optional.of(entry.acknowledgement()) : Optional.empty();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("banking.journal.unapplied", unapplied, Map::size)
+                .description("Journaled postings not yet applied to the database")
+                .register(registry);
+        FunctionCounter.builder("banking.journal.appended", appended, LongAdder::sum)
+                .description("Postings appended to the journal")
+                .register(registry);
+        FunctionCounter.builder("banking.journal.forces", forced, LongAdder::sum)
+                .description("Group commits - each one journal flush to disk")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+        writer.interrupt();
+        applierThread.interrupt();
+        try {
+            writer.join(RETRY_DELAY.toMillis());
+            applierThread.join(RETRY_DELAY.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Pending(Entry entry, byte[] payload, CompletableFuture<TransactionDTO> future) {}
+
+    private static final class JournalFile {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private volatile long lastSequence;
+
+        JournalFile(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    private void recover() {
+        List<Entry> recovered = new ArrayList<>();
+        try {
+            Files.createDirectories(directory);
+            List<Path> paths;
+            try (Stream<Path> listing = Files.list(directory)) {
+                paths = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+            }
+            for (Path path : paths) {
+                JournalFile file = map(path, FileChannel.MapMode.READ_ONLY, 0);
+                read(file, recovered);
+                files.add(file);
+                nextSequence = Math.max(nextSequence, file.lastSequence + 1);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the posting journal in " + directory, e);
+        }
+        if (recovered.isEmpty()) {
+            return;
+        }
+        log.info("Replaying {} journaled postings from {}", recovered.size(), directory);
+        for (int i = 0; i < recovered.size(); i += maxBatch) {
+            List<Entry> batch = recovered.subList(i, Math.min(recovered.size(), i + maxBatch));
+            for (Entry entry : batch) {
+                unapplied.put(entry.posting().referenceNumber(), entry);
+            }
+            durable.add(List.copyOf(batch));
+        }
+    }
+
+    // NOTE: stops at the first record that is zero (never written) or fails its checksum (torn by a crash)
+    private void read(JournalFile file, List<Entry> into) {
+        ByteBuffer buffer = file.buffer;
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            long sequence = buffer.getLong(position + 2 * Integer.BYTES);
+            byte[] payload = new byte[length];
+            buffer.get(position + HEADER_SIZE, payload);
+            if (checksum(sequence, payload) != buffer.getInt(position + Integer.BYTES)) {
+                log.warn("Journal {} ends in a torn record at offset {}, replaying up to it", file.path, position);
+                break;
+            }
+            into.add(decode(sequence, payload));
+            file.lastSequence = sequence;
+            position += HEADER_SIZE + length;
+        }
+        file.position = position;
+    }
+
+    private void write() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + window.toNanos();
+                queue.drainTo(batch, maxBatch - batch.size());
+                while (batch.size() < maxBatch) {
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+        failQueued();
+    }
+
+    // NOTE: never written, so never applied - their submitters get an answer instead of waiting for one
+    private void failQueued() {
+        List<Pending> left = new ArrayList<>();
+        queue.drainTo(left);
+        for (Pending pending : left) {
+            unapplied.remove(pending.entry.posting().referenceNumber(), pending.entry);
+            pending.future.completeExceptionally(
+                    new PostingUnavailableException("Posting journal is shutting down, try again later"));
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        List<Entry> entries = new ArrayList<>(batch.size());
+        RuntimeException failure = null;
+        try {
+            int start = current != null ? current.position : 0;
+            for (Pending pending : batch) {
+                int size = HEADER_SIZE + pending.payload.length;
+                if (current == null || current.position + size > fileSize) {
+                    if (current != null) {
+                        force(current, start);
+                    }
+                    current = map(directory.resolve(String.format("journal-%019d%s", nextSequence, SUFFIX)),
+                            FileChannel.MapMode.READ_WRITE, fileSize);
+                    files.add(current);
+                    start = 0;
+                }
+                long sequence = nextSequence++;
+                int position = current.position;
+                current.buffer.putInt(position, pending.payload.length);
+                current.buffer.putInt(position + Integer.BYTES, checksum(sequence, pending.payload));
+                current.buffer.putLong(position + 2 * Integer.BYTES, sequence);
+                current.buffer.put(position + HEADER_SIZE, pending.payload);
+                current.position += size;
+                current.lastSequence = sequence;
+                Entry entry = new Entry(sequence, pending.entry.id(), pending.entry.acceptedAt(), pending.entry.posting());
+                unapplied.replace(entry.posting().referenceNumber(), pending.entry, entry);
+                entries.add(entry);
+            }
+            force(current, start);
+        } catch (IOException | RuntimeException e) {
+            log.error("Posting journal write failed: {}", e.getMessage());
+            failure = e instanceof RuntimeException runtime ? runtime : new UncheckedIOException((IOException) e);
+        }
+
+        // NOTE: a failed flush may still have reached the disk and would be replayed after a restart, so what
+        // was written is applied either way - the submitter retries with the same reference number and gets the
+        // outcome from there
+        if (!entries.isEmpty()) {
+            durable.add(entries);
+        }
+        appended.add(entries.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            if (failure == null) {
+                pending.future.complete(pending.entry.acknowledgement());
+            } else {
+                if (i >= entries.size()) {
+                    unapplied.remove(pending.entry.posting().referenceNumber(), pending.entry);
+                }
+                pending.future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void force(JournalFile file, int start) {
+        if (file.position > start) {
+            file.buffer.force(start, file.position - start);
+            forced.increment();
+        }
+    }
+
+    private void applyLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Entry> batch = new ArrayList<>(durable.take());
+                List<Entry> more;
+                while (batch.size() < maxBatch && (more = durable.poll()) != null) {
+                    batch.addAll(more);
+                }
+                apply(batch);
+                applied(batch);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void apply(List<Entry> batch) throws InterruptedException {
+        try {
+            applier.apply(batch);
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Applying {} journaled postings failed, retrying one by one: {}", batch.size(), e.getMessage());
+        }
+        // NOTE: acknowledged postings can't be dropped - one that keeps failing holds up the rest until it goes
+        // through, and stays in the journal if the node stops first
+        for (Entry entry : batch) {
+            while (true) {
+                try {
+                    applier.apply(List.of(entry));
+                    break;
+                } catch (RuntimeException e) {
+                    log.error("Journaled posting {} could not be applied, retrying: {}",
+                            entry.posting().referenceNumber(), e.getMessage());
+                    Thread.sleep(RETRY_DELAY.toMillis());
+                }
+            }
+        }
+    }
+
+    private void applied(List<Entry> batch) {
+        long through = 0;
+        for (Entry entry : batch) {
+            unapplied.remove(entry.posting().referenceNumber(), entry);
+            through = Math.max(through, entry.sequence());
+        }
+        // NOTE: the newest file is never deleted, the writer may still be appending to it
+        JournalFile oldest;
+        while (files.size() > 1 && (oldest = files.peekFirst()) != null && oldest.lastSequence <= through) {
+            files.pollFirst();
+            try {
+                Files.deleteIfExists(oldest.path);
+            } catch (IOException e) {
+                log.warn("Could not delete journal file {}: {}", oldest.path, e.getMessage());
+            }
+        }
+    }
+
+    private static JournalFile map(Path path, FileChannel.MapMode mode, int size) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[] {StandardOpenOption.READ}
+                : new StandardOpenOption[] {StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            // NOTE: mapping past the end grows the file; the unwritten tail reads back as zeros
+            MappedByteBuffer buffer = channel.map(mode, 0, mode == FileChannel.MapMode.READ_ONLY ? channel.size() : size);
+            if (mode == FileChannel.MapMode.READ_WRITE) {
+                // NOTE: msync only covers the mapped pages - without the file's size and its directory entry on
+                // disk, a crash can lose the whole file and every posting acknowledged from it
+                channel.force(true);
+                try (FileChannel parent = FileChannel.open(path.getParent(), StandardOpenOption.READ)) {
+                    parent.force(true);
+                }
+            }
+            return new JournalFile(path, buffer);
+        }
+    }
+
+    private static int checksum(long sequence, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, sequence));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(Entry entry) {
+        TransactionCreateDTO dto = entry.posting();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(entry.id().getMostSignificantBits());
+            out.writeLong(entry.id().getLeastSignificantBits());
+            out.writeLong(entry.acceptedAt().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(entry.acceptedAt().getNano());
+            out.writeUTF(dto.referenceNumber());
+            writeAccount(out, dto.debitAccountId());
+            writeAccount(out, dto.creditAccountId());
+            byte[] unscaled = dto.amount().unscaledValue().toByteArray();
+            out.writeShort(dto.amount().scale());
+            out.writeByte(unscaled.length);
+            out.write(unscaled);
+            out.writeUTF(dto.currency().name());
+            out.writeUTF(dto.type().name());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Entry decode(long sequence, byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            UUID id = new UUID(in.readLong(), in.readLong());
+            LocalDateTime acceptedAt = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            String referenceNumber = in.readUTF();
+            UUID debit = readAccount(in);
+            UUID credit = readAccount(in);
+            int scale = in.readShort();
+            byte[] unscaled = new byte[in.readUnsignedByte()];
+            in.readFully(unscaled);
+            return new Entry(sequence, id, acceptedAt, new TransactionCreateDTO(referenceNumber, debit, credit,
+                    new BigDecimal(new BigInteger(unscaled), scale),
+                    CurrencyCode.valueOf(in.readUTF()), TransactionType.valueOf(in.readUTF())));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeAccount(DataOutputStream out, UUID accountId) throws IOException {
+        out.writeBoolean(accountId != null);
+        if (accountId != null) {
+            out.writeLong(accountId.getMostSignificantBits());
+            out.writeLong(accountId.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readAccount(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+}
@@ -0,0 +1,66 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.exception.AccountNotFoundException;
+import com.kostas.banking.exception.DuplicateReferenceNumberException;
+import com.kostas.banking.exception.InsufficientFundsException;
+import com.kostas.banking.exception.TransactionNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Business counters for the posting engine: {@code banking.postings} by transaction type and what happened to the
+ * money (posted, held, settled, released), {@code banking.postings.rejected} by type and the reason a posting
+ * was turned down.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostingMetrics {
+
+    public static final String POSTED = "posted";
+    public static final String HELD = "held";
+    public static final String SETTLED = "settled";
+    public static final String RELEASED = "released";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<CounterKey, Counter> counters = new ConcurrentHashMap<>();
+
+    public void applied(TransactionType type, String result) {
+        counter(new CounterKey("banking.postings", "result", String.valueOf(type), result)).increment();
+    }
+
+    public void rejected(TransactionType type, RuntimeException e) {
+        counter(new CounterKey("banking.postings.rejected", "reason", String.valueOf(type), reason(e))).increment();
+    }
+
+    private static String reason(RuntimeException e) {
+        if (e instanceof InsufficientFundsException) {
+            return "insufficient_funds";
+        }
+        if (e instanceof DuplicateReferenceNumberException) {
+            return "duplicate_reference";
+        }
+        if (e instanceof AccountNotFoundException || e instanceof TransactionNotFoundException) {
+            return "not_found";
+        }
+        if (e instanceof IllegalArgumentException) {
+            return "invalid";
+        }
+        return "error";
+    }
+
+    private Counter counter(CounterKey key) {
+        Counter counter = counters.get(key);
+        return counter != null ? counter : counters.computeIfAbsent(key, k -> Counter.builder(k.name())
+                .tag("type", k.type())
+                .tag(k.tag(), k.value())
+                .register(meterRegistry));
+    }
+
+    private record CounterKey(String name, String tag, String type, String value) {}
+}
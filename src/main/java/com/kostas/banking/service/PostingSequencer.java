@@ -0,0 +1,148 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.exception.PostingQueueFullException;
+import com.kostas.banking.exception.PostingUnavailableException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Funnels postings through a fixed set of single-writer lanes so hot accounts are updated in batches
+ * instead of once per request.
+ * <p>
+ * A posting goes to the lane owning its debit account (or its credit account for deposits), so all
+ * postings that draw on one account are applied by one thread in arrival order. Each lane drains up to
+ * {@code max-batch} queued postings and hands them to {@link PostingEngine#postBatch} as one DB
+ * transaction. The account locks taken there still guard the other side of a transfer, which may
+ * belong to a different lane.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "banking.posting.sequencer.enabled", havingValue = "true")
+public class PostingSequencer {
+
+    private final PostingEngine postingEngine;
+    private final int maxBatch;
+    private final List<Lane> lanes = new ArrayList<>();
+    private volatile boolean stopped;
+
+    public PostingSequencer(
+            PostingEngine postingEngine,
+            @Value("${banking.posting.sequencer.lanes:4}") int laneCount,
+            @Value("${banking.posting.sequencer.queue-capacity:4096}") int queueCapacity,
+            @Value("${banking.posting.sequencer.max-batch:256}") int maxBatch) {
+        this.postingEngine = postingEngine;
+        this.maxBatch = maxBatch;
+        for (int i = 0; i < laneCount; i++) {
+            Lane lane = new Lane(queueCapacity);
+            Thread thread = new Thread(lane, "posting-lane-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            lane.thread = thread;
+            lanes.add(lane);
+        }
+    }
+
+    public CompletableFuture<TransactionDTO> submit(TransactionCreateDTO dto) {
+        UUID key = dto.debitAccountId() != null ? dto.debitAccountId() : dto.creditAccountId();
+        Lane lane = lanes.get(key == null ? 0 : Math.floorMod(key.hashCode(), lanes.size()));
+
+        Pending pending = new Pending(dto, new CompletableFuture<>());
+        if (!lane.queue.offer(pending)) {
+            pending.future.completeExceptionally(new PostingQueueFullException());
+        } else if (stopped) {
+            // NOTE: the lane may have drained its queue for the last time before this was offered
+            lane.failQueued();
+        }
+        return pending.future;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+        for (Lane lane : lanes) {
+            lane.thread.interrupt();
+        }
+    }
+
+    private record Pending(TransactionCreateDTO dto, CompletableFuture<TransactionDTO> future) {}
+
+    private class Lane implements Runnable {
+        private final BlockingQueue<Pending> queue;
+        private Thread thread;
+
+        Lane(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            List<Pending> batch = new ArrayList<>(maxBatch);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                queue.drainTo(batch, maxBatch - 1);
+                apply(batch);
+                batch.clear();
+            }
+            failQueued();
+        }
+
+        // NOTE: nobody is left to post these - their submitters get an answer instead of waiting for one
+        void failQueued() {
+            List<Pending> left = new ArrayList<>();
+            queue.drainTo(left);
+            for (Pending pending : left) {
+                pending.future.completeExceptionally(
+                        new PostingUnavailableException("Posting is shutting down, try again later"));
+            }
+        }
+
+        private void apply(List<Pending> batch) {
+            List<TransactionCreateDTO> dtos = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                dtos.add(pending.dto);
+            }
+
+            List<PostingEngine.Result> results;
+            try {
+                results = postingEngine.postBatch(dtos);
+            } catch (RuntimeException e) {
+                // One bad row rolled back the whole batch - retry one by one so only the culprit fails
+                log.warn("Posting batch of {} failed, retrying individually: {}", batch.size(), e.getMessage());
+                for (Pending pending : batch) {
+                    try {
+                        pending.future.complete(postingEngine.post(pending.dto));
+                    } catch (RuntimeException single) {
+                        pending.future.completeExceptionally(single);
+                    }
+                }
+                return;
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                PostingEngine.Result result = results.get(i);
+                if (result.error() != null) {
+                    batch.get(i).future.completeExceptionally(result.error());
+                } else {
+                    batch.get(i).future.complete(result.transaction());
+                }
+            }
+        }
+    }
+}
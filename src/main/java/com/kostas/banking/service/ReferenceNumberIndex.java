@@ -0,0 +1,99 @@
+package com.kostas.banking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of the reference numbers this node has posted or seen posted. {@link #mightContain} returning
+ * false means the reference number was never added here, so a submission can go straight to the engine
+ * without looking it up first.
+ * <p>
+ * It's only a shortcut: a reference number posted by another node, or before a restart, isn't in here, and the
+ * unique constraint on {@code transactions.reference_number} is what catches those. Sized by
+ * {@code banking.idempotency.expected-references} and {@code banking.idempotency.false-positive-rate}; once
+ * more than the expected number were added the filter starts over rather than let its false positive rate
+ * (and with it the share of submissions that pay for a lookup) creep up.
+ */
+@Component
+public class ReferenceNumberIndex {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long capacity;
+    private final AtomicLong added = new AtomicLong();
+
+    public ReferenceNumberIndex(
+            @Value("${banking.idempotency.expected-references:1000000}") long capacity,
+            @Value("${banking.idempotency.false-positive-rate:0.01}") double falsePositiveRate) {
+        long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.words = new AtomicLongArray((int) Math.max(1, (bits + 63) / 64));
+        this.bitCount = words.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        this.capacity = capacity;
+    }
+
+    public boolean mightContain(String referenceNumber) {
+        long hash = hash(referenceNumber);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void add(String referenceNumber) {
+        if (added.incrementAndGet() > capacity) {
+            clear();
+        }
+        long hash = hash(referenceNumber);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            long current;
+            while (((current = words.get(word)) & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                // lost a race with another add on the same word, retry
+            }
+        }
+    }
+
+    // NOTE: an add racing with this can be lost - the reference number then just goes the constraint route
+    private synchronized void clear() {
+        if (added.get() <= capacity) {
+            return;
+        }
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, 0);
+        }
+        added.set(1);
+    }
+
+    private long index(int combined) {
+        return Math.floorMod(combined, bitCount);
+    }
+
+    // FNV-1a over the chars, then the murmur3 finalizer to spread it over all 64 bits
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
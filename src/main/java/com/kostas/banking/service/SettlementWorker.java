@@ -0,0 +1,83 @@
+package com.kostas.banking.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settles holds in the background: each thread repeatedly claims up to {@code batch-size} PENDING
+ * transactions older than {@code delay} through {@link PostingEngine#settlePending} and moves their money.
+ * A thread goes straight on to the next batch while it keeps getting full ones and sleeps for
+ * {@code idle-wait} once the backlog is drained.
+ * <p>
+ * Claims skip rows that are already locked, so several threads and several nodes can run this against
+ * one database without settling a transaction twice - nothing needs to be partitioned or elected.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "banking.settlement.enabled", havingValue = "true")
+public class SettlementWorker {
+
+    private final PostingEngine postingEngine;
+    private final int batchSize;
+    private final Duration delay;
+    private final Duration idleWait;
+    private final List<Thread> threads = new ArrayList<>();
+
+    public SettlementWorker(
+            PostingEngine postingEngine,
+            @Value("${banking.settlement.threads:1}") int threadCount,
+            @Value("${banking.settlement.batch-size:500}") int batchSize,
+            @Value("${banking.settlement.delay:PT0S}") Duration delay,
+            @Value("${banking.settlement.idle-wait:PT1S}") Duration idleWait) {
+        this.postingEngine = postingEngine;
+        this.batchSize = batchSize;
+        this.delay = delay;
+        this.idleWait = idleWait;
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(this::run, "settlement-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                PostingEngine.Settlement settlement = postingEngine.settlePending(LocalDateTime.now().minus(delay), batchSize);
+                if (settlement.failed() > 0) {
+                    log.warn("Settled {} held transactions, {} could not be settled and were released",
+                            settlement.settled(), settlement.failed());
+                }
+                if (settlement.claimed() < batchSize) {
+                    Thread.sleep(idleWait.toMillis());
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // NOTE: the batch was rolled back and its holds are PENDING again, the next pass retries them
+                log.warn("Settlement batch failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(idleWait.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.BalanceDTO;
+import com.kostas.banking.dto.DailySummaryDTO;
+import com.kostas.banking.dto.StatementDTO;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.exception.AccountNotFoundException;
+import com.kostas.banking.model.DailyAccountSummary;
+import com.kostas.banking.repository.AccountRepository;
+import com.kostas.banking.repository.BalanceRepository;
+import com.kostas.banking.repository.DailyAccountSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Statements off the {@link DailyAccountSummary} rollups: one row per day with postings in the range, however
+ * many transactions those days had. Today is the one partial day - its row is already current as of the
+ * last posting, so nothing is read from the transactions table.
+ */
+@Service
+@RequiredArgsConstructor
+public class StatementService {
+
+    private final DailyAccountSummaryRepository summaryRepository;
+    private final AccountRepository accountRepository;
+    private final BalanceRepository balanceRepository;
+
+    @Transactional(readOnly = true)
+    public StatementDTO getStatement(UUID accountId, CurrencyCode currency, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Statement range starts after it ends.");
+        }
+        List<DailyAccountSummary> rows = summaryRepository.findRange(accountId, currency, from, to);
+
+        BigDecimal debits = BigDecimal.ZERO;
+        BigDecimal credits = BigDecimal.ZERO;
+        long count = 0;
+        for (DailyAccountSummary row : rows) {
+            debits = debits.add(row.getDebits());
+            credits = credits.add(row.getCredits());
+            count += row.getCount();
+        }
+        BigDecimal opening = rows.isEmpty() ? quietOpening(accountId, currency, from, to) : rows.get(0).getOpening();
+        BigDecimal closing = rows.isEmpty() ? opening : rows.get(rows.size() - 1).getClosing();
+        return new StatementDTO(accountId, currency, from, to, opening, closing, debits, credits, count,
+                rows.stream().map(DailySummaryDTO::fromEntity).toList());
+    }
+
+    // NOTE: nothing posted in the range - the balance is whatever the nearest day around it says, or the
+    // current one when the account never had a posting in this currency
+    private BigDecimal quietOpening(UUID accountId, CurrencyCode currency, LocalDate from, LocalDate to) {
+        return summaryRepository.findFirstByAccountIdAndCurrencyAndDayLessThanOrderByDayDesc(accountId, currency, from)
+                .map(DailyAccountSummary::getClosing)
+                .or(() -> summaryRepository.findFirstByAccountIdAndCurrencyAndDayGreaterThanOrderByDayAsc(accountId, currency, to)
+                        .map(DailyAccountSummary::getOpening))
+                .orElseGet(() -> balanceRepository.findDtoByAccountIdAndCurrency(accountId, currency)
+                        .map(BalanceDTO::amount)
+                        .orElseGet(() -> {
+                            if (!accountRepository.existsById(accountId)) {
+                                throw new AccountNotFoundException(accountId);
+                            }
+                            return BigDecimal.ZERO;
+                        }));
+    }
+}
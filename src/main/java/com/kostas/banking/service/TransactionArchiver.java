@@ -0,0 +1,140 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.archive.TransactionArchive;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.model.Transaction;
+import com.kostas.banking.repository.TransactionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves settled transactions (COMPLETED, FAILED or CANCELLED) older than {@code banking.archive.retention} out
+ * of the {@code transactions} table into {@link TransactionArchive} segments, keeping the table - and its
+ * indexes - the size of the hot window. Reads by reference number and account history fall through to the
+ * archive, so nothing disappears from the API; archived transactions can't be updated or deleted any more.
+ * <p>
+ * A pass claims up to {@code segment-size} rows with {@code FOR UPDATE SKIP LOCKED}, writes them as one
+ * segment and deletes them, all in one DB transaction: the segment is on disk before the delete commits, and
+ * is discarded again if it doesn't. The rows stay locked throughout, so no update slips in between.
+ * <p>
+ * Runs every {@code interval} with {@code banking.archive.enabled=true}.
+ */
+@Slf4j
+@Service
+public class TransactionArchiver {
+
+    // NOTE: keeps the IN lists well under the bind parameter limits
+    private static final int CHUNK_SIZE = 1000;
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchive archive;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final Duration interval;
+    private final int segmentSize;
+    private final Thread thread;
+
+    public TransactionArchiver(
+            TransactionRepository transactionRepository,
+            TransactionArchive archive,
+            TransactionTemplate transactionTemplate,
+            @Value("${banking.archive.enabled:false}") boolean enabled,
+            @Value("${banking.archive.retention:P90D}") Duration retention,
+            @Value("${banking.archive.interval:PT1H}") Duration interval,
+            @Value("${banking.archive.segment-size:10000}") int segmentSize) {
+        this.transactionRepository = transactionRepository;
+        this.archive = archive;
+        this.transactionTemplate = transactionTemplate;
+        this.retention = retention;
+        this.interval = interval;
+        this.segmentSize = segmentSize;
+        this.thread = enabled ? new Thread(this::run, "transaction-archiver") : null;
+        if (thread != null) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Archives every settled transaction created before {@code createdBefore} and returns how many there were.
+     */
+    public int archive(LocalDateTime createdBefore) {
+        int archived = 0;
+        while (true) {
+            int moved = transactionTemplate.execute(status -> archivePass(createdBefore));
+            archived += moved;
+            if (moved < segmentSize) {
+                return archived;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private int archivePass(LocalDateTime createdBefore) {
+        List<Transaction> claimed = transactionRepository.claimArchivable(createdBefore, segmentSize);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        // NOTE: the DTOs are read separately, with the account numbers joined in instead of loaded per account
+        List<UUID> ids = claimed.stream().map(Transaction::getId).toList();
+        List<TransactionDTO> rows = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+            rows.addAll(transactionRepository.findDtosByIdIn(ids.subList(i, Math.min(ids.size(), i + CHUNK_SIZE))));
+        }
+
+        Path segment = archive.write(rows);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    archive.discard(segment);
+                }
+            }
+        });
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+            transactionRepository.deleteAllByIdInBatch(ids.subList(i, Math.min(ids.size(), i + CHUNK_SIZE)));
+        }
+        return ids.size();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                long start = System.nanoTime();
+                int archived = archive(LocalDateTime.now().minus(retention));
+                if (archived > 0) {
+                    log.info("Archived {} transactions in {} ms", archived, (System.nanoTime() - start) / 1_000_000);
+                }
+                Thread.sleep(interval.toMillis());
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // NOTE: the pass was rolled back and its segment discarded, the rows are picked up next time
+                log.warn("Transaction archiving failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(interval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+}
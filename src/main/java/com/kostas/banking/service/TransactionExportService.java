@@ -0,0 +1,94 @@
+package com.kostas.banking.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.dto.TransactionFilter;
+import com.kostas.banking.repository.TransactionRepository;
+import com.kostas.banking.repository.TransactionSpecifications;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Full transaction dumps for reconciliation, written row by row as they come off a server-side cursor.
+ * <p>
+ * Rows are read as {@link TransactionDTO} constructor projections, so nothing is added to the persistence
+ * context and there is nothing to detach or clear - heap use stays the same whether the export has
+ * a thousand rows or a hundred million.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionExportService {
+
+    // NOTE: Postgres only streams with a fetch size set and autocommit off (i.e. inside a transaction)
+    private static final int FETCH_SIZE = 1000;
+
+    public enum Format { NDJSON, CSV }
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public void export(TransactionFilter filter, Format format, OutputStream out) throws IOException {
+        try (Stream<TransactionDTO> rows = transactionRepository.streamDtos(
+                TransactionSpecifications.matches(filter), TransactionSpecifications.OLDEST_FIRST, FETCH_SIZE)) {
+            if (format == Format.CSV) {
+                writeCsv(rows.iterator(), out);
+            } else {
+                writeNdjson(rows.iterator(), out);
+            }
+        }
+    }
+
+    private void writeNdjson(Iterator<TransactionDTO> rows, OutputStream out) throws IOException {
+        // NOTE: the response stream belongs to the servlet container, so the generator must not close it
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null);
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        while (rows.hasNext()) {
+            writer.writeValue(generator, rows.next());
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    private void writeCsv(Iterator<TransactionDTO> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("id,referenceNumber,debitAccountId,debitAccountNumber,creditAccountId,creditAccountNumber,"
+                + "amount,currency,type,status,createdAt,postedAt\n");
+        while (rows.hasNext()) {
+            TransactionDTO row = rows.next();
+            writer.write(csv(row.id()) + ',' + csv(row.referenceNumber()) + ','
+                    + csv(row.debitAccountId()) + ',' + csv(row.debitAccountNumber()) + ','
+                    + csv(row.creditAccountId()) + ',' + csv(row.creditAccountNumber()) + ','
+                    + csv(row.amount() != null ? row.amount().toPlainString() : null) + ','
+                    + csv(row.currency()) + ',' + csv(row.type()) + ',' + csv(row.status()) + ','
+                    + csv(row.createdAt()) + ',' + csv(row.postedAt()) + '\n');
+        }
+        writer.flush();
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
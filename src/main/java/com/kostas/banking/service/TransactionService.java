@@ -1,22 +1,54 @@
 package com.kostas.banking.service;
 
+import com.kostas.banking.archive.TransactionArchive;
+import com.kostas.banking.config.CacheConfig;
+import com.kostas.banking.dto.KeysetCursor;
+import com.kostas.banking.dto.PageDTO;
+import com.kostas.banking.dto.TransactionBatchDTO;
+import com.kostas.banking.dto.TransactionBatchItemDTO;
 import com.kostas.banking.dto.TransactionCreateDTO;
 import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.dto.TransactionFilter;
 import com.kostas.banking.dto.TransactionUpdateDTO;
 import com.kostas.banking.enums.TransactionStatus;
 import com.kostas.banking.exception.AccountNotFoundException;
+import com.kostas.banking.exception.DuplicateReferenceNumberException;
+import com.kostas.banking.exception.ErrorResponse;
+import com.kostas.banking.exception.InsufficientFundsException;
+import com.kostas.banking.exception.PostingUnavailableException;
 import com.kostas.banking.exception.TransactionNotFoundException;
-import com.kostas.banking.model.Account;
 import com.kostas.banking.model.Transaction;
 import com.kostas.banking.repository.AccountRepository;
 import com.kostas.banking.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static com.kostas.banking.repository.TransactionSpecifications.NEWEST_FIRST;
+import static com.kostas.banking.repository.TransactionSpecifications.after;
+import static com.kostas.banking.repository.TransactionSpecifications.creditAccount;
+import static com.kostas.banking.repository.TransactionSpecifications.debitAccount;
+import static com.kostas.banking.repository.TransactionSpecifications.matches;
+import static com.kostas.banking.repository.TransactionSpecifications.status;
 
 @Service
 @RequiredArgsConstructor
@@ -24,131 +56,362 @@ public class TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final AccountRepository accountRepository;
-    private final BalanceService balanceService;
+    private final PostingEngine postingEngine;
+    private final Optional<PostingSequencer> postingSequencer;
+    private final Optional<PostingJournal> postingJournal;
+    private final ReferenceNumberIndex referenceNumbers;
+    private final CacheManager cacheManager;
+    private final Outbox outbox;
+    private final TransactionArchive archive;
+
+    @Value("${banking.posting.batch.chunk-size:1000}")
+    private int batchChunkSize;
+    @Value("${banking.posting.timeout:PT30S}")
+    private Duration postingTimeout;
 
     @Transactional(readOnly = true)
     public TransactionDTO getTransaction(UUID id) {
-        Transaction transaction = transactionRepository.findById(id)
+        return transactionRepository.findDtoById(id)
                 .orElseThrow(() -> new TransactionNotFoundException(id));
-        return TransactionDTO.fromEntity(transaction);
     }
 
     @Transactional(readOnly = true)
     public TransactionDTO getTransactionByReferenceNumber(String referenceNumber) {
-        return transactionRepository.findByReferenceNumber(referenceNumber)
-                .map(TransactionDTO::fromEntity)
+        return findByReferenceNumber(referenceNumber)
                 .orElseThrow(() -> new TransactionNotFoundException(referenceNumber));
     }
 
     @Transactional(readOnly = true)
-    public List<TransactionDTO> getAllTransactions() {
-        return transactionRepository.findAll().stream()
-                .map(TransactionDTO::fromEntity)
-                .toList();
+    public PageDTO<TransactionDTO> getAllTransactions(String cursor, int limit) {
+        int size = PageDTO.limit(limit);
+        List<TransactionDTO> rows = transactionRepository.findDtos(after(decodeCursor(cursor)), NEWEST_FIRST, size + 1);
+        return PageDTO.of(rows, size, Function.identity(), TransactionService::cursorOf);
     }
 
+    /**
+     * Both sides of one account's history, newest first. The debit and credit sides are read as two
+     * index range scans of at most {@code limit + 1} rows each and merged here, which keeps every page
+     * equally cheap instead of OR-ing the sides into one query the database can't walk in index order.
+     * Archived transactions are merged in the same way, from the archive's account index.
+     */
     @Transactional(readOnly = true)
-    public List<TransactionDTO> getTransactionsByDebitAccountId(UUID accountId) {
-        if (!accountRepository.existsById(accountId)) {
+    public PageDTO<TransactionDTO> getAccountHistory(UUID accountId, TransactionFilter filter, String cursor, int limit) {
+        int size = PageDTO.limit(limit);
+        KeysetCursor position = decodeCursor(cursor);
+
+        List<TransactionDTO> rows = new ArrayList<>(transactionRepository.findDtos(
+                Specification.allOf(debitAccount(accountId), matches(filter), after(position)), NEWEST_FIRST, size + 1));
+        rows.addAll(transactionRepository.findDtos(
+                Specification.allOf(creditAccount(accountId), matches(filter), after(position)), NEWEST_FIRST, size + 1));
+        addArchived(rows, archive.findByAccount(accountId, filter, position, size + 1));
+        // NOTE: only an empty result needs the existence check, which keeps the common path at two queries
+        if (rows.isEmpty() && !accountRepository.existsById(accountId)) {
             throw new AccountNotFoundException(accountId);
         }
-        return transactionRepository.findByDebitAccountId(accountId).stream()
-                .map(TransactionDTO::fromEntity)
-                .toList();
+        rows.sort(KeysetCursor.TRANSACTIONS_NEWEST_FIRST);
+
+        return PageDTO.of(rows, size, Function.identity(), TransactionService::cursorOf);
     }
 
     @Transactional(readOnly = true)
-    public List<TransactionDTO> getTransactionsByCreditAccountId(UUID accountId) {
-        if (!accountRepository.existsById(accountId)) {
+    public PageDTO<TransactionDTO> getTransactionsByDebitAccountId(UUID accountId, String cursor, int limit) {
+        return getAccountSide(accountId, debitAccount(accountId), TransactionDTO::debitAccountId, cursor, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public PageDTO<TransactionDTO> getTransactionsByCreditAccountId(UUID accountId, String cursor, int limit) {
+        return getAccountSide(accountId, creditAccount(accountId), TransactionDTO::creditAccountId, cursor, limit);
+    }
+
+    // NOTE: paged like the history, so neither the table nor the archive is read past the page
+    private PageDTO<TransactionDTO> getAccountSide(UUID accountId, Specification<Transaction> side,
+                                                   Function<TransactionDTO, UUID> sideOf, String cursor, int limit) {
+        int size = PageDTO.limit(limit);
+        KeysetCursor position = decodeCursor(cursor);
+
+        List<TransactionDTO> rows = new ArrayList<>(transactionRepository.findDtos(
+                Specification.allOf(side, after(position)), NEWEST_FIRST, size + 1));
+        addArchived(rows, archive.findByAccount(accountId, row -> accountId.equals(sideOf.apply(row)),
+                TransactionFilter.NONE, position, size + 1));
+        if (rows.isEmpty() && !accountRepository.existsById(accountId)) {
             throw new AccountNotFoundException(accountId);
         }
-        return transactionRepository.findByCreditAccountId(accountId).stream()
-                .map(TransactionDTO::fromEntity)
-                .toList();
+        rows.sort(KeysetCursor.TRANSACTIONS_NEWEST_FIRST);
+
+        return PageDTO.of(rows, size, Function.identity(), TransactionService::cursorOf);
     }
 
     @Transactional(readOnly = true)
-    public List<TransactionDTO> getTransactionsByStatus(TransactionStatus status) {
-        return transactionRepository.findByStatus(status).stream()
-                .map(TransactionDTO::fromEntity)
-                .toList();
+    public PageDTO<TransactionDTO> getTransactionsByStatus(TransactionStatus status, String cursor, int limit) {
+        int size = PageDTO.limit(limit);
+        List<TransactionDTO> rows = transactionRepository.findDtos(
+                Specification.allOf(status(status), after(decodeCursor(cursor))), NEWEST_FIRST, size + 1);
+        return PageDTO.of(rows, size, Function.identity(), TransactionService::cursorOf);
     }
 
-    @Transactional
+    /**
+     * The outcome of a submission: the transaction, and whether it was posted by an earlier submission with the
+     * same reference number.
+     */
+    public record Submission(TransactionDTO transaction, boolean replayed) {}
+
     public TransactionDTO createTransaction(TransactionCreateDTO dto) {
-        Account debitAccount = null;
-        Account creditAccount = null;
-
-        if (dto.debitAccountId() != null) {
-            debitAccount = accountRepository.findById(dto.debitAccountId())
-                    .orElseThrow(() -> new AccountNotFoundException(dto.debitAccountId()));
-            
-            // Check if account has sufficient balance for withdrawal/transfer
-            if (dto.type().equals(com.kostas.banking.enums.TransactionType.WITHDRAWAL) || 
-                dto.type().equals(com.kostas.banking.enums.TransactionType.TRANSFER)) {
-                
-                // Get current balance for the account in the transaction currency
-                List<com.kostas.banking.dto.BalanceDTO> accountBalances = balanceService.getBalancesByAccountId(dto.debitAccountId());
-                java.math.BigDecimal currentBalance = java.math.BigDecimal.ZERO;
-                
-                for (com.kostas.banking.dto.BalanceDTO balance : accountBalances) {
-                    if (balance.currency().equals(dto.currency())) {
-                        currentBalance = currentBalance.add(balance.amount());
-                    }
-                }
-                
-                // Check if sufficient funds are available
-                if (currentBalance.compareTo(dto.amount()) < 0) {
-                    throw new IllegalArgumentException("Insufficient funds. Available balance: " + currentBalance + " " + dto.currency() + ", Required: " + dto.amount() + " " + dto.currency());
-                }
+        return submitTransaction(dto).transaction();
+    }
+
+    /**
+     * Posts a transaction at most once per reference number. Resubmitting a reference number with the same
+     * accounts, amount, currency and type returns the transaction the first submission posted; with anything
+     * else it's a {@link DuplicateReferenceNumberException}.
+     * <p>
+     * Reference numbers the {@link ReferenceNumberIndex} has never seen are posted without a lookup. The rest
+     * are answered from the recently posted cache, then the database and the archive. One the index doesn't
+     * know about (posted by another node, or before a restart) fails the insert on the unique constraint, or
+     * the engine's archive check, and is looked up then. With the {@link PostingJournal} every reference number
+     * is looked up first - the journal acknowledges before anything checks the constraint.
+     */
+    public Submission submitTransaction(TransactionCreateDTO dto) {
+        String referenceNumber = dto.referenceNumber();
+        if (referenceNumber != null && (postingJournal.isPresent() || referenceNumbers.mightContain(referenceNumber))) {
+            TransactionDTO existing = findPosted(referenceNumber);
+            if (existing != null) {
+                return replay(dto, existing);
+            }
+        }
+        try {
+            TransactionDTO posted = post(dto);
+            remember(posted);
+            return new Submission(posted, false);
+        } catch (DuplicateReferenceNumberException | DataIntegrityViolationException e) {
+            TransactionDTO existing = referenceNumber == null
+                    ? null
+                    : findByReferenceNumber(referenceNumber).orElse(null);
+            if (existing == null) {
+                throw e;
+            }
+            remember(existing);
+            return replay(dto, existing);
+        }
+    }
+
+    private TransactionDTO findPosted(String referenceNumber) {
+        Cache cache = cacheManager.getCache(CacheConfig.TRANSACTIONS_BY_REFERENCE);
+        TransactionDTO cached = cache != null ? cache.get(referenceNumber, TransactionDTO.class) : null;
+        return cached != null ? cached : findByReferenceNumber(referenceNumber).orElse(null);
+    }
+
+    private Optional<TransactionDTO> findByReferenceNumber(String referenceNumber) {
+        Optional<TransactionDTO> journaled = postingJournal.flatMap(journal -> journal.find(referenceNumber));
+        if (journaled.isPresent()) {
+            return journaled;
+        }
+        Optional<TransactionDTO> transaction = transactionRepository.findDtoByReferenceNumber(referenceNumber);
+        return transaction.isPresent() ? transaction : archive.findByReferenceNumber(referenceNumber);
+    }
+
+    // NOTE: a transaction being archived right now is in both places until the archiver commits
+    private static void addArchived(List<TransactionDTO> rows, List<TransactionDTO> archived) {
+        if (archived.isEmpty()) {
+            return;
+        }
+        Set<UUID> ids = new HashSet<>();
+        for (TransactionDTO row : rows) {
+            ids.add(row.id());
+        }
+        for (TransactionDTO row : archived) {
+            if (!ids.contains(row.id())) {
+                rows.add(row);
+            }
+        }
+    }
+
+    private void remember(TransactionDTO transaction) {
+        referenceNumbers.add(transaction.referenceNumber());
+        // NOTE: a journaled posting is PENDING until it's applied, the cache would keep answering PENDING
+        if (transaction.status() == TransactionStatus.PENDING) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(CacheConfig.TRANSACTIONS_BY_REFERENCE);
+        if (cache != null) {
+            cache.put(transaction.referenceNumber(), transaction);
+        }
+    }
+
+    private void forget(String referenceNumber) {
+        Cache cache = cacheManager.getCache(CacheConfig.TRANSACTIONS_BY_REFERENCE);
+        if (cache != null) {
+            cache.evict(referenceNumber);
+        }
+    }
+
+    private static Submission replay(TransactionCreateDTO dto, TransactionDTO existing) {
+        boolean same = Objects.equals(dto.debitAccountId(), existing.debitAccountId())
+                && Objects.equals(dto.creditAccountId(), existing.creditAccountId())
+                && dto.amount() != null && dto.amount().compareTo(existing.amount()) == 0
+                && dto.currency() == existing.currency()
+                && dto.type() == existing.type();
+        if (!same) {
+            throw new DuplicateReferenceNumberException(dto.referenceNumber());
+        }
+        return new Submission(existing, true);
+    }
+
+    // NOTE: not @Transactional - the engine (or the sequencer lane, or the journal's applier) opens the DB
+    // transaction, so no connection is held while waiting for a queued posting
+    private TransactionDTO post(TransactionCreateDTO dto) {
+        if (postingJournal.isEmpty() && postingSequencer.isEmpty()) {
+            return postingEngine.post(dto);
+        }
+        CompletableFuture<TransactionDTO> posted = postingJournal.isPresent()
+                ? postingJournal.get().append(dto)
+                : postingSequencer.get().submit(dto);
+        // NOTE: a request thread never waits longer than banking.posting.timeout, whatever the queue is stuck on
+        try {
+            return posted.get(postingTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new PostingUnavailableException("Posting " + dto.referenceNumber() + " was not confirmed within "
+                    + postingTimeout.toMillis() + " ms, retry with the same reference number for its outcome");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PostingUnavailableException("Interrupted while posting " + dto.referenceNumber());
         }
+    }
+
+    /**
+     * Authorizes a posting: the funds are checked and held on the debit account but not moved, and the
+     * transaction stays PENDING until it's updated to COMPLETED (settled) or FAILED/CANCELLED (released).
+     */
+    public TransactionDTO createHold(TransactionCreateDTO dto) {
+        TransactionDTO hold = postingEngine.hold(dto);
+        referenceNumbers.add(hold.referenceNumber());
+        return hold;
+    }
 
-        if (dto.creditAccountId() != null) {
-            creditAccount = accountRepository.findById(dto.creditAccountId())
-                    .orElseThrow(() -> new AccountNotFoundException(dto.creditAccountId()));
-            // For internal transfers, ensure credit account also belongs to the current user
-            // For external transfers, this check might be different or not apply
-            if (dto.type().equals(com.kostas.banking.enums.TransactionType.TRANSFER) && debitAccount != null && !creditAccount.getOwner().getId().equals(debitAccount.getOwner().getId())) {
-                throw new IllegalArgumentException("Cannot transfer to an account not owned by the same customer for internal transfers.");
+    /**
+     * Bulk ingestion. A batch of at most {@code banking.posting.batch.chunk-size} postings is applied as one
+     * {@link PostingEngine#postBatch} transaction: one account lock query, one balance query, one reference
+     * number check, then batched inserts and balance updates. Larger batches are rejected rather than split,
+     * so what a batch costs doesn't grow with its size - callers with more send several. The sequencer is
+     * skipped - a batch already is one, and the account locks keep it consistent with whatever the sequencer
+     * is posting.
+     */
+    public TransactionBatchDTO createTransactions(List<TransactionCreateDTO> dtos) {
+        if (dtos.size() > batchChunkSize) {
+            throw new IllegalArgumentException("A batch can hold at most " + batchChunkSize + " transactions.");
+        }
+
+        List<TransactionBatchItemDTO> items = new ArrayList<>(dtos.size());
+        int failed = 0;
+        List<PostingEngine.Result> results = postChunk(dtos);
+        for (int i = 0; i < dtos.size(); i++) {
+            PostingEngine.Result result = results.get(i);
+            String referenceNumber = dtos.get(i) != null ? dtos.get(i).referenceNumber() : null;
+            if (result.error() != null) {
+                failed++;
+            } else {
+                referenceNumbers.add(referenceNumber);
             }
+            items.add(new TransactionBatchItemDTO(i, referenceNumber, result.transaction(),
+                    result.error() != null ? errorOf(result.error()) : null));
         }
+        return new TransactionBatchDTO(items.size() - failed, failed, items);
+    }
 
-        Transaction transaction = new Transaction();
-        transaction.setId(UUID.randomUUID());
-        transaction.setReferenceNumber(dto.referenceNumber());
-        transaction.setDebitAccount(debitAccount);
-        transaction.setCreditAccount(creditAccount);
-        transaction.setAmount(dto.amount());
-        transaction.setCurrency(dto.currency());
-        transaction.setType(dto.type());
-        transaction.setStatus(TransactionStatus.PENDING);
+    private List<PostingEngine.Result> postChunk(List<TransactionCreateDTO> chunk) {
+        try {
+            return postingEngine.postBatch(chunk);
+        } catch (RuntimeException e) {
+            // A write failure (e.g. a reference number inserted concurrently) rolled back the whole chunk -
+            // retry one by one so only the culprit fails
+            List<PostingEngine.Result> results = new ArrayList<>(chunk.size());
+            for (TransactionCreateDTO dto : chunk) {
+                try {
+                    results.add(new PostingEngine.Result(postingEngine.post(dto), null));
+                } catch (RuntimeException single) {
+                    results.add(new PostingEngine.Result(null, single));
+                }
+            }
+            return results;
+        }
+    }
 
-        Transaction saved = transactionRepository.save(transaction);
-        return TransactionDTO.fromEntity(saved);
+    // NOTE: same statuses GlobalExceptionHandler gives these on the single-posting endpoint
+    private static ErrorResponse errorOf(RuntimeException e) {
+        if (e instanceof InsufficientFundsException) {
+            return new ErrorResponse(422, "Insufficient funds", e.getMessage());
+        }
+        if (e instanceof DuplicateReferenceNumberException || e instanceof DataIntegrityViolationException) {
+            return new ErrorResponse(409, "Duplicate reference number", e.getMessage());
+        }
+        if (e instanceof AccountNotFoundException) {
+            return new ErrorResponse(404, "Account not found", e.getMessage());
+        }
+        if (e instanceof IllegalArgumentException) {
+            return new ErrorResponse(400, "Invalid request", e.getMessage());
+        }
+        return new ErrorResponse(500, "Posting failed", e.getMessage());
     }
 
     @Transactional
     public TransactionDTO updateTransaction(UUID id, TransactionUpdateDTO dto) {
-        Transaction transaction = transactionRepository.findById(id)
+        // NOTE: locked before it is read - a row already in the persistence context isn't refreshed when the
+        // engine locks it, so two settles of the same hold would both still see it PENDING
+        Transaction transaction = transactionRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new TransactionNotFoundException(id));
+        forget(transaction.getReferenceNumber());
 
-        transaction.setStatus(dto.status());
-        if (dto.postedAt() != null) {
-            transaction.setPostedAt(dto.postedAt());
-        } else if (dto.status() == TransactionStatus.COMPLETED) {
-            transaction.setPostedAt(LocalDateTime.now());
+        // NOTE: leaving PENDING moves or frees held funds, so it goes through the engine
+        if (transaction.getStatus() == TransactionStatus.PENDING && dto.status() != TransactionStatus.PENDING) {
+            return dto.status() == TransactionStatus.COMPLETED
+                    ? postingEngine.settle(id)
+                    : postingEngine.release(id, dto.status());
+        }
+        if (transaction.getStatus() != TransactionStatus.PENDING && dto.status() == TransactionStatus.PENDING) {
+            throw new IllegalArgumentException("A transaction can't be put back to PENDING.");
         }
 
+        // NOTE: a settled transaction's balance effect (or lack of one) is final - completing a FAILED one
+        // would post nothing, failing a COMPLETED one would take nothing back. Repeating its state is a no-op
+        if (dto.status() != transaction.getStatus()
+                || (dto.postedAt() != null && !dto.postedAt().equals(transaction.getPostedAt()))) {
+            throw new IllegalArgumentException("Transaction " + transaction.getReferenceNumber()
+                    + " is already " + transaction.getStatus() + " and can't be changed.");
+        }
         return TransactionDTO.fromEntity(transaction);
     }
 
     @Transactional
     public void deleteTransaction(UUID id) {
-        if (!transactionRepository.existsById(id)) {
-            throw new TransactionNotFoundException(id);
+        Transaction transaction = transactionRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new TransactionNotFoundException(id));
+        // NOTE: deleting a posted transaction would leave its amount in both balances with nothing behind it
+        if (transaction.getStatus() == TransactionStatus.COMPLETED) {
+            throw new IllegalArgumentException("Transaction " + transaction.getReferenceNumber()
+                    + " is COMPLETED and can't be deleted.");
+        }
+        if (transaction.getStatus() == TransactionStatus.PENDING) {
+            postingEngine.release(id, TransactionStatus.CANCELLED);
         }
-        transactionRepository.deleteById(id);
+        outbox.transactionDeleted(transaction);
+        transactionRepository.delete(transaction);
+        forget(transaction.getReferenceNumber());
+    }
+
+    private static KeysetCursor cursorOf(TransactionDTO transaction) {
+        return new KeysetCursor(transaction.createdAt(), transaction.id());
     }
-}
 
+    // NOTE: transaction listings are keyed by (createdAt, id) - an id-only cursor is from some other listing
+    private static KeysetCursor decodeCursor(String cursor) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        if (position != null && position.createdAt() == null) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return position;
+    }
+}
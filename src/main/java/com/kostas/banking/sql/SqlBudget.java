@@ -0,0 +1,23 @@
+package com.kostas.banking.sql;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The most SQL statements one request to an endpoint may run. On a controller it covers every endpoint of
+ * that controller, on a handler method it overrides the controller's budget for that endpoint.
+ * <p>
+ * Budgets are meant to be tight: a read that maps N rows should still run a fixed number of statements,
+ * so a lazy association loaded per row blows through the budget on the first request with more than a
+ * few rows. See {@link SqlBudgetFilter} for what happens then.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface SqlBudget {
+
+    int value();
+}
@@ -0,0 +1,93 @@
+package com.kostas.banking.sql;
+
+import com.kostas.banking.exception.SqlBudgetExceededException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Counts the SQL statements each request runs and checks them against the handler's {@link SqlBudget}.
+ * A request over budget is logged at WARN with its query shapes, most repeated first; in {@link Mode#FAIL}
+ * (what the tests run with) it also throws {@link SqlBudgetExceededException} once the request is done, so
+ * a MockMvc test fails on the request that regressed.
+ * <p>
+ * The response has been written by then - the check is for finding N+1s, not for protecting the database.
+ * Handlers without a budget (actuator, static resources) are counted but never checked.
+ */
+@Slf4j
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    public enum Mode { OFF, LOG, FAIL }
+
+    private static final int NO_BUDGET = -1;
+    private static final int MAX_SHAPE_LENGTH = 300;
+
+    private final Mode mode;
+    private final Map<Method, Integer> budgets = new ConcurrentHashMap<>();
+
+    public SqlBudgetFilter(Mode mode) {
+        this.mode = mode;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return mode == Mode.OFF;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementCounter.Statements statements = SqlStatementCounter.open();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            statements.close();
+        }
+
+        if (!(request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler)) {
+            return;
+        }
+        int budget = budgets.computeIfAbsent(handler.getMethod(), method -> budget(handler));
+        if (budget == NO_BUDGET || statements.count() <= budget) {
+            return;
+        }
+
+        String message = String.format("%s %s ran %d SQL statements, budget is %d:%n%s",
+                request.getMethod(), request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE),
+                statements.count(), budget, format(statements.shapes()));
+        log.warn(message);
+        if (mode == Mode.FAIL) {
+            throw new SqlBudgetExceededException(message);
+        }
+    }
+
+    private static int budget(HandlerMethod handler) {
+        SqlBudget budget = AnnotatedElementUtils.findMergedAnnotation(handler.getMethod(), SqlBudget.class);
+        if (budget == null) {
+            budget = AnnotatedElementUtils.findMergedAnnotation(handler.getBeanType(), SqlBudget.class);
+        }
+        return budget == null ? NO_BUDGET : budget.value();
+    }
+
+    private static String format(Map<String, Integer> shapes) {
+        return shapes.entrySet().stream()
+                .map(entry -> String.format("  %4dx %s", entry.getValue(), abbreviate(entry.getKey())))
+                .collect(Collectors.joining(System.lineSeparator()));
+    }
+
+    private static String abbreviate(String shape) {
+        return shape.length() <= MAX_SHAPE_LENGTH ? shape : shape.substring(0, MAX_SHAPE_LENGTH) + "...";
+    }
+}
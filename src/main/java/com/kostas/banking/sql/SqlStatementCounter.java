@@ -0,0 +1,84 @@
+package com.kostas.banking.sql;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the statements Hibernate prepares on the current thread while a {@link Statements} scope is open,
+ * per distinct SQL string. Installed as the session factory's statement inspector by {@code JpaConfig};
+ * outside a scope it only returns the SQL.
+ * <p>
+ * Hibernate reuses the same SQL string for a given query, so counting by string is a hash lookup on an
+ * already computed hash - the strings are only normalized into shapes when a report is asked for.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<Statements> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        Statements statements = CURRENT.get();
+        if (statements != null) {
+            statements.count++;
+            statements.bySql.merge(sql, 1, Integer::sum);
+        }
+        return sql;
+    }
+
+    /**
+     * Starts counting on this thread; closing the scope restores whatever scope was open before.
+     */
+    public static Statements open() {
+        Statements statements = new Statements(CURRENT.get());
+        CURRENT.set(statements);
+        return statements;
+    }
+
+    public static final class Statements implements AutoCloseable {
+        private final Statements outer;
+        private final Map<String, Integer> bySql = new HashMap<>();
+        private int count;
+
+        private Statements(Statements outer) {
+            this.outer = outer;
+        }
+
+        public int count() {
+            return count;
+        }
+
+        /**
+         * Statement count per query shape - the SQL with whitespace collapsed and IN lists of any length
+         * folded into one - most frequent first. A shape that runs once per row is the N+1.
+         */
+        public Map<String, Integer> shapes() {
+            Map<String, Integer> shapes = new HashMap<>();
+            bySql.forEach((sql, times) -> shapes.merge(shape(sql), times, Integer::sum));
+            Map<String, Integer> sorted = new LinkedHashMap<>();
+            shapes.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+            return sorted;
+        }
+
+        @Override
+        public void close() {
+            if (outer != null) {
+                outer.count += count;
+                bySql.forEach((sql, times) -> outer.bySql.merge(sql, times, Integer::sum));
+                CURRENT.set(outer);
+            } else {
+                CURRENT.remove();
+            }
+        }
+
+        private static String shape(String sql) {
+            return sql.replaceAll("\\s+", " ")
+                    .replaceAll("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)", "(?...)")
+                    .trim();
+        }
+    }
+}
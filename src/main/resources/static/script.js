@@ -1,13 +1,18 @@
 // Global state
 let currentUser = null;
+let sessionToken = null;
 let accounts = [];
 let activeAccounts = [];
 let closedAccounts = [];
 let balances = [];
 let transactions = [];
+let transactionsThisMonth = 0;
+let eventSource = null;
+let renderPending = false;
 
 // API Configuration
 const API_BASE_URL = 'http://localhost:8080/api';
+const RECENT_TRANSACTIONS = 100;
 
 // API Helper Functions
 async function apiCall(endpoint, options = {}) {
@@ -15,6 +20,8 @@ async function apiCall(endpoint, options = {}) {
     const defaultOptions = {
         headers: {
             'Content-Type': 'application/json',
+            // Session token from login, saves the server a password check on every call
+            ...(sessionToken ? { 'Authorization': `Bearer ${sessionToken}` } : {}),
         },
     };
 
@@ -83,6 +90,8 @@ async function login(email, password) {
             })
         });
 
+        sessionToken = authData.token;
+
         // Get customer data
         const customerData = await apiCall(`/customers/${authData.customerId}`);
 
@@ -96,8 +105,9 @@ async function login(email, password) {
         // Update user name in header
         document.getElementById('user-name').textContent = `Welcome, ${currentUser.fullName}`;
 
-        // Load user data
+        // Load user data, then keep it current from the live event stream
         await loadUserData();
+        connectEvents();
 
         showMainApp();
         return true;
@@ -131,12 +141,15 @@ async function signup(userData) {
 }
 
 function logout() {
+    disconnectEvents();
     currentUser = null;
+    sessionToken = null;
     accounts = [];
     activeAccounts = [];
     closedAccounts = [];
     balances = [];
     transactions = [];
+    transactionsThisMonth = 0;
     showLogin();
 }
 
@@ -145,63 +158,104 @@ async function loadUserData() {
     if (!currentUser) return;
 
     try {
-        // Load accounts
-        accounts = await apiCall(`/accounts/customer/${currentUser.id}`);
-
-        // Separate active and closed accounts
-        activeAccounts = accounts.filter(account => account.status === 'ACTIVE');
-        closedAccounts = accounts.filter(account => account.status === 'CLOSED');
-
-        // Load balances for all accounts
-        balances = [];
-        for (const account of accounts) {
-            const accountBalances = await apiCall(`/balances/account/${account.id}`);
-            balances.push(...accountBalances);
-        }
+        // One call returns accounts, balances and the most recent transactions
+        const dashboard = await apiCall(`/customers/${currentUser.id}/dashboard?recent=${RECENT_TRANSACTIONS}`);
 
-        // Load transactions for all accounts
-        transactions = [];
-        for (const account of accounts) {
-            try {
-                // Try to load transactions by debit account
-                const debitTransactions = await apiCall(`/transactions/debitAccount/${account.id}`);
-                transactions.push(...debitTransactions);
-            } catch (error) {
-                console.warn(`Failed to load debit transactions for account ${account.id}:`, error);
-            }
+        accounts = dashboard.accounts;
+        balances = dashboard.balances;
+        transactions = dashboard.recentTransactions;
+        transactionsThisMonth = dashboard.transactionsThisMonth;
 
-            try {
-                // Try to load transactions by credit account
-                const creditTransactions = await apiCall(`/transactions/creditAccount/${account.id}`);
-                transactions.push(...creditTransactions);
-            } catch (error) {
-                console.warn(`Failed to load credit transactions for account ${account.id}:`, error);
-            }
-        }
-
-        // Remove duplicates (in case a transaction appears in both debit and credit)
-        const uniqueTransactions = [];
-        const seenIds = new Set();
-        for (const transaction of transactions) {
-            if (!seenIds.has(transaction.id)) {
-                seenIds.add(transaction.id);
-                uniqueTransactions.push(transaction);
-            }
-        }
-        transactions = uniqueTransactions;
-
-        // Update displays
-        updateDashboard();
-        updateAccountsSection();
-        updateClosedAccountsSection();
-        updateTransactionsSection();
-        updateTransferForm();
+        renderUserData();
     } catch (error) {
         console.error('Failed to load user data:', error);
         showModal('Error', 'Failed to load account data. Please try refreshing the page.');
     }
 }
 
+function renderUserData() {
+    renderPending = false;
+
+    // Separate active and closed accounts
+    activeAccounts = accounts.filter(account => account.status === 'ACTIVE');
+    closedAccounts = accounts.filter(account => account.status === 'CLOSED');
+
+    // Update displays
+    updateDashboard();
+    updateAccountsSection();
+    updateClosedAccountsSection();
+    updateTransactionsSection();
+    updateTransferForm();
+}
+
+// Live updates - the server pushes every change to this customer's accounts, balances and transactions,
+// each one applied to the loaded data instead of fetching the dashboard again
+function connectEvents() {
+    disconnectEvents();
+    // EventSource can't send the Authorization header, the token goes in the query string instead
+    const token = sessionToken ? `?access_token=${encodeURIComponent(sessionToken)}` : '';
+    eventSource = new EventSource(`${API_BASE_URL}/customers/${currentUser.id}/events${token}`);
+
+    eventSource.addEventListener('account', event => applyChange(accounts, JSON.parse(event.data)));
+    eventSource.addEventListener('balance', event => applyChange(balances, JSON.parse(event.data)));
+    eventSource.addEventListener('balance-deleted', event => {
+        const removed = JSON.parse(event.data);
+        balances = balances.filter(balance => balance.id !== removed.id);
+        scheduleRender();
+    });
+    eventSource.addEventListener('transaction', event => applyTransaction(JSON.parse(event.data)));
+    eventSource.addEventListener('transaction-deleted', event => {
+        const removed = JSON.parse(event.data);
+        transactions = transactions.filter(transaction => transaction.id !== removed.id);
+        scheduleRender();
+    });
+    // The events missed while disconnected are gone from the server, start over from the dashboard
+    eventSource.addEventListener('resync', () => loadUserData());
+}
+
+function disconnectEvents() {
+    if (eventSource) {
+        eventSource.close();
+        eventSource = null;
+    }
+}
+
+function isLive() {
+    return eventSource !== null && eventSource.readyState === EventSource.OPEN;
+}
+
+function applyChange(list, item) {
+    const index = list.findIndex(existing => existing.id === item.id);
+    if (index >= 0) {
+        list[index] = item;
+    } else {
+        list.push(item);
+    }
+    scheduleRender();
+}
+
+function applyTransaction(transaction) {
+    const isNew = !transactions.some(existing => existing.id === transaction.id);
+    applyChange(transactions, transaction);
+    if (!isNew) return;
+
+    const createdAt = new Date(transaction.createdAt);
+    const now = new Date();
+    if (createdAt.getFullYear() === now.getFullYear() && createdAt.getMonth() === now.getMonth()) {
+        transactionsThisMonth++;
+    }
+    // Keep only the most recent ones, like the dashboard does
+    transactions.sort((a, b) => new Date(b.createdAt) - new Date(a.createdAt));
+    transactions.length = Math.min(transactions.length, RECENT_TRANSACTIONS);
+}
+
+// A batch posting sends one event per transaction and balance - render once per frame, not once per event
+function scheduleRender() {
+    if (renderPending) return;
+    renderPending = true;
+    requestAnimationFrame(renderUserData);
+}
+
 // UI functions
 function showLogin() {
     document.getElementById('auth-container').classList.remove('hidden');
@@ -282,13 +336,8 @@ function updateDashboardStats() {
     document.getElementById('total-balance').textContent = formatCurrency(totalUSD);
     document.getElementById('account-count').textContent = activeAccounts.length;
 
-    // Calculate this month's transactions
-    const thisMonth = new Date();
-    thisMonth.setDate(1);
-    const thisMonthTransactions = transactions.filter(txn =>
-        new Date(txn.createdAt) >= thisMonth
-    );
-    document.getElementById('transaction-count').textContent = thisMonthTransactions.length;
+    // This month's transaction count comes from the server, transactions only holds the recent ones
+    document.getElementById('transaction-count').textContent = transactionsThisMonth;
 }
 
 function updateRecentActivity() {
@@ -452,8 +501,10 @@ async function closeAccount(accountId) {
             method: 'DELETE'
         });
 
-        // Reload user data to reflect changes
-        await loadUserData();
+        // The account change arrives as an event - only reload when the event stream is down
+        if (!isLive()) {
+            await loadUserData();
+        }
 
         hideModal();
         showModal('Account Closed', 'The account has been successfully closed.');
@@ -468,12 +519,16 @@ async function closeAccount(accountId) {
 async function restoreAccount(accountId) {
     try {
         // Restore the account via API
-        await apiCall(`/accounts/${accountId}/restore`, {
+        const restored = await apiCall(`/accounts/${accountId}/restore`, {
             method: 'PUT'
         });
 
-        // Reload user data to reflect changes
-        await loadUserData();
+        // Show it right away, the event for it is applied the same way
+        if (isLive()) {
+            applyChange(accounts, restored);
+        } else {
+            await loadUserData();
+        }
 
         hideModal();
         showModal('Account Restored', 'The account has been successfully restored and is now active.');
@@ -497,18 +552,8 @@ async function createAccount(accountData) {
             })
         });
 
-        // Create initial balance if deposit amount is provided
+        // Initial deposit - the server creates and credits the balance as part of posting the transaction
         if (accountData.initialDeposit && parseFloat(accountData.initialDeposit) > 0) {
-            const newBalance = await apiCall('/balances', {
-                method: 'POST',
-                body: JSON.stringify({
-                    accountId: newAccount.id,
-                    amount: parseFloat(accountData.initialDeposit),
-                    currency: accountData.depositCurrency
-                })
-            });
-
-            // Create a deposit transaction
             const depositTransaction = await apiCall('/transactions', {
                 method: 'POST',
                 body: JSON.stringify({
@@ -523,8 +568,12 @@ async function createAccount(accountData) {
             });
         }
 
-        // Reload user data
-        await loadUserData();
+        // Show it right away - its balance follows as an event
+        if (isLive()) {
+            applyChange(accounts, newAccount);
+        } else {
+            await loadUserData();
+        }
 
         return newAccount;
     } catch (error) {
@@ -779,66 +828,19 @@ async function processTransfer(formData) {
             transactionData.description = formData.description;
         }
 
+        // The server debits/credits the balances atomically with recording the transaction
         const newTransaction = await apiCall('/transactions', {
             method: 'POST',
             body: JSON.stringify(transactionData)
         });
 
-        // Update balances for internal transfers
-        if (transferType === 'internal') {
-            // Debit from source account
-            const fromAccountBalances = balances.filter(b => b.accountId === formData.fromAccount && b.currency === formData.currency);
-            if (fromAccountBalances.length > 0) {
-                const fromBalance = fromAccountBalances[0];
-                await apiCall(`/balances/${fromBalance.id}`, {
-                    method: 'PUT',
-                    body: JSON.stringify({
-                        ...fromBalance,
-                        amount: parseFloat(fromBalance.amount) - parseFloat(formData.amount)
-                    })
-                });
-            }
-
-            // Credit to destination account
-            const toAccountBalances = balances.filter(b => b.accountId === formData.toAccount && b.currency === formData.currency);
-            if (toAccountBalances.length > 0) {
-                const toBalance = toAccountBalances[0];
-                await apiCall(`/balances/${toBalance.id}`, {
-                    method: 'PUT',
-                    body: JSON.stringify({
-                        ...toBalance,
-                        amount: parseFloat(toBalance.amount) + parseFloat(formData.amount)
-                    })
-                });
-            } else {
-                // Create new balance if it doesn't exist
-                await apiCall('/balances', {
-                    method: 'POST',
-                    body: JSON.stringify({
-                        accountId: formData.toAccount,
-                        amount: parseFloat(formData.amount),
-                        currency: formData.currency
-                    })
-                });
-            }
+        // Show it right away - the balance changes follow as events
+        if (isLive()) {
+            applyTransaction(newTransaction);
         } else {
-            // For external transfers, only debit from source account
-            const fromAccountBalances = balances.filter(b => b.accountId === formData.fromAccount && b.currency === formData.currency);
-            if (fromAccountBalances.length > 0) {
-                const fromBalance = fromAccountBalances[0];
-                await apiCall(`/balances/${fromBalance.id}`, {
-                    method: 'PUT',
-                    body: JSON.stringify({
-                        ...fromBalance,
-                        amount: parseFloat(fromBalance.amount) - parseFloat(formData.amount)
-                    })
-                });
-            }
+            await loadUserData();
         }
 
-        // Reload user data to reflect changes
-        await loadUserData();
-
         let transferMessage = '';
         if (transferType === 'internal') {
             const toAccount = accounts.find(acc => acc.id === creditAccountId);
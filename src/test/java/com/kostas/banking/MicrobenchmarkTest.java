@@ -0,0 +1,96 @@
+package com.kostas.banking;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the JMH benchmarks ({@code *Benchmark} classes next to the code they measure) and compares the scores
+ * with {@code src/test/resources/jmh-baseline.json}:
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=MicrobenchmarkTest [-Djmh.include=Posting] [-Djmh.threshold=0.25]
+ * mvn test -Pbenchmark -Dtest=MicrobenchmarkTest -Djmh.update-baseline=true
+ * </pre>
+ * A benchmark more than {@code jmh.threshold} slower than its baseline fails the run. Results land in
+ * {@code target/jmh-result.json}. Scores only compare on the same machine, so the baseline is re-recorded
+ * wherever the comparison runs.
+ */
+@Tag("benchmark")
+class MicrobenchmarkTest {
+
+    private static final Path BASELINE = Path.of("src/test/resources/jmh-baseline.json");
+    private static final Path RESULT = Path.of("target/jmh-result.json");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void benchmarksStayWithinTheBaseline() throws Exception {
+        String include = System.getProperty("jmh.include", "com\\.kostas\\.banking\\..*Benchmark");
+        double threshold = Double.parseDouble(System.getProperty("jmh.threshold", "0.25"));
+
+        new Runner(new OptionsBuilder()
+                .include(include)
+                .forks(1)
+                .shouldFailOnError(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULT.toString())
+                .build()).run();
+
+        if (Boolean.getBoolean("jmh.update-baseline")) {
+            Files.copy(RESULT, BASELINE, StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+
+        Map<String, JsonNode> baseline = Files.exists(BASELINE) ? scores(BASELINE) : Map.of();
+        List<String> regressions = new ArrayList<>();
+        System.out.printf("%-70s %12s %12s %8s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, JsonNode> entry : scores(RESULT).entrySet()) {
+            JsonNode current = entry.getValue();
+            JsonNode previous = baseline.get(entry.getKey());
+            String unit = current.at("/primaryMetric/scoreUnit").asText();
+            double score = current.at("/primaryMetric/score").asDouble();
+            if (previous == null) {
+                System.out.printf("%-70s %12s %12.3f %8s %s%n", entry.getKey(), "-", score, "new", unit);
+                continue;
+            }
+            double before = previous.at("/primaryMetric/score").asDouble();
+            // NOTE: thrpt is better when higher, every other mode reports time per operation
+            double slowdown = current.get("mode").asText().equals("thrpt") ? before / score - 1 : score / before - 1;
+            System.out.printf("%-70s %12.3f %12.3f %+7.1f%% %s%n", entry.getKey(), before, score, slowdown * 100, unit);
+            if (slowdown > threshold) {
+                regressions.add(String.format("%s: %.3f -> %.3f %s", entry.getKey(), before, score, unit));
+            }
+        }
+        assertThat(regressions).as("slower than the baseline by more than %.0f%%", threshold * 100).isEmpty();
+    }
+
+    // benchmark name plus its @Param values -> result
+    private Map<String, JsonNode> scores(Path file) throws Exception {
+        Map<String, JsonNode> scores = new LinkedHashMap<>();
+        for (JsonNode result : objectMapper.readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(result.get("benchmark").asText()
+                    .replace("com.kostas.banking.", ""));
+            JsonNode params = result.get("params");
+            if (params != null) {
+                params.properties().forEach(param ->
+                        key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            }
+            scores.put(key.toString(), result);
+        }
+        return scores;
+    }
+}
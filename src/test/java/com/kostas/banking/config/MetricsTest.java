@@ -0,0 +1,70 @@
+package com.kostas.banking.config;
+
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.AccountDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.CustomerDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability(tracing = false)
+class MetricsTest {
+
+    @Autowired
+    private TestRestTemplate http;
+
+    @Test
+    void everyLayerIsScrapedFromThePrometheusEndpoint() {
+        UUID ownerId = http.postForObject("/api/customers", new CustomerCreateDTO(
+                "Metrics Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        ), CustomerDTO.class).id();
+        UUID account = newAccount(ownerId);
+        UUID other = newAccount(ownerId);
+        assertThat(http.postForEntity("/api/transactions", posting(null, account, "100", TransactionType.DEPOSIT), String.class)
+                .getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(http.postForEntity("/api/transactions", posting(account, other, "500", TransactionType.TRANSFER), String.class)
+                .getStatusCode().is2xxSuccessful()).isFalse();
+
+        var scrape = http.getForEntity("/actuator/prometheus", String.class);
+        assertThat(scrape.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(scrape.getBody())
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("uri=\"/api/transactions\"")
+                .containsPattern("banking_service_seconds_bucket\\{[^}]*method=\"submitTransaction\"")
+                .containsPattern("banking_service_seconds_count\\{[^}]*exception=\"InsufficientFundsException\"")
+                .containsPattern("spring_data_repository_invocations_seconds_bucket\\{[^}]*repository=\"AccountRepository\"")
+                .containsPattern("banking_postings_total\\{[^}]*result=\"posted\",type=\"DEPOSIT\"} 1")
+                .containsPattern("banking_postings_rejected_total\\{[^}]*reason=\"insufficient_funds\",type=\"TRANSFER\"} 1")
+                .contains("hibernate_statements_total")
+                .contains("hibernate_entities_loads_total")
+                .contains("hikaricp_connections_active")
+                .contains("banking_password_hashes_seconds_count");
+    }
+
+    private UUID newAccount(UUID ownerId) {
+        return http.postForObject("/api/accounts", new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        ), AccountDTO.class).id();
+    }
+
+    private static TransactionCreateDTO posting(UUID debit, UUID credit, String amount, TransactionType type) {
+        return new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), debit, credit, new BigDecimal(amount), CurrencyCode.USD, type
+        );
+    }
+}
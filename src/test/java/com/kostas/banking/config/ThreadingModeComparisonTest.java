@@ -0,0 +1,163 @@
+package com.kostas.banking.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kostas.banking.BankingApplication;
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.enums.AccountType;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the app once on platform threads and once on virtual threads under the same load: most clients hit an
+ * endpoint whose query is slowed down to simulate a database latency spike, a few hit a lookup served from cache.
+ * On platform threads the slow requests take every Tomcat thread and the cheap ones queue up behind them.
+ */
+@Tag("benchmark")
+class ThreadingModeComparisonTest {
+
+    private static final int SLOW_CLIENTS = 300;
+    private static final int FAST_CLIENTS = 20;
+    private static final long QUERY_MILLIS = 50;
+    private static final long WARM_UP_MILLIS = 3_000;
+    private static final long MEASURE_MILLIS = 10_000;
+
+    @Test
+    void platformVersusVirtualThreadsUnderSlowQueries() throws Exception {
+        System.out.printf("%d clients on a %d ms query, %d on a cached lookup, %d s%n",
+                SLOW_CLIENTS, QUERY_MILLIS, FAST_CLIENTS, MEASURE_MILLIS / 1000);
+        run("platform threads", false);
+        run("virtual threads", true);
+    }
+
+    private void run(String name, boolean virtual) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BankingApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+                        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" + SlowStatements.class.getName()
+                )
+                .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+            HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+            String base = "http://localhost:" + port;
+
+            String customer = post(client, objectMapper, base + "/api/customers", new CustomerCreateDTO(
+                    "Threading Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"));
+            UUID ownerId = UUID.fromString(objectMapper.readTree(customer).get("id").asText());
+            String accountNumber = "ACC-" + UUID.randomUUID();
+            String account = post(client, objectMapper, base + "/api/accounts",
+                    new AccountCreateDTO(accountNumber, AccountType.CHECKING, ownerId));
+            String accountId = objectMapper.readTree(account).get("id").asText();
+
+            Load slow = new Load(URI.create(base + "/api/accounts/" + accountId));
+            Load fast = new Load(URI.create(base + "/api/accounts/account-number/" + accountNumber));
+            SlowStatements.millis = QUERY_MILLIS;
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                long warmUpEnd = System.nanoTime() + WARM_UP_MILLIS * 1_000_000;
+                long end = warmUpEnd + MEASURE_MILLIS * 1_000_000;
+                for (int i = 0; i < SLOW_CLIENTS; i++) {
+                    clients.submit(() -> slow.loop(client, warmUpEnd, end));
+                }
+                for (int i = 0; i < FAST_CLIENTS; i++) {
+                    clients.submit(() -> fast.loop(client, warmUpEnd, end));
+                }
+            } finally {
+                SlowStatements.millis = 0;
+            }
+
+            System.out.printf("%-17s slow: %s%n", name, slow.summary());
+            System.out.printf("%-17s fast: %s%n", name, fast.summary());
+        }
+    }
+
+    private static String post(HttpClient client, ObjectMapper objectMapper, String url, Object body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    // NOTE: sleeps with the connection checked out, like a query stuck behind a slow disk or a lock
+    public static class SlowStatements implements StatementInspector {
+        static volatile long millis;
+
+        @Override
+        public String inspect(String sql) {
+            if (millis > 0) {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return sql;
+        }
+    }
+
+    private static class Load {
+        private final HttpRequest request;
+        private final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final AtomicLong errors = new AtomicLong();
+
+        Load(URI uri) {
+            this.request = HttpRequest.newBuilder(uri).GET().build();
+        }
+
+        void loop(HttpClient client, long measureFrom, long end) {
+            while (System.nanoTime() < end) {
+                long start = System.nanoTime();
+                int status;
+                try {
+                    status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                } catch (Exception e) {
+                    status = -1;
+                }
+                if (start >= measureFrom) {
+                    if (status == 200) {
+                        latencies.add(System.nanoTime() - start);
+                    } else {
+                        errors.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        String summary() {
+            List<Long> sorted = new ArrayList<>(latencies);
+            sorted.sort(null);
+            if (sorted.isEmpty()) {
+                return "no successful requests, " + errors.get() + " errors";
+            }
+            return String.format("%7.1f req/s, p50 %7.1f ms, p99 %7.1f ms, max %7.1f ms, %d errors",
+                    sorted.size() / (MEASURE_MILLIS / 1000.0),
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), sorted.get(sorted.size() - 1) / 1e6,
+                    errors.get());
+        }
+
+        private static double percentile(List<Long> sorted, double p) {
+            return sorted.get((int) Math.min(sorted.size() - 1, Math.round(p * (sorted.size() - 1)))) / 1e6;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.kostas.banking.config;
+
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.AccountDTO;
+import com.kostas.banking.dto.AuthRequest;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.CustomerDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.threads.virtual.enabled=true", "banking.threads.connection-wait=PT2S"}
+)
+class VirtualThreadModeTest {
+
+    @Autowired
+    private TestRestTemplate http;
+    @Autowired
+    private DataSource dataSource;
+
+    // NOTE: a virtual thread blocking inside synchronized holds on to its carrier - JFR reports every such park
+    @Test
+    void requestsDoNotPinTheirCarrierThreads() throws Exception {
+        String email = UUID.randomUUID() + "@test.com";
+        UUID ownerId = http.postForObject("/api/customers", new CustomerCreateDTO(
+                "Virtual Test", email, LocalDate.of(1990, 1, 1), "password"
+        ), CustomerDTO.class).id();
+        UUID account = newAccount(ownerId);
+        UUID other = newAccount(ownerId);
+
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(clients.submit(() -> {
+                    assertOk(http.postForEntity("/api/transactions", posting(null, account, TransactionType.DEPOSIT), String.class));
+                    assertOk(http.postForEntity("/api/transactions", posting(account, other, TransactionType.TRANSFER), String.class));
+                    assertOk(http.getForEntity("/api/balances/account/" + account + "/USD", String.class));
+                    assertOk(http.getForEntity("/api/accounts/" + other, String.class));
+                    assertOk(http.postForEntity("/api/auth/login", new AuthRequest(email, "password"), String.class));
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            recording.stop();
+        }
+
+        assertThat(dataSource).isInstanceOf(ConnectionPermitDataSource.class);
+        assertThat(pinned).as(() -> pinned.toString()).isEmpty();
+    }
+
+    @Test
+    void requestsBeyondTheConnectionPermitsGetA503() throws Exception {
+        List<Connection> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < 10; i++) { // Hikari's default pool size
+                held.add(dataSource.getConnection());
+            }
+            assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+            ResponseEntity<String> busy = http.getForEntity("/api/accounts?limit=1", String.class);
+            assertThat(busy.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+            held.remove(0).close();
+            ResponseEntity<String> served = http.getForEntity("/api/accounts?limit=1", String.class);
+            assertThat(served.getStatusCode()).isEqualTo(HttpStatus.OK);
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+    }
+
+    private UUID newAccount(UUID ownerId) {
+        return http.postForObject("/api/accounts", new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        ), AccountDTO.class).id();
+    }
+
+    private static TransactionCreateDTO posting(UUID debit, UUID credit, TransactionType type) {
+        return new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), debit, credit, BigDecimal.ONE, CurrencyCode.USD, type
+        );
+    }
+
+    private static void assertOk(ResponseEntity<String> response) {
+        assertThat(response.getStatusCode().is2xxSuccessful()).as(response::toString).isTrue();
+    }
+}
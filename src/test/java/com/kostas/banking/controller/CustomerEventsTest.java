@@ -0,0 +1,177 @@
+package com.kostas.banking.controller;
+
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.AccountDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.CustomerDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.repository.AccountRepository;
+import com.kostas.banking.service.Outbox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CustomerEventsTest {
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private TestRestTemplate http;
+    @Autowired
+    private Outbox outbox;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private UUID ownerId;
+    private UUID account;
+
+    @BeforeEach
+    void setUp() {
+        ownerId = http.postForObject("/api/customers", new CustomerCreateDTO(
+                "Events Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        ), CustomerDTO.class).id();
+        account = http.postForObject("/api/accounts", new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        ), AccountDTO.class).id();
+    }
+
+    @Test
+    void aPostingIsPushedToTheOwnersStream() throws Exception {
+        try (Stream<String> stream = subscribe(null)) {
+            BlockingQueue<Event> events = read(stream);
+            String reference = deposit("100");
+
+            Event transaction = next(events, "transaction");
+            assertThat(transaction.data()).contains(reference).contains("\"status\":\"COMPLETED\"");
+            Event balance = next(events, "balance");
+            assertThat(balance.data()).contains(account.toString()).contains("\"amount\":100");
+        }
+    }
+
+    @Test
+    void aReconnectingClientGetsWhatItMissed() throws Exception {
+        String lastSeen;
+        try (Stream<String> stream = subscribe(null)) {
+            BlockingQueue<Event> events = read(stream);
+            deposit("100");
+            lastSeen = next(events, "balance").id();
+        }
+        String missed = deposit("50");
+
+        try (Stream<String> stream = subscribe(lastSeen)) {
+            BlockingQueue<Event> events = read(stream);
+            assertThat(next(events, "transaction").data()).contains(missed);
+            assertThat(next(events, "balance").data()).contains("\"amount\":150");
+        }
+    }
+
+    @Test
+    void anEventCommittedLongAfterItWasStampedIsStillPushed() throws Exception {
+        try (Stream<String> stream = subscribe(null)) {
+            BlockingQueue<Event> events = read(stream);
+            // a slow transaction: the event is stamped, then the commit comes seconds later
+            transactionTemplate.executeWithoutResult(status -> {
+                outbox.account(accountRepository.findById(account).orElseThrow());
+                try {
+                    Thread.sleep(3000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            String reference = deposit("10");
+
+            assertThat(next(events, "account").data()).contains(account.toString());
+            assertThat(next(events, "transaction").data()).contains(reference);
+        }
+    }
+
+    private Stream<String> subscribe(String lastEventId) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + port + "/api/customers/" + ownerId + "/events"))
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        HttpResponse<Stream<String>> response = client.send(request.build(), HttpResponse.BodyHandlers.ofLines());
+        assertThat(response.statusCode()).isEqualTo(200);
+        return response.body();
+    }
+
+    // NOTE: parses the stream on another thread, the test waits on the queue with a timeout
+    private static BlockingQueue<Event> read(Stream<String> stream) {
+        BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        CompletableFuture.runAsync(() -> {
+            List<String> fields = new ArrayList<>();
+            try {
+                stream.forEach(line -> {
+                    if (!line.isEmpty()) {
+                        fields.add(line);
+                        return;
+                    }
+                    String id = null, name = null, data = null;
+                    for (String field : fields) {
+                        if (field.startsWith("id:")) id = field.substring(3);
+                        if (field.startsWith("event:")) name = field.substring(6);
+                        if (field.startsWith("data:")) data = field.substring(5);
+                    }
+                    if (name != null) {
+                        events.add(new Event(id, name, data));
+                    }
+                    fields.clear();
+                });
+            } catch (RuntimeException e) {
+                // closed by the test
+            }
+        });
+        return events;
+    }
+
+    private static Event next(BlockingQueue<Event> events, String name) throws InterruptedException {
+        while (true) {
+            Event event = events.poll(10, TimeUnit.SECONDS);
+            assertThat(event).as("a %s event", name).isNotNull();
+            if (event.name().equals(name)) {
+                return event;
+            }
+        }
+    }
+
+    private String deposit(String amount) {
+        String reference = "TXN-" + UUID.randomUUID();
+        assertThat(http.postForEntity("/api/transactions", new TransactionCreateDTO(
+                reference, null, account, new BigDecimal(amount), CurrencyCode.USD, TransactionType.DEPOSIT
+        ), String.class).getStatusCode().is2xxSuccessful()).isTrue();
+        return reference;
+    }
+
+    private record Event(String id, String name, String data) {}
+}
@@ -0,0 +1,105 @@
+package com.kostas.banking.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.service.AccountService;
+import com.kostas.banking.service.BalanceService;
+import com.kostas.banking.service.CustomerService;
+import com.kostas.banking.service.PostingEngine;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class IdempotentSubmissionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PostingEngine postingEngine;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private BalanceService balanceService;
+
+    private Statistics statistics;
+    private UUID account;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        UUID ownerId = customerService.createCustomer(new CustomerCreateDTO(
+                "Idempotency Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+        account = accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        )).id();
+    }
+
+    @Test
+    void aResubmissionReturnsTheOriginalWithoutTouchingTheDatabase() throws Exception {
+        TransactionCreateDTO deposit = deposit("TXN-" + UUID.randomUUID(), "100");
+        String id = objectMapper.readTree(submit(deposit).andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asText();
+
+        statistics.clear();
+        submit(deposit).andExpect(status().isOk()).andExpect(jsonPath("$.id").value(id));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        submit(deposit("TXN-" + UUID.randomUUID(), "100")).andExpect(status().isCreated());
+        submit(deposit(deposit.referenceNumber(), "99")).andExpect(status().isConflict());
+        assertThat(balanceService.getBalance(account, CurrencyCode.USD).amount()).isEqualByComparingTo("200");
+    }
+
+    // NOTE: posted straight through the engine, the way another node or this one before a restart did it
+    @Test
+    void aReferenceNumberPostedElsewhereIsCaughtByTheConstraint() throws Exception {
+        TransactionCreateDTO deposit = deposit("TXN-" + UUID.randomUUID(), "100");
+        UUID id = postingEngine.post(deposit).id();
+
+        submit(deposit).andExpect(status().isOk()).andExpect(jsonPath("$.id").value(id.toString()));
+        submit(deposit).andExpect(status().isOk()).andExpect(jsonPath("$.id").value(id.toString()));
+        assertThat(balanceService.getBalance(account, CurrencyCode.USD).amount()).isEqualByComparingTo("100");
+    }
+
+    private ResultActions submit(TransactionCreateDTO dto) throws Exception {
+        return mockMvc.perform(post("/api/transactions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(dto)));
+    }
+
+    private TransactionCreateDTO deposit(String referenceNumber, String amount) {
+        return new TransactionCreateDTO(
+                referenceNumber, null, account, new BigDecimal(amount), CurrencyCode.USD, TransactionType.DEPOSIT
+        );
+    }
+}
@@ -0,0 +1,129 @@
+package com.kostas.banking.controller;
+
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.BalanceCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.service.AccountService;
+import com.kostas.banking.service.BalanceService;
+import com.kostas.banking.service.CustomerService;
+import com.kostas.banking.service.TransactionService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Every read endpoint has a fixed statement count, no matter how many rows it returns.
+ * A lazy association sneaking back into a DTO mapping shows up here as a count that grows with the data.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReadEndpointQueryCountTest {
+
+    private static final int ROWS = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private BalanceService balanceService;
+    @Autowired
+    private TransactionService transactionService;
+
+    private Statistics statistics;
+    private UUID customerId;
+    private UUID accountId;
+    private UUID balanceId;
+    private UUID transactionId;
+    private String accountNumber;
+    private String referenceNumber;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        customerId = customerService.createCustomer(new CustomerCreateDTO(
+                "Query Count", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+        UUID other = null;
+        for (int i = 0; i < ROWS; i++) {
+            String number = "ACC-" + UUID.randomUUID();
+            UUID id = accountService.createAccount(new AccountCreateDTO(number, AccountType.CHECKING, customerId)).id();
+            balanceId = balanceService.createBalance(new BalanceCreateDTO(id, BigDecimal.TEN, CurrencyCode.USD)).id();
+            other = accountId;
+            accountId = id;
+            accountNumber = number;
+        }
+        for (int i = 0; i < ROWS; i++) {
+            referenceNumber = "TXN-" + UUID.randomUUID();
+            transactionId = transactionService.createTransaction(new TransactionCreateDTO(
+                    referenceNumber, accountId, other, BigDecimal.ONE, CurrencyCode.USD, TransactionType.TRANSFER
+            )).id();
+        }
+    }
+
+    @Test
+    void singleRowEndpointsIssueOneStatement() throws Exception {
+        assertStatements(1, "/api/customers/" + customerId);
+        assertStatements(1, "/api/accounts/" + accountId);
+        assertStatements(1, "/api/accounts/account-number/" + accountNumber);
+        assertStatements(1, "/api/balances/" + balanceId);
+        assertStatements(1, "/api/balances/account/" + accountId + "/USD");
+        assertStatements(1, "/api/transactions/" + transactionId);
+        assertStatements(1, "/api/transactions/reference/" + referenceNumber);
+    }
+
+    @Test
+    void listEndpointsIssueAFixedNumberOfStatements() throws Exception {
+        assertStatements(1, "/api/accounts?limit=" + ROWS);
+        assertStatements(1, "/api/accounts/customer/" + customerId);
+        assertStatements(1, "/api/balances?limit=" + ROWS);
+        assertStatements(1, "/api/balances/account/" + accountId);
+        assertStatements(1, "/api/transactions?limit=" + ROWS);
+        assertStatements(1, "/api/transactions/debitAccount/" + accountId);
+        assertStatements(1, "/api/transactions/status/COMPLETED");
+        assertStatements(2, "/api/transactions/account/" + accountId + "?limit=" + ROWS);
+        assertStatements(7, "/api/customers/" + customerId + "/dashboard");
+    }
+
+    @Test
+    void dashboardListsAndCountsATransferBetweenTheCustomersOwnAccountsOnce() throws Exception {
+        mockMvc.perform(get("/api/customers/" + customerId + "/dashboard?recent=" + (ROWS + 5)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.recentTransactions.length()").value(ROWS))
+                .andExpect(jsonPath("$.transactionsThisMonth").value(ROWS));
+        mockMvc.perform(get("/api/customers/" + customerId + "/dashboard?recent=3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.recentTransactions.length()").value(3))
+                .andExpect(jsonPath("$.recentTransactions[0].id").value(transactionId.toString()));
+    }
+
+    private void assertStatements(long expected, String url) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        assertThat(statistics.getPrepareStatementCount()).as(url).isEqualTo(expected);
+    }
+}
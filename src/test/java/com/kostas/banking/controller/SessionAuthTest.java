@@ -0,0 +1,173 @@
+package com.kostas.banking.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.repository.CustomerRepository;
+import com.kostas.banking.security.PasswordHasher;
+import com.kostas.banking.service.AccountService;
+import com.kostas.banking.service.CustomerService;
+import com.kostas.banking.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"banking.auth.required=true", "banking.auth.admins=" + SessionAuthTest.ADMIN_ID})
+@AutoConfigureMockMvc
+class SessionAuthTest {
+
+    static final String ADMIN_ID = "00000000-0000-7000-8000-00000000ad01";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Test
+    void loginTokenAuthenticatesLaterRequests() throws Exception {
+        String email = UUID.randomUUID() + "@test.com";
+        UUID customerId = newCustomer(email);
+        String token = login(email);
+
+        mockMvc.perform(get("/api/customers/" + customerId))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/customers/" + customerId).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/customers/" + customerId).header(HttpHeaders.AUTHORIZATION, "Bearer " + token + "x"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void customersOnlyReachWhatTheyOwn() throws Exception {
+        String email = UUID.randomUUID() + "@test.com";
+        UUID customerId = newCustomer(email);
+        String token = "Bearer " + login(email);
+        UUID account = newAccount(customerId);
+
+        String otherEmail = UUID.randomUUID() + "@test.com";
+        UUID otherId = newCustomer(otherEmail);
+        String otherToken = "Bearer " + login(otherEmail);
+        UUID otherAccount = newAccount(otherId);
+        UUID deposit = transactionService.createTransaction(new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), null, otherAccount, new BigDecimal("100"), CurrencyCode.USD, TransactionType.DEPOSIT
+        )).id();
+
+        for (String path : new String[]{
+                "/api/customers/" + otherId,
+                "/api/customers/" + otherId + "/dashboard",
+                "/api/customers/" + otherId + "/events",
+                "/api/accounts/" + otherAccount,
+                "/api/accounts/customer/" + otherId,
+                "/api/balances/account/" + otherAccount,
+                "/api/transactions/" + deposit,
+                "/api/transactions/account/" + otherAccount,
+                "/api/transactions/creditAccount/" + otherAccount}) {
+            mockMvc.perform(get(path).header(HttpHeaders.AUTHORIZATION, token))
+                    .andExpect(status().isForbidden());
+        }
+        mockMvc.perform(get("/api/transactions/" + deposit).header(HttpHeaders.AUTHORIZATION, otherToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/accounts/customer/" + customerId).header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk());
+
+        // NOTE: paying out of someone else's account, or settling their transaction
+        mockMvc.perform(post("/api/transactions").header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TransactionCreateDTO(
+                                "TXN-" + UUID.randomUUID(), otherAccount, account, new BigDecimal("50"),
+                                CurrencyCode.USD, TransactionType.TRANSFER))))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(put("/api/transactions/" + deposit).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"CANCELLED\"}"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void wholeTableListingsAreForAdminsOnly() throws Exception {
+        String email = UUID.randomUUID() + "@test.com";
+        newCustomer(email);
+        String token = "Bearer " + login(email);
+
+        String adminEmail = "admin-" + ADMIN_ID + "@test.com";
+        customerRepository.insertIfEmailFree(UUID.fromString(ADMIN_ID), "Auth Test Admin", adminEmail,
+                LocalDate.of(1990, 1, 1), passwordHasher.hash("password"));
+        String adminToken = "Bearer " + login(adminEmail);
+
+        for (String path : new String[]{
+                "/api/customers",
+                "/api/accounts",
+                "/api/balances",
+                "/api/transactions",
+                "/api/transactions/export",
+                "/api/transactions/status/COMPLETED"}) {
+            mockMvc.perform(get(path))
+                    .andExpect(status().isUnauthorized());
+            mockMvc.perform(get(path).header(HttpHeaders.AUTHORIZATION, token))
+                    .andExpect(status().isForbidden());
+            mockMvc.perform(get(path).header(HttpHeaders.AUTHORIZATION, adminToken))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void passwordHasherStatsNeedAToken() throws Exception {
+        String email = UUID.randomUUID() + "@test.com";
+        newCustomer(email);
+
+        mockMvc.perform(get("/api/password-hasher"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/password-hasher").header(HttpHeaders.AUTHORIZATION, "Bearer " + login(email)))
+                .andExpect(status().isOk());
+    }
+
+    private UUID newCustomer(String email) {
+        return customerService.createCustomer(new CustomerCreateDTO(
+                "Auth Test", email, LocalDate.of(1990, 1, 1), "password"
+        )).id();
+    }
+
+    private UUID newAccount(UUID ownerId) {
+        return accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        )).id();
+    }
+
+    private String login(String email) throws Exception {
+        String body = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"" + email + "\", \"password\": \"password\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode login = objectMapper.readTree(body);
+        return login.get("token").asText();
+    }
+}
@@ -0,0 +1,80 @@
+package com.kostas.banking.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.service.AccountService;
+import com.kostas.banking.service.CustomerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The batch endpoint's {@code @SqlBudget} holds for the largest batch it takes - banking.sql.budget.mode=FAIL
+ * fails the request that goes over.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class TransactionBatchEndpointTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private CustomerService customerService;
+
+    @Test
+    void aFullBatchStaysWithinItsBudgetAndALargerOneIsRejected() throws Exception {
+        UUID ownerId = customerService.createCustomer(new CustomerCreateDTO(
+                "Batch Endpoint Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+        List<UUID> accounts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            accounts.add(accountService.createAccount(new AccountCreateDTO(
+                    "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+            )).id());
+        }
+
+        mockMvc.perform(post("/api/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(deposits(accounts, CHUNK_SIZE))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posted").value(CHUNK_SIZE));
+
+        mockMvc.perform(post("/api/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(deposits(accounts, CHUNK_SIZE + 1))))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static List<TransactionCreateDTO> deposits(List<UUID> accounts, int count) {
+        List<TransactionCreateDTO> deposits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            deposits.add(new TransactionCreateDTO("TXN-" + UUID.randomUUID(), null, accounts.get(i % accounts.size()),
+                    BigDecimal.ONE, CurrencyCode.USD, TransactionType.DEPOSIT));
+        }
+        return deposits;
+    }
+}
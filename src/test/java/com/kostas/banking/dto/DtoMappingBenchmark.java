@@ -0,0 +1,100 @@
+package com.kostas.banking.dto;
+
+import com.kostas.banking.enums.AccountStatus;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.model.Account;
+import com.kostas.banking.model.Balance;
+import com.kostas.banking.model.Customer;
+import com.kostas.banking.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DtoMappingBenchmark {
+
+    private Transaction transaction;
+    private Account account;
+    private Balance balance;
+
+    @Setup
+    public void setUp() {
+        Account debit = account(customer());
+        account = account(customer());
+        transaction = transaction(debit, account, new BigDecimal("125.5000"));
+        balance = new Balance();
+        balance.setId(UUID.randomUUID());
+        balance.setAccount(account);
+        balance.setAmount(new BigDecimal("1000.0000"));
+        balance.setHeldAmount(new BigDecimal("125.5000"));
+        balance.setCurrency(CurrencyCode.EUR);
+    }
+
+    @Benchmark
+    public TransactionDTO transaction() {
+        return TransactionDTO.fromEntity(transaction);
+    }
+
+    @Benchmark
+    public AccountDTO account() {
+        return AccountDTO.fromEntity(account);
+    }
+
+    @Benchmark
+    public BalanceDTO balance() {
+        return BalanceDTO.fromEntity(balance);
+    }
+
+    static Customer customer() {
+        Customer customer = new Customer();
+        customer.setId(UUID.randomUUID());
+        customer.setFullName("Benchmark Customer");
+        customer.setEmail(UUID.randomUUID() + "@test.com");
+        customer.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        return customer;
+    }
+
+    static Account account(Customer owner) {
+        Account account = new Account();
+        account.setId(UUID.randomUUID());
+        account.setAccountNumber("ACC-" + UUID.randomUUID());
+        account.setType(AccountType.CHECKING);
+        account.setStatus(AccountStatus.ACTIVE);
+        account.setOwner(owner);
+        return account;
+    }
+
+    static Transaction transaction(Account debit, Account credit, BigDecimal amount) {
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        transaction.setReferenceNumber("TXN-" + UUID.randomUUID());
+        transaction.setDebitAccount(debit);
+        transaction.setCreditAccount(credit);
+        transaction.setAmount(amount);
+        transaction.setCurrency(CurrencyCode.EUR);
+        transaction.setType(TransactionType.TRANSFER);
+        transaction.setStatus(TransactionStatus.COMPLETED);
+        transaction.setCreatedAt(LocalDateTime.of(2026, 1, 1, 12, 0));
+        transaction.setPostedAt(LocalDateTime.of(2026, 1, 1, 12, 0));
+        return transaction;
+    }
+}
@@ -0,0 +1,57 @@
+package com.kostas.banking.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kostas.banking.model.Account;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A history page or export batch written the way MVC writes it: Boot's ObjectMapper defaults, straight to the
+ * response stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TransactionJsonBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<TransactionDTO> transactions;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        Account debit = DtoMappingBenchmark.account(DtoMappingBenchmark.customer());
+        Account credit = DtoMappingBenchmark.account(DtoMappingBenchmark.customer());
+        transactions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            BigDecimal amount = BigDecimal.valueOf(i * 1_234L + 1, 4);
+            transactions.add(TransactionDTO.fromEntity(DtoMappingBenchmark.transaction(debit, credit, amount)));
+        }
+    }
+
+    @Benchmark
+    public void serialize() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), transactions);
+    }
+}
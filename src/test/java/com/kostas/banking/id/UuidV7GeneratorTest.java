@@ -0,0 +1,163 @@
+package com.kostas.banking.id;
+
+import com.kostas.banking.dto.KeysetCursor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidV7GeneratorTest {
+
+    @Test
+    void idsAreVersion7AndCarryTheTimestamp() {
+        Instant now = Instant.parse("2026-01-01T00:00:00Z");
+        UUID id = new UuidV7Generator(Clock.fixed(now, ZoneOffset.UTC)).next();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isEqualTo(now.toEpochMilli());
+    }
+
+    @Test
+    void staysOrderedWhenTheClockStandsStillOrStepsBack() {
+        MutableClock clock = new MutableClock(1_000_000);
+        UuidV7Generator generator = new UuidV7Generator(clock);
+
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) { // more than one millisecond's worth of sequence numbers
+            ids.add(generator.next());
+        }
+        clock.millis = 999_000;
+        ids.add(generator.next());
+        clock.millis = 2_000_000;
+        ids.add(generator.next());
+
+        for (int i = 1; i < ids.size(); i++) {
+            assertThat(KeysetCursor.compareIds(ids.get(i - 1), ids.get(i))).isNegative();
+        }
+        assertThat(ids.get(ids.size() - 1).getMostSignificantBits() >>> 16).isEqualTo(2_000_000);
+    }
+
+    @Test
+    void concurrentCallersGetUniqueIncreasingIds() throws Exception {
+        UuidV7Generator generator = new UuidV7Generator();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<List<UUID>>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                List<UUID> ids = new ArrayList<>();
+                for (int i = 0; i < 20_000; i++) {
+                    ids.add(generator.next());
+                }
+                return ids;
+            }));
+        }
+
+        Set<UUID> all = new HashSet<>();
+        for (Future<List<UUID>> future : futures) {
+            List<UUID> ids = future.get();
+            for (int i = 1; i < ids.size(); i++) {
+                assertThat(KeysetCursor.compareIds(ids.get(i - 1), ids.get(i))).isNegative();
+            }
+            all.addAll(ids);
+        }
+        pool.shutdown();
+        assertThat(all).hasSize(8 * 20_000);
+    }
+
+    /**
+     * Inserts the same number of rows keyed by random and by v7 ids into a fresh table each, measuring
+     * insert throughput and what the table plus its primary key index take up afterwards.
+     */
+    @Test
+    @Tag("benchmark")
+    void insertThroughputAndIndexSizeVersusRandomIds() throws Exception {
+        int rows = 1_000_000;
+        insert(new RandomIdGenerator(), 50_000); // warm-up
+        insert(new UuidV7Generator(), 50_000);
+
+        for (IdGenerator generator : List.of(new RandomIdGenerator(), new UuidV7Generator())) {
+            long[] result = insert(generator, rows);
+            System.out.printf("%-17s %d rows: %9.1f inserts/s, %6.1f MiB on disk%n",
+                    generator.getClass().getSimpleName(), rows, rows / (result[0] / 1e9), result[1] / 1048576.0);
+        }
+    }
+
+    // NOTE: file based so the size is real pages written, not heap
+    private long[] insert(IdGenerator generator, int rows) throws Exception {
+        String url = "jdbc:h2:./target/id-benchmark/" + generator.getClass().getSimpleName() + System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table ids (id uuid primary key, amount decimal(19, 4))");
+            }
+            connection.setAutoCommit(false);
+
+            long start = System.nanoTime();
+            try (PreparedStatement insert = connection.prepareStatement("insert into ids values (?, 1)")) {
+                for (int i = 1; i <= rows; i++) {
+                    insert.setObject(1, generator.next());
+                    insert.addBatch();
+                    if (i % 1000 == 0) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet size = statement.executeQuery("call disk_space_used('ids')")) {
+                size.next();
+                long bytes = size.getLong(1);
+                statement.execute("drop all objects delete files");
+                return new long[]{elapsed, bytes};
+            }
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
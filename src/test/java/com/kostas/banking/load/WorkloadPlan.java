@@ -0,0 +1,76 @@
+package com.kostas.banking.load;
+
+import com.kostas.banking.enums.AccountType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * What every simulated customer does, decided up front from the seed so the same seed always replays the same
+ * requests in the same per-customer order, however the run is scheduled.
+ * <p>
+ * Mirrors the front-end ({@code static/script.js}): each session logs in, fetches the customer and the dashboard,
+ * then opens accounts (create + initial deposit) or transfers between its own accounts, reloading the dashboard
+ * after each action.
+ */
+public record WorkloadPlan(long seed, List<Customer> customers) {
+
+    public sealed interface Action permits OpenAccount, Transfer {}
+
+    public record OpenAccount(AccountType type, BigDecimal deposit) implements Action {}
+
+    // NOTE: accounts are referred to by the order this customer opened them, their ids only exist at run time
+    public record Transfer(int from, int to, BigDecimal amount) implements Action {}
+
+    public record Session(List<Action> actions) {}
+
+    public record Customer(int index, List<Session> sessions) {}
+
+    private static final AccountType[] ACCOUNT_TYPES = AccountType.values();
+
+    public static WorkloadPlan generate(long seed, int customers, int sessionsPerCustomer) {
+        List<Customer> plan = new ArrayList<>(customers);
+        for (int i = 0; i < customers; i++) {
+            // NOTE: one stream per customer, so changing the customer count doesn't reshuffle everyone else
+            Random random = new Random(seed * 31 + i);
+            int accounts = 0;
+            List<Session> sessions = new ArrayList<>(sessionsPerCustomer);
+            for (int s = 0; s < sessionsPerCustomer; s++) {
+                List<Action> actions = new ArrayList<>();
+                int count = 1 + random.nextInt(4);
+                for (int a = 0; a < count; a++) {
+                    if (accounts < 2 || random.nextInt(5) == 0) {
+                        actions.add(new OpenAccount(
+                                ACCOUNT_TYPES[random.nextInt(ACCOUNT_TYPES.length)],
+                                BigDecimal.valueOf(500 + random.nextInt(4_500))
+                        ));
+                        accounts++;
+                    } else {
+                        int from = random.nextInt(accounts);
+                        int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+                        actions.add(new Transfer(from, to, BigDecimal.valueOf(100 + random.nextInt(9_900), 2)));
+                    }
+                }
+                sessions.add(new Session(actions));
+            }
+            plan.add(new Customer(i, sessions));
+        }
+        return new WorkloadPlan(seed, plan);
+    }
+
+    public int requestCount() {
+        int requests = 0;
+        for (Customer customer : customers) {
+            requests++; // sign-up
+            for (Session session : customer.sessions()) {
+                requests += 3;
+                for (Action action : session.actions()) {
+                    requests += action instanceof OpenAccount ? 3 : 2;
+                }
+            }
+        }
+        return requests;
+    }
+}
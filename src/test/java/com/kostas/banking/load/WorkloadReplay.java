@@ -0,0 +1,240 @@
+package com.kostas.banking.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.AuthRequest;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays a {@link WorkloadPlan} against a running instance, {@code concurrency} customers at a time, and
+ * reports latency percentiles, throughput and errors per endpoint.
+ * <p>
+ * Emails and reference numbers carry a per-run prefix, so a seed can be replayed against the same database.
+ * The requests themselves - which flows, accounts, amounts, in what order per customer - come from the plan.
+ */
+public class WorkloadReplay {
+
+    private static final String PASSWORD = "load-test-password";
+    private static final int RECENT_TRANSACTIONS = 100; // what the front-end asks for
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong references = new AtomicLong();
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder skipped = new LongAdder();
+
+    public WorkloadReplay(String baseUrl, ObjectMapper objectMapper) {
+        this.client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+    }
+
+    public record EndpointReport(String endpoint, long requests, long errors, double errorRate, double throughput,
+                                 double p50Millis, double p99Millis, double p999Millis, double maxMillis,
+                                 Map<Integer, Long> statuses) {}
+
+    public record Report(long seed, int customers, int concurrency, double seconds, long skippedActions,
+                         List<EndpointReport> endpoints, EndpointReport total) {
+
+        public String format() {
+            StringBuilder out = new StringBuilder(String.format(
+                    "seed %d, %d customers, concurrency %d, %.1f s, %d actions skipped after a failed step%n",
+                    seed, customers, concurrency, seconds, skippedActions));
+            out.append(String.format("%-36s %8s %9s %8s %9s %9s %9s %9s%n",
+                    "endpoint", "requests", "req/s", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+            for (EndpointReport endpoint : endpoints) {
+                out.append(line(endpoint));
+            }
+            return out.append(line(total)).toString();
+        }
+
+        private static String line(EndpointReport e) {
+            return String.format("%-36s %8d %9.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f%n", e.endpoint(), e.requests(),
+                    e.throughput(), e.errorRate() * 100, e.p50Millis(), e.p99Millis(), e.p999Millis(), e.maxMillis());
+        }
+    }
+
+    public Report run(WorkloadPlan plan, int concurrency) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (WorkloadPlan.Customer customer : plan.customers()) {
+                futures.add(workers.submit(() -> {
+                    replay(customer);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<EndpointReport> reports = new ArrayList<>();
+        Endpoint total = new Endpoint();
+        endpoints.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    reports.add(entry.getValue().report(entry.getKey(), seconds));
+                    total.merge(entry.getValue());
+                });
+        return new Report(plan.seed(), plan.customers().size(), concurrency, seconds, skipped.sum(),
+                reports, total.report("total", seconds));
+    }
+
+    private void replay(WorkloadPlan.Customer customer) throws IOException, InterruptedException {
+        String email = "load-" + runId + "-" + customer.index() + "@test.com";
+        if (send("POST /api/customers", post("/api/customers", new CustomerCreateDTO(
+                "Load Customer " + customer.index(), email, LocalDate.of(1990, 1, 1), PASSWORD), null)) == null) {
+            customer.sessions().forEach(session -> skipped.add(session.actions().size()));
+            return;
+        }
+
+        List<String> accounts = new ArrayList<>();
+        for (WorkloadPlan.Session session : customer.sessions()) {
+            JsonNode auth = send("POST /api/auth/login", post("/api/auth/login", new AuthRequest(email, PASSWORD), null));
+            if (auth == null) {
+                skipped.add(session.actions().size());
+                continue;
+            }
+            String token = auth.get("token").asText();
+            String customerId = auth.get("customerId").asText();
+            send("GET /api/customers/{id}", get("/api/customers/" + customerId, token));
+            dashboard(customerId, token);
+
+            for (WorkloadPlan.Action action : session.actions()) {
+                if (action instanceof WorkloadPlan.OpenAccount open) {
+                    JsonNode account = send("POST /api/accounts", post("/api/accounts", new AccountCreateDTO(
+                            "ACC-" + runId + "-" + references.incrementAndGet(), open.type(), UUID.fromString(customerId)), token));
+                    if (account == null) {
+                        continue;
+                    }
+                    accounts.add(account.get("id").asText());
+                    send("POST /api/transactions (deposit)", post("/api/transactions", posting(
+                            null, accounts.get(accounts.size() - 1), open.deposit(), TransactionType.DEPOSIT), token));
+                } else if (action instanceof WorkloadPlan.Transfer transfer) {
+                    if (transfer.from() >= accounts.size() || transfer.to() >= accounts.size()) {
+                        skipped.increment(); // an earlier open failed
+                        continue;
+                    }
+                    send("POST /api/transactions (transfer)", post("/api/transactions", posting(
+                            accounts.get(transfer.from()), accounts.get(transfer.to()), transfer.amount(), TransactionType.TRANSFER), token));
+                }
+                dashboard(customerId, token);
+            }
+        }
+    }
+
+    private void dashboard(String customerId, String token) throws IOException, InterruptedException {
+        send("GET /api/customers/{id}/dashboard",
+                get("/api/customers/" + customerId + "/dashboard?recent=" + RECENT_TRANSACTIONS, token));
+    }
+
+    private TransactionCreateDTO posting(String debit, String credit, BigDecimal amount, TransactionType type) {
+        return new TransactionCreateDTO(
+                "TXN-" + runId + "-" + references.incrementAndGet(),
+                debit == null ? null : UUID.fromString(debit),
+                UUID.fromString(credit),
+                amount,
+                CurrencyCode.USD,
+                type
+        );
+    }
+
+    // the response body on a 2xx, null otherwise
+    private JsonNode send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        int status;
+        String body = null;
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            status = response.statusCode();
+            body = response.body();
+        } catch (IOException e) {
+            status = -1;
+        }
+        endpoints.computeIfAbsent(endpoint, name -> new Endpoint()).record(System.nanoTime() - start, status);
+        return status / 100 == 2 && body != null ? objectMapper.readTree(body) : null;
+    }
+
+    private HttpRequest post(String path, Object body, String token) throws IOException {
+        return request(path, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+    }
+
+    private HttpRequest get(String path, String token) {
+        return request(path, token).GET().build();
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path));
+        return token == null ? builder : builder.header("Authorization", "Bearer " + token);
+    }
+
+    private static class Endpoint {
+        private final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(long nanos, int status) {
+            latencies.add(nanos);
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        void merge(Endpoint other) {
+            latencies.addAll(other.latencies);
+            other.statuses.forEach((status, count) -> statuses.computeIfAbsent(status, s -> new LongAdder()).add(count.sum()));
+        }
+
+        EndpointReport report(String name, double seconds) {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            Map<Integer, Long> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> counts.put(status, count.sum()));
+            long errors = counts.entrySet().stream()
+                    .filter(entry -> entry.getKey() / 100 != 2)
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+            return new EndpointReport(name, sorted.length, errors, sorted.length == 0 ? 0 : (double) errors / sorted.length,
+                    sorted.length / seconds, percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6, counts);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+        }
+    }
+}
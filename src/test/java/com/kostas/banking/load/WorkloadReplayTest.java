@@ -0,0 +1,86 @@
+package com.kostas.banking.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.kostas.banking.BankingApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replays the front-end's flows at a configurable scale:
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=WorkloadReplayTest -Dload.seed=42 -Dload.customers=200 -Dload.sessions=5 -Dload.concurrency=32
+ * </pre>
+ * By default the app is started here on an in-memory H2 database in PostgreSQL mode, with the test properties
+ * (cheap password hashes unless {@code -Dload.password-cost} says otherwise). {@code -Dload.url=http://host:port}
+ * replays against an instance that is already running instead, and {@code -Dload.properties=a=1,b=2} adds
+ * properties to the one started here (e.g. {@code management.metrics.enable.all=false} to measure what metrics
+ * cost). The report is printed and written to {@code target/load-report.json}.
+ */
+class WorkloadReplayTest {
+
+    @Test
+    void theSameSeedPlansTheSameWorkload() {
+        WorkloadPlan plan = WorkloadPlan.generate(42, 20, 5);
+
+        assertThat(WorkloadPlan.generate(42, 20, 5)).isEqualTo(plan);
+        assertThat(WorkloadPlan.generate(43, 20, 5)).isNotEqualTo(plan);
+        assertThat(WorkloadPlan.generate(42, 30, 5).customers().subList(0, 20)).isEqualTo(plan.customers());
+        for (WorkloadPlan.Customer customer : plan.customers()) {
+            int accounts = 0;
+            for (WorkloadPlan.Session session : customer.sessions()) {
+                for (WorkloadPlan.Action action : session.actions()) {
+                    if (action instanceof WorkloadPlan.Transfer transfer) {
+                        assertThat(transfer.from()).isNotEqualTo(transfer.to()).isLessThan(accounts);
+                        assertThat(transfer.to()).isLessThan(accounts);
+                    } else {
+                        accounts++;
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void replayWorkload() throws Exception {
+        long seed = Long.getLong("load.seed", 42);
+        int customers = Integer.getInteger("load.customers", 200);
+        int sessions = Integer.getInteger("load.sessions", 5);
+        int concurrency = Integer.getInteger("load.concurrency", 32);
+        String url = System.getProperty("load.url");
+
+        WorkloadPlan plan = WorkloadPlan.generate(seed, customers, sessions);
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        WorkloadReplay.Report report;
+        if (url != null) {
+            report = new WorkloadReplay(url, objectMapper).run(plan, concurrency);
+        } else {
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BankingApplication.class)
+                    .properties(
+                            "server.port=0",
+                            "spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+                            "banking.password.cost=" + Integer.getInteger("load.password-cost", 4),
+                            "logging.level.com.kostas.banking=WARN"
+                    )
+                    .properties(System.getProperty("load.properties", "").split(","))
+                    .run()) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                report = new WorkloadReplay("http://localhost:" + port, objectMapper).run(plan, concurrency);
+            }
+        }
+
+        System.out.printf("%d requests planned%n%s", plan.requestCount(), report.format());
+        objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(Path.of("target/load-report.json").toFile(), report);
+        assertThat(report.total().requests()).isPositive();
+    }
+}
@@ -0,0 +1,49 @@
+package com.kostas.banking.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A login's password check through the hasher pool, at the test cost and the production default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class PasswordHasherBenchmark {
+
+    @Param({"4", "12"})
+    public int cost;
+
+    private PasswordHasher hasher;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        hasher = new PasswordHasher(cost, 1, 1);
+        hash = BCrypt.hashpw("correct horse battery staple", BCrypt.gensalt(cost));
+    }
+
+    @TearDown
+    public void tearDown() {
+        hasher.shutdown();
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.verify("correct horse battery staple", hash);
+    }
+}
@@ -0,0 +1,66 @@
+package com.kostas.banking.security;
+
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.exception.PasswordHasherBusyException;
+import com.kostas.banking.repository.CustomerRepository;
+import com.kostas.banking.service.CustomerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest
+class PasswordHasherTest {
+
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Test
+    void rejectsRightAwayOnceTheQueueIsFull() {
+        PasswordHasher hasher = new PasswordHasher(13, 1, 1);
+        try {
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hasher.hash("password"));
+            await().until(() -> hasher.getStats().active() == 1);
+            CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> hasher.hash("password"));
+            await().until(() -> hasher.getStats().queued() == 1);
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> hasher.hash("password")).isInstanceOf(PasswordHasherBusyException.class);
+            assertThat(System.nanoTime() - start).isLessThan(50_000_000L);
+
+            String first = running.join();
+            String second = queued.join();
+            assertThat(hasher.verify("password", first)).isTrue();
+            assertThat(hasher.verify("password", second)).isTrue();
+            assertThat(hasher.getStats().rejected()).isEqualTo(1);
+            assertThat(hasher.getStats().completed()).isEqualTo(4);
+        } finally {
+            hasher.shutdown();
+        }
+    }
+
+    @Test
+    void loginRehashesWhenTheCostChanged() {
+        String email = UUID.randomUUID() + "@test.com";
+        UUID customerId = customerService.createCustomer(new CustomerCreateDTO(
+                "Hasher Test", email, LocalDate.of(1990, 1, 1), "password"
+        )).id();
+        customerRepository.updatePasswordHash(customerId, BCrypt.hashpw("password", BCrypt.gensalt(5)));
+
+        customerService.authenticate(email, "password");
+
+        String rehashed = customerRepository.findById(customerId).orElseThrow().getPasswordHash();
+        assertThat(rehashed).startsWith("$2a$04$");
+        assertThat(BCrypt.checkpw("password", rehashed)).isTrue();
+    }
+}
@@ -0,0 +1,93 @@
+package com.kostas.banking.security;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionTokenServiceTest {
+
+    private static final String OLD_KEY = "k1:" + Base64.getEncoder().encodeToString("old secret, 32 bytes long......".getBytes());
+    private static final String NEW_KEY = "k2:" + Base64.getEncoder().encodeToString("new secret, 32 bytes long......".getBytes());
+
+    @Test
+    void issuedTokensVerifyToTheirCustomer() {
+        SessionTokenService service = new SessionTokenService(NEW_KEY, Duration.ofHours(1));
+        UUID customerId = UUID.randomUUID();
+        String token = service.issue(customerId).token();
+
+        assertThat(service.verify(token, 0)).isEqualTo(customerId);
+        assertThat(service.verify("Bearer " + token, 7)).isEqualTo(customerId);
+    }
+
+    @Test
+    void rejectsTamperedExpiredAndUnknownKeyTokens() {
+        Instant now = Instant.parse("2026-01-01T00:00:00Z");
+        SessionTokenService service = new SessionTokenService(NEW_KEY, Duration.ofHours(1), Clock.fixed(now, ZoneOffset.UTC));
+        String token = service.issue(UUID.randomUUID()).token();
+
+        String[] parts = token.split("\\.");
+        String otherPayload = new SessionTokenService(NEW_KEY, Duration.ofHours(1)).issue(UUID.randomUUID()).token().split("\\.")[1];
+        assertThat(service.verify(parts[0] + "." + otherPayload + "." + parts[2], 0)).isNull();
+        assertThat(service.verify(token.substring(0, token.length() - 1) + (token.endsWith("A") ? "B" : "A"), 0)).isNull();
+        String signature = parts[0] + "." + parts[1] + "." + parts[2].substring(0, parts[2].length() - 1);
+        char last = parts[2].charAt(parts[2].length() - 1);
+        assertThat(service.verify(signature + (char) (last + 1), 0)).as("same bits, non-canonical encoding").isNull();
+        assertThat(service.verify("k9." + parts[1] + "." + parts[2], 0)).isNull();
+        assertThat(service.verify("garbage", 0)).isNull();
+
+        SessionTokenService later = new SessionTokenService(NEW_KEY, Duration.ofHours(1),
+                Clock.fixed(now.plus(Duration.ofHours(1)), ZoneOffset.UTC));
+        assertThat(later.verify(token, 0)).isNull();
+    }
+
+    @Test
+    void rotatedOutKeysStillVerifyUntilRemoved() {
+        UUID customerId = UUID.randomUUID();
+        String oldToken = new SessionTokenService(OLD_KEY, Duration.ofHours(1)).issue(customerId).token();
+
+        SessionTokenService rotated = new SessionTokenService(NEW_KEY + "," + OLD_KEY, Duration.ofHours(1));
+        assertThat(rotated.verify(oldToken, 0)).isEqualTo(customerId);
+        assertThat(rotated.issue(customerId).token()).startsWith("k2.");
+
+        assertThat(new SessionTokenService(NEW_KEY, Duration.ofHours(1)).verify(oldToken, 0)).isNull();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void tokenVerificationVersusPasswordCheck() {
+        SessionTokenService service = new SessionTokenService(NEW_KEY, Duration.ofHours(1));
+        String header = "Bearer " + service.issue(UUID.randomUUID()).token();
+        String hash = BCrypt.hashpw("password", BCrypt.gensalt(12));
+
+        int iterations = 1_000_000;
+        for (int i = 0; i < iterations; i++) { // warm-up
+            service.verify(header, 7);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (service.verify(header, 7) == null) {
+                throw new AssertionError();
+            }
+        }
+        double tokenMicros = (System.nanoTime() - start) / 1e3 / iterations;
+
+        int checks = 5;
+        start = System.nanoTime();
+        for (int i = 0; i < checks; i++) {
+            BCrypt.checkpw("password", hash);
+        }
+        double bcryptMicros = (System.nanoTime() - start) / 1e3 / checks;
+
+        System.out.printf("per-request auth: session token %6.2f us, BCrypt(12) password check %10.1f us%n",
+                tokenMicros, bcryptMicros);
+    }
+}
@@ -0,0 +1,156 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.exception.EmailAlreadyExistsException;
+import com.kostas.banking.repository.CustomerRepository;
+import com.kostas.banking.security.PasswordHasher;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// NOTE: the relay polls the outbox through the same pool - slowed down so only the sign-up can check out a connection
+@SpringBootTest(properties = "banking.events.poll-interval=PT1H")
+class CustomerRegistrationTest {
+
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private LatchedPasswordHasher passwordHasher;
+
+    @Test
+    void registrationIsASingleInsert() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        String email = UUID.randomUUID() + "@test.com";
+
+        statistics.clear();
+        UUID id = customerService.createCustomer(signUp(email)).id();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(customerRepository.findById(id)).get()
+                .satisfies(customer -> assertThat(customer.getEmail()).isEqualTo(email));
+
+        statistics.clear();
+        assertThatThrownBy(() -> customerService.createCustomer(signUp(email)))
+                .isInstanceOf(EmailAlreadyExistsException.class);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentSignUpsWithTheSameEmailCreateOneCustomer() throws Exception {
+        String email = UUID.randomUUID() + "@test.com";
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(pool.submit(() -> customerService.createCustomer(signUp(email))));
+        }
+
+        int created = 0;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+                created++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(EmailAlreadyExistsException.class);
+            }
+        }
+        pool.shutdown();
+        assertThat(created).isEqualTo(1);
+        assertThat(customerRepository.findByEmail(email)).isPresent();
+    }
+
+    @Test
+    void noConnectionIsHeldWhileThePasswordHashes() throws Exception {
+        HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        passwordHasher.hold(hashing, release);
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> created = client.submit(() -> customerService.createCustomer(signUp(UUID.randomUUID() + "@test.com")));
+
+            assertThat(hashing.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(pool.getActiveConnections()).isZero();
+
+            release.countDown();
+            created.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            passwordHasher.hold(null, null);
+            client.shutdown();
+        }
+    }
+
+    private CustomerCreateDTO signUp(String email) {
+        return new CustomerCreateDTO("Registration Test", email, LocalDate.of(1990, 1, 1), "password");
+    }
+
+    /** Hashes normally, except that while held each hash waits for {@code release} after counting down {@code hashing}. */
+    static class LatchedPasswordHasher extends PasswordHasher {
+
+        private volatile CountDownLatch hashing;
+        private volatile CountDownLatch release;
+
+        LatchedPasswordHasher() {
+            super(4, 1, 16);
+        }
+
+        void hold(CountDownLatch hashing, CountDownLatch release) {
+            this.hashing = hashing;
+            this.release = release;
+        }
+
+        @Override
+        public String hash(String password) {
+            CountDownLatch hashing = this.hashing;
+            CountDownLatch release = this.release;
+            if (hashing != null) {
+                hashing.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.hash(password);
+        }
+    }
+
+    @TestConfiguration
+    static class LatchedHasherConfig {
+
+        @Bean
+        @Primary
+        LatchedPasswordHasher latchedPasswordHasher() {
+            return new LatchedPasswordHasher();
+        }
+    }
+}
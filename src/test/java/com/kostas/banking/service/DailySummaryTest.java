@@ -0,0 +1,145 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.DailySummaryDTO;
+import com.kostas.banking.dto.StatementDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.id.IdGenerator;
+import com.kostas.banking.model.Balance;
+import com.kostas.banking.model.Transaction;
+import com.kostas.banking.repository.AccountRepository;
+import com.kostas.banking.repository.BalanceRepository;
+import com.kostas.banking.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class DailySummaryTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private StatementService statementService;
+    @Autowired
+    private DailySummaryBackfill backfill;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private BalanceRepository balanceRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private IdGenerator idGenerator;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void postingsRollUpAsTheyHappenAndTheBackfillAgrees() {
+        UUID ownerId = newCustomer();
+        UUID account = newAccount(ownerId);
+        UUID other = newAccount(ownerId);
+        transactionService.createTransaction(posting(null, account, "100", TransactionType.DEPOSIT));
+        transactionService.createTransaction(posting(account, null, "30", TransactionType.WITHDRAWAL));
+        transactionService.createTransaction(posting(account, other, "20", TransactionType.TRANSFER));
+
+        StatementDTO statement = statementService.getStatement(account, CurrencyCode.USD, TODAY.minusDays(7), TODAY);
+        assertTotals(statement, "0", "50", "50", "100", 3);
+        assertThat(statement.days()).hasSize(1);
+        assertTotals(statementService.getStatement(other, CurrencyCode.USD, TODAY, TODAY), "0", "20", "0", "20", 1);
+
+        backfill.rebuild(account);
+        assertThat(statementService.getStatement(account, CurrencyCode.USD, TODAY.minusDays(7), TODAY))
+                .isEqualTo(statement);
+    }
+
+    @Test
+    void theBackfillChainsDaysBackFromTheBalance() {
+        UUID account = newAccount(newCustomer());
+        transactionService.createTransaction(posting(null, account, "100", TransactionType.DEPOSIT));
+        // NOTE: history from before the summaries existed - posted on earlier days, no summary rows
+        seedPosted(account, TODAY.minusDays(3), "40", false);
+        seedPosted(account, TODAY.minusDays(3), "10", true);
+        seedPosted(account, TODAY.minusDays(1), "5", true);
+
+        backfill.rebuild(account);
+
+        StatementDTO statement = statementService.getStatement(account, CurrencyCode.USD, TODAY.minusDays(3), TODAY);
+        assertTotals(statement, "0", "125", "15", "140", 4);
+        assertThat(statement.days()).extracting(DailySummaryDTO::day)
+                .containsExactly(TODAY.minusDays(3), TODAY.minusDays(1), TODAY);
+        assertThat(statement.days().get(1).opening()).isEqualByComparingTo("30");
+        assertThat(statement.days().get(1).closing()).isEqualByComparingTo("25");
+
+        // a quiet range in between is answered from the day before it
+        assertTotals(statementService.getStatement(account, CurrencyCode.USD, TODAY.minusDays(2), TODAY.minusDays(2)),
+                "30", "30", "0", "0", 0);
+    }
+
+    private void seedPosted(UUID accountId, LocalDate day, String amount, boolean debit) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Transaction transaction = new Transaction();
+            transaction.setId(idGenerator.next());
+            transaction.setReferenceNumber("TXN-" + UUID.randomUUID());
+            if (debit) {
+                transaction.setDebitAccount(accountRepository.getReferenceById(accountId));
+            } else {
+                transaction.setCreditAccount(accountRepository.getReferenceById(accountId));
+            }
+            transaction.setAmount(new BigDecimal(amount));
+            transaction.setCurrency(CurrencyCode.USD);
+            transaction.setType(debit ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT);
+            transaction.setStatus(TransactionStatus.COMPLETED);
+            transaction.setPostedAt(day.atTime(12, 0));
+            transactionRepository.save(transaction);
+            Balance balance = balanceRepository.findByAccountIdAndCurrency(accountId, CurrencyCode.USD).orElseThrow();
+            BigDecimal delta = new BigDecimal(amount);
+            balance.setAmount(debit ? balance.getAmount().subtract(delta) : balance.getAmount().add(delta));
+        });
+    }
+
+    private static void assertTotals(StatementDTO statement, String opening, String closing, String debits,
+                                     String credits, long count) {
+        assertThat(statement.opening()).isEqualByComparingTo(opening);
+        assertThat(statement.closing()).isEqualByComparingTo(closing);
+        assertThat(statement.debits()).isEqualByComparingTo(debits);
+        assertThat(statement.credits()).isEqualByComparingTo(credits);
+        assertThat(statement.count()).isEqualTo(count);
+    }
+
+    private UUID newCustomer() {
+        return customerService.createCustomer(new CustomerCreateDTO(
+                "Summary Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+    }
+
+    private UUID newAccount(UUID ownerId) {
+        return accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        )).id();
+    }
+
+    private TransactionCreateDTO posting(UUID debit, UUID credit, String amount, TransactionType type) {
+        return new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), debit, credit, new BigDecimal(amount), CurrencyCode.USD, type
+        );
+    }
+}
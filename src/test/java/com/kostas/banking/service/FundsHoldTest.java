@@ -0,0 +1,153 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.BalanceDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.dto.TransactionUpdateDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.exception.InsufficientFundsException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class FundsHoldTest {
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private BalanceService balanceService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private CustomerService customerService;
+
+    @Test
+    void holdsReduceAvailableUntilSettledOrReleased() {
+        UUID ownerId = customerService.createCustomer(new CustomerCreateDTO(
+                "Hold Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+        UUID account = newAccount(ownerId);
+        UUID other = newAccount(ownerId);
+        transactionService.createTransaction(posting(null, account, "100", TransactionType.DEPOSIT));
+
+        TransactionDTO first = transactionService.createHold(posting(account, other, "60", TransactionType.TRANSFER));
+        assertThat(first.status()).isEqualTo(TransactionStatus.PENDING);
+        assertBalance(account, "100", "60", "40");
+
+        assertThatThrownBy(() -> transactionService.createTransaction(posting(account, other, "50", TransactionType.TRANSFER)))
+                .isInstanceOf(InsufficientFundsException.class);
+        TransactionDTO second = transactionService.createHold(posting(account, other, "30", TransactionType.TRANSFER));
+        assertBalance(account, "100", "90", "10");
+
+        transactionService.updateTransaction(first.id(), new TransactionUpdateDTO(TransactionStatus.COMPLETED, null));
+        assertBalance(account, "40", "30", "10");
+        assertBalance(other, "60", "0", "60");
+
+        transactionService.updateTransaction(second.id(), new TransactionUpdateDTO(TransactionStatus.CANCELLED, null));
+        assertBalance(account, "40", "0", "40");
+        assertBalance(other, "60", "0", "60");
+
+        assertThatThrownBy(() -> transactionService.updateTransaction(first.id(), new TransactionUpdateDTO(TransactionStatus.PENDING, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(balanceService.getBalance(other, CurrencyCode.EUR).availableAmount()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void settledTransactionsKeepTheirBalanceEffect() {
+        UUID ownerId = customerService.createCustomer(new CustomerCreateDTO(
+                "Settled Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+        UUID account = newAccount(ownerId);
+        UUID other = newAccount(ownerId);
+        TransactionDTO deposit = transactionService.createTransaction(posting(null, account, "100", TransactionType.DEPOSIT));
+        TransactionDTO hold = transactionService.createHold(posting(account, other, "60", TransactionType.TRANSFER));
+        transactionService.updateTransaction(hold.id(), new TransactionUpdateDTO(TransactionStatus.FAILED, null));
+
+        assertThatThrownBy(() -> transactionService.updateTransaction(deposit.id(), new TransactionUpdateDTO(TransactionStatus.CANCELLED, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> transactionService.updateTransaction(hold.id(), new TransactionUpdateDTO(TransactionStatus.COMPLETED, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> transactionService.deleteTransaction(deposit.id()))
+                .isInstanceOf(IllegalArgumentException.class);
+        // repeating the state it is in changes nothing
+        assertThat(transactionService.updateTransaction(deposit.id(), new TransactionUpdateDTO(TransactionStatus.COMPLETED, null)).status())
+                .isEqualTo(TransactionStatus.COMPLETED);
+        transactionService.deleteTransaction(hold.id());
+
+        assertBalance(account, "100", "0", "100");
+        assertBalance(other, "0", "0", "0");
+    }
+
+    @Test
+    void aHoldSettledTwiceAtOnceIsPostedOnce() throws Exception {
+        UUID ownerId = customerService.createCustomer(new CustomerCreateDTO(
+                "Hold Race Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+        UUID account = newAccount(ownerId);
+        UUID other = newAccount(ownerId);
+        transactionService.createTransaction(posting(null, account, "100", TransactionType.DEPOSIT));
+
+        int rounds = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < rounds; round++) {
+                TransactionDTO hold = transactionService.createHold(posting(account, other, "1", TransactionType.TRANSFER));
+                CyclicBarrier start = new CyclicBarrier(2);
+                List<Future<TransactionDTO>> settles = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    settles.add(pool.submit(() -> {
+                        start.await();
+                        return transactionService.updateTransaction(hold.id(), new TransactionUpdateDTO(TransactionStatus.COMPLETED, null));
+                    }));
+                }
+                // NOTE: the second PUT finds the hold COMPLETED already and repeats it - the debit happens once
+                for (Future<TransactionDTO> settle : settles) {
+                    assertThat(settle.get().status()).isEqualTo(TransactionStatus.COMPLETED);
+                }
+                assertBalance(account, String.valueOf(99 - round), "0", String.valueOf(99 - round));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertBalance(account, "80", "0", "80");
+        assertBalance(other, "20", "0", "20");
+    }
+
+    private void assertBalance(UUID accountId, String ledger, String held, String available) {
+        BalanceDTO balance = balanceService.getBalance(accountId, CurrencyCode.USD);
+        assertThat(balance.amount()).isEqualByComparingTo(ledger);
+        assertThat(balance.heldAmount()).isEqualByComparingTo(held);
+        assertThat(balance.availableAmount()).isEqualByComparingTo(available);
+    }
+
+    private UUID newAccount(UUID ownerId) {
+        return accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        )).id();
+    }
+
+    private TransactionCreateDTO posting(UUID debit, UUID credit, String amount, TransactionType type) {
+        return new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), debit, credit, new BigDecimal(amount), CurrencyCode.USD, type
+        );
+    }
+}
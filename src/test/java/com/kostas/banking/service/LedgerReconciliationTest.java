@@ -0,0 +1,115 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.archive.TransactionArchive;
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.BalanceCreateDTO;
+import com.kostas.banking.dto.BalanceDiscrepancyDTO;
+import com.kostas.banking.dto.BalanceDTO;
+import com.kostas.banking.dto.BalanceUpdateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.ReconciliationReportDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.repository.AccountRepository;
+import com.kostas.banking.repository.BalanceRepository;
+import com.kostas.banking.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class LedgerReconciliationTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private BalanceRepository balanceRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private TransactionArchive archive;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private BalanceService balanceService;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private TransactionService transactionService;
+
+    @Test
+    void balancesThatDriftedFromTheirPostingsAreReported() {
+        UUID ownerId = newCustomer();
+        UUID payer = newAccount(ownerId);
+        UUID payee = newAccount(ownerId);
+        UUID untouched = newAccount(ownerId);
+        transactionService.createTransaction(posting(null, payer, "100", TransactionType.DEPOSIT));
+        transactionService.createTransaction(posting(payer, payee, "30.25", TransactionType.TRANSFER));
+        transactionService.createTransaction(posting(null, untouched, "10", TransactionType.DEPOSIT));
+
+        // overwritten directly, and a balance no posting ever moved
+        BalanceDTO payerUsd = balanceService.getBalance(payer, CurrencyCode.USD);
+        balanceService.updateBalance(payerUsd.id(), new BalanceUpdateDTO(new BigDecimal("1000")));
+        balanceService.createBalance(new BalanceCreateDTO(payee, new BigDecimal("5"), CurrencyCode.EUR));
+
+        // pages of 3 accounts, split down to single accounts
+        ReconciliationReportDTO report = new LedgerReconciliation(accountRepository, balanceRepository,
+                transactionRepository, archive, transactionManager, false, Duration.ofHours(1), 2, 3, 1, 1000)
+                .reconcile();
+
+        Set<UUID> ours = Set.of(payer, payee, untouched);
+        List<BalanceDiscrepancyDTO> found = report.discrepancies().stream()
+                .filter(discrepancy -> ours.contains(discrepancy.accountId()))
+                .toList();
+        assertThat(found).hasSize(2);
+        assertThat(found).filteredOn(discrepancy -> discrepancy.accountId().equals(payer)).singleElement()
+                .satisfies(discrepancy -> {
+                    assertThat(discrepancy.currency()).isEqualTo(CurrencyCode.USD);
+                    assertThat(discrepancy.expected()).isEqualByComparingTo("69.75");
+                    assertThat(discrepancy.actual()).isEqualByComparingTo("1000");
+                    assertThat(discrepancy.difference()).isEqualByComparingTo("930.25");
+                });
+        assertThat(found).filteredOn(discrepancy -> discrepancy.accountId().equals(payee)).singleElement()
+                .satisfies(discrepancy -> {
+                    assertThat(discrepancy.currency()).isEqualTo(CurrencyCode.EUR);
+                    assertThat(discrepancy.expected()).isEqualByComparingTo("0");
+                    assertThat(discrepancy.difference()).isEqualByComparingTo("5");
+                });
+        assertThat(report.accounts()).isGreaterThanOrEqualTo(3);
+        assertThat(report.postings()).isGreaterThanOrEqualTo(4);
+        assertThat(report.discrepancies()).extracting(discrepancy -> discrepancy.difference().abs())
+                .isSortedAccordingTo((a, b) -> b.compareTo(a));
+    }
+
+    private UUID newCustomer() {
+        return customerService.createCustomer(new CustomerCreateDTO(
+                "Reconciliation Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+    }
+
+    private UUID newAccount(UUID ownerId) {
+        return accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        )).id();
+    }
+
+    private TransactionCreateDTO posting(UUID debit, UUID credit, String amount, TransactionType type) {
+        return new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), debit, credit, new BigDecimal(amount), CurrencyCode.USD, type
+        );
+    }
+}
@@ -0,0 +1,87 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.config.CacheConfig;
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.AccountDTO;
+import com.kostas.banking.dto.CacheStatsDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.CustomerUpdateDTO;
+import com.kostas.banking.enums.AccountStatus;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.exception.CustomerNotFoundException;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class LookupCacheTest {
+
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private CacheStatsService cacheStatsService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void accountLookupsAreServedFromCacheUntilTheAccountChanges() {
+        UUID ownerId = newCustomer(UUID.randomUUID() + "@test.com");
+        String accountNumber = "ACC-" + UUID.randomUUID();
+        UUID accountId = accountService.createAccount(new AccountCreateDTO(accountNumber, AccountType.CHECKING, ownerId)).id();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        accountService.getAccountByAccountNumber(accountNumber);
+        long hits = stats(CacheConfig.ACCOUNTS_BY_NUMBER).hits();
+        statistics.clear();
+        AccountDTO cached = accountService.getAccountByAccountNumber(accountNumber);
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(stats(CacheConfig.ACCOUNTS_BY_NUMBER).hits()).isEqualTo(hits + 1);
+        assertThat(cached.status()).isEqualTo(AccountStatus.ACTIVE);
+
+        accountService.deleteAccount(accountId);
+        assertThat(accountService.getAccountByAccountNumber(accountNumber).status()).isEqualTo(AccountStatus.CLOSED);
+
+        customerService.updateCustomer(ownerId, new CustomerUpdateDTO("Renamed", UUID.randomUUID() + "@test.com"));
+        assertThat(accountService.getAccountByAccountNumber(accountNumber).ownerFullName()).isEqualTo("Renamed");
+    }
+
+    @Test
+    void customerLookupsForgetTheOldEmail() {
+        String email = UUID.randomUUID() + "@test.com";
+        UUID customerId = newCustomer(email);
+        customerService.getCustomerByEmail(email);
+        customerService.getCustomerByEmail(email);
+
+        String changed = UUID.randomUUID() + "@test.com";
+        customerService.updateCustomer(customerId, new CustomerUpdateDTO("Cache Test", changed));
+
+        assertThatThrownBy(() -> customerService.getCustomerByEmail(email)).isInstanceOf(CustomerNotFoundException.class);
+        assertThat(customerService.getCustomerByEmail(changed).id()).isEqualTo(customerId);
+        assertThat(stats(CacheConfig.CUSTOMERS_BY_EMAIL).misses()).isPositive();
+    }
+
+    private CacheStatsDTO stats(String name) {
+        return cacheStatsService.getStats().stream()
+                .filter(stats -> stats.name().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private UUID newCustomer(String email) {
+        return customerService.createCustomer(new CustomerCreateDTO(
+                "Cache Test", email, LocalDate.of(1990, 1, 1), "password"
+        )).id();
+    }
+}
@@ -0,0 +1,95 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.exception.InsufficientFundsException;
+import com.kostas.banking.model.Balance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory part of a posting: balance arithmetic on scale-4 amounts the way the ledger applies a batch,
+ * and the funds check that runs before every withdrawal or transfer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PostingBenchmark {
+
+    private static final int POSTINGS = 1_000;
+
+    private BigDecimal[] deltas;
+    private Balance funded;
+    private Balance empty;
+    private TransactionCreateDTO transfer;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        deltas = new BigDecimal[POSTINGS];
+        for (int i = 0; i < POSTINGS; i++) {
+            // NOTE: amounts come in from JSON with 0-2 decimals, balances come back from the DB at scale 4
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(1_000_000), random.nextInt(3));
+            deltas[i] = i % 2 == 0 ? amount : amount.negate();
+        }
+        funded = balance("1000000.0000", "2500.0000");
+        empty = balance("10.0000", "0.0000");
+        transfer = new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                new BigDecimal("125.50"), CurrencyCode.EUR, TransactionType.TRANSFER
+        );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSTINGS)
+    public BigDecimal applyPostings() {
+        BigDecimal amount = new BigDecimal("1000000.0000");
+        BigDecimal held = new BigDecimal("2500.0000");
+        BigDecimal available = BigDecimal.ZERO;
+        for (BigDecimal delta : deltas) {
+            amount = amount.add(delta);
+            available = amount.subtract(held);
+        }
+        return available.compareTo(BigDecimal.ZERO) < 0 ? amount : available;
+    }
+
+    @Benchmark
+    public TransactionCreateDTO fundsAvailable() {
+        PostingEngine.checkFunds(funded, transfer);
+        return transfer;
+    }
+
+    @Benchmark
+    public Object insufficientFunds() {
+        try {
+            PostingEngine.checkFunds(empty, transfer);
+            return transfer;
+        } catch (InsufficientFundsException e) {
+            return e;
+        }
+    }
+
+    private static Balance balance(String amount, String held) {
+        Balance balance = new Balance();
+        balance.setAmount(new BigDecimal(amount));
+        balance.setHeldAmount(new BigDecimal(held));
+        balance.setCurrency(CurrencyCode.EUR);
+        return balance;
+    }
+}
@@ -0,0 +1,144 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.exception.InsufficientFundsException;
+import com.kostas.banking.repository.BalanceRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class PostingEngineConcurrencyTest {
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private BalanceRepository balanceRepository;
+
+    @Test
+    void concurrentTransfersBetweenHotAccountsLoseNoUpdates() throws Exception {
+        UUID ownerId = newCustomer();
+        UUID a = newAccount(ownerId, "10000");
+        UUID b = newAccount(ownerId, "10000");
+
+        int transfers = runTransfers(a, b, 8, 50);
+
+        assertThat(transfers).isEqualTo(8 * 50);
+        assertThat(usd(a).add(usd(b))).isEqualByComparingTo("20000");
+        // Even threads move a->b, odd threads b->a, so with 8 threads the net flow is zero
+        assertThat(usd(a)).isEqualByComparingTo("10000");
+    }
+
+    @Test
+    void concurrentWithdrawalsNeverOverdraw() throws Exception {
+        UUID ownerId = newCustomer();
+        UUID account = newAccount(ownerId, "100");
+        AtomicInteger rejected = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            futures.add(pool.submit(() -> {
+                try {
+                    transactionService.createTransaction(posting(account, null, "10", TransactionType.WITHDRAWAL));
+                } catch (InsufficientFundsException e) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertThat(rejected.get()).isEqualTo(30);
+        assertThat(usd(account)).isEqualByComparingTo("0");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void transfersPerSecondOnHotAccounts() throws Exception {
+        UUID ownerId = newCustomer();
+        UUID a = newAccount(ownerId, "1000000");
+        UUID b = newAccount(ownerId, "1000000");
+        runTransfers(a, b, 2, 500); // warm-up
+
+        for (int threads : new int[]{1, 4, 16}) {
+            long start = System.nanoTime();
+            int transfers = runTransfers(a, b, threads, 500);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("posting engine: %2d threads, %5d transfers, %8.1f transfers/s%n",
+                    threads, transfers, transfers / seconds);
+        }
+
+        assertThat(usd(a).add(usd(b))).isEqualByComparingTo("2000000");
+    }
+
+    private int runTransfers(UUID a, UUID b, int threads, int perThread) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            boolean forward = t % 2 == 0;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    transactionService.createTransaction(forward
+                            ? posting(a, b, "1", TransactionType.TRANSFER)
+                            : posting(b, a, "1", TransactionType.TRANSFER));
+                }
+                return perThread;
+            }));
+        }
+        int total = 0;
+        for (Future<Integer> future : futures) {
+            total += future.get();
+        }
+        pool.shutdown();
+        return total;
+    }
+
+    private UUID newCustomer() {
+        return customerService.createCustomer(new CustomerCreateDTO(
+                "Posting Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+    }
+
+    private UUID newAccount(UUID ownerId, String deposit) {
+        UUID id = accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        )).id();
+        transactionService.createTransaction(posting(null, id, deposit, TransactionType.DEPOSIT));
+        return id;
+    }
+
+    private TransactionCreateDTO posting(UUID debit, UUID credit, String amount, TransactionType type) {
+        return new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), debit, credit, new BigDecimal(amount), CurrencyCode.USD, type
+        );
+    }
+
+    private BigDecimal usd(UUID accountId) {
+        return balanceRepository.findByAccountIdAndCurrency(accountId, CurrencyCode.USD).orElseThrow().getAmount();
+    }
+}
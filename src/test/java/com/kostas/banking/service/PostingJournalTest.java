@@ -0,0 +1,301 @@
+package com.kostas.banking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.exception.PostingUnavailableException;
+import com.kostas.banking.id.IdGenerator;
+import com.kostas.banking.model.Balance;
+import com.kostas.banking.repository.BalanceRepository;
+import com.kostas.banking.repository.OutboxEventRepository;
+import com.kostas.banking.repository.TransactionRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class PostingJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Autowired
+    private PostingEngine postingEngine;
+    @Autowired
+    private IdGenerator idGenerator;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private BalanceRepository balanceRepository;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void acknowledgedPostingsAreAppliedAndRejectionsRecorded() throws Exception {
+        UUID ownerId = newCustomer();
+        UUID payer = newAccount(ownerId, "0");
+        UUID payee = newAccount(ownerId, "0");
+
+        PostingJournal journal = journal(directory);
+        TransactionDTO deposit;
+        TransactionDTO transfer;
+        TransactionDTO overdraft;
+        try {
+            deposit = journal.append(posting(null, payer, "100", TransactionType.DEPOSIT)).join();
+            transfer = journal.append(posting(payer, payee, "30", TransactionType.TRANSFER)).join();
+            overdraft = journal.append(posting(payer, payee, "500", TransactionType.TRANSFER)).join();
+            assertThat(deposit.status()).isEqualTo(TransactionStatus.PENDING);
+
+            awaitApplied(journal, deposit, transfer, overdraft);
+        } finally {
+            journal.shutdown();
+        }
+
+        // applied under the ids they were acknowledged with
+        assertThat(status(deposit)).isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(status(transfer)).isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(status(overdraft)).isEqualTo(TransactionStatus.FAILED);
+        assertThat(usd(payer)).isEqualByComparingTo("70");
+        assertThat(usd(payee)).isEqualByComparingTo("30");
+
+        // the rejection's event carries the row as inserted
+        TransactionDTO event = objectMapper.readValue(outboxEventRepository.findAll().stream()
+                .filter(e -> e.getPayload().contains(overdraft.id().toString()))
+                .findFirst().orElseThrow().getPayload(), TransactionDTO.class);
+        assertThat(event.status()).isEqualTo(TransactionStatus.FAILED);
+        assertThat(event.createdAt()).isNotNull();
+    }
+
+    @Test
+    void whatWasNotAppliedIsReplayedAfterACrash() throws Exception {
+        UUID account = newAccount(newCustomer(), "0");
+
+        // the database is "down": postings are acknowledged but never applied
+        PostingJournal crashed = new PostingJournal(entries -> {
+            throw new IllegalStateException("database is down");
+        }, idGenerator, directory.toString(), DataSize.ofMegabytes(1), Duration.ofMillis(1), 64, 1024);
+        TransactionDTO first = crashed.append(posting(null, account, "10", TransactionType.DEPOSIT)).join();
+        TransactionDTO second = crashed.append(posting(null, account, "15", TransactionType.DEPOSIT)).join();
+        crashed.shutdown();
+        tearLastRecord();
+
+        PostingJournal recovered = journal(directory);
+        try {
+            awaitApplied(recovered, first, second);
+        } finally {
+            recovered.shutdown();
+        }
+        assertThat(usd(account)).isEqualByComparingTo("25");
+        assertThat(transactionRepository.findDtoById(first.id())).get()
+                .extracting(TransactionDTO::status).isEqualTo(TransactionStatus.COMPLETED);
+
+        // replaying again changes nothing - both reference numbers are taken
+        PostingJournal replayed = journal(directory);
+        try {
+            awaitApplied(replayed, first, second);
+        } finally {
+            replayed.shutdown();
+        }
+        assertThat(usd(account)).isEqualByComparingTo("25");
+    }
+
+    @Test
+    void aReferenceNumberTakenElsewhereIsRecordedAsFailed() throws Exception {
+        UUID account = newAccount(newCustomer(), "0");
+
+        PostingJournal crashed = new PostingJournal(entries -> {
+            throw new IllegalStateException("database is down");
+        }, idGenerator, directory.toString(), DataSize.ofMegabytes(1), Duration.ofMillis(1), 64, 1024);
+        TransactionCreateDTO journaled = posting(null, account, "10", TransactionType.DEPOSIT);
+        TransactionDTO acknowledged = crashed.append(journaled).join();
+        crashed.shutdown();
+        // meanwhile another node posts the same reference number
+        postingEngine.post(new TransactionCreateDTO(journaled.referenceNumber(), null, account,
+                new BigDecimal("7"), CurrencyCode.USD, TransactionType.DEPOSIT));
+
+        for (int replay = 0; replay < 2; replay++) {
+            PostingJournal recovered = journal(directory);
+            try {
+                awaitApplied(recovered, acknowledged);
+            } finally {
+                recovered.shutdown();
+            }
+        }
+        TransactionDTO rejected = transactionRepository.findDtoById(acknowledged.id()).orElseThrow();
+        assertThat(rejected.status()).isEqualTo(TransactionStatus.FAILED);
+        assertThat(rejected.referenceNumber())
+                .isEqualTo(PostingEngine.rejectedReferenceNumber(journaled.referenceNumber(), acknowledged.id()));
+        assertThat(usd(account)).isEqualByComparingTo("7");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void journaledVersusDirectAcknowledgedPostings() throws Exception {
+        UUID ownerId = newCustomer();
+        List<UUID> accounts = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            accounts.add(newAccount(ownerId, "0"));
+        }
+
+        int threads = 16;
+        int perThread = 500;
+        PostingJournal journal = journal(directory);
+        try {
+            run(threads, 50, accounts, dto -> postingEngine.post(dto)); // warm-up
+            run(threads, 50, accounts, dto -> journal.append(dto).join());
+
+            double direct = run(threads, perThread, accounts, dto -> postingEngine.post(dto));
+            double journaled = run(threads, perThread, accounts, dto -> journal.append(dto).join());
+
+            // NOTE: H2 in memory never fsyncs, so the direct number is a ceiling for what Postgres would do
+            System.out.printf("%d threads: direct %8.1f postings/s, journaled %8.1f acknowledged postings/s%n",
+                    threads, direct, journaled);
+        } finally {
+            journal.shutdown();
+        }
+    }
+
+    @Test
+    void aPostingAppendedAfterShutdownFailsInsteadOfWaiting() {
+        UUID account = newAccount(newCustomer(), "0");
+        PostingJournal journal = journal(directory);
+        journal.shutdown();
+
+        TransactionCreateDTO posting = posting(null, account, "5", TransactionType.DEPOSIT);
+        CompletableFuture<TransactionDTO> acknowledged = journal.append(posting);
+        assertThatThrownBy(() -> acknowledged.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(PostingUnavailableException.class);
+        assertThat(journal.find(posting.referenceNumber())).isEmpty();
+    }
+
+    private PostingJournal journal(Path directory) {
+        return new PostingJournal(postingEngine, idGenerator, directory.toString(), DataSize.ofMegabytes(1),
+                Duration.ofMillis(1), 256, 8192);
+    }
+
+    // NOTE: a crash in the middle of a write - the last record's payload no longer matches its checksum
+    private void tearLastRecord() throws IOException {
+        Path file;
+        try (Stream<Path> files = Files.list(directory)) {
+            file = files.filter(path -> path.toString().endsWith(".wal")).sorted().reduce((a, b) -> b).orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int position = 0;
+            int last = 0;
+            while (buffer.getInt(position) > 0) {
+                last = position;
+                position += 16 + buffer.getInt(position);
+            }
+            // a third record, half written
+            buffer.putInt(position, buffer.getInt(last));
+            buffer.putInt(position + 4, 0);
+            buffer.putLong(position + 8, Long.MAX_VALUE);
+            buffer.force();
+        }
+    }
+
+    private TransactionStatus status(TransactionDTO acknowledged) {
+        return transactionRepository.findDtoById(acknowledged.id()).orElseThrow().status();
+    }
+
+    private void awaitApplied(PostingJournal journal, TransactionDTO... acknowledged) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        for (TransactionDTO transaction : acknowledged) {
+            while (journal.find(transaction.referenceNumber()).isPresent()) {
+                assertThat(System.nanoTime()).as("applied in time").isLessThan(deadline);
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private double run(int threads, int perThread, List<UUID> accounts, Consumer<TransactionCreateDTO> poster) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            UUID account = accounts.get(t % accounts.size());
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    poster.accept(posting(null, account, "1", TransactionType.DEPOSIT));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+        return threads * perThread / seconds;
+    }
+
+    private UUID newCustomer() {
+        return customerService.createCustomer(new CustomerCreateDTO(
+                "Journal Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+    }
+
+    private UUID newAccount(UUID ownerId, String deposit) {
+        UUID id = accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        )).id();
+        if (new BigDecimal(deposit).signum() > 0) {
+            transactionService.createTransaction(posting(null, id, deposit, TransactionType.DEPOSIT));
+        }
+        return id;
+    }
+
+    private TransactionCreateDTO posting(UUID debit, UUID credit, String amount, TransactionType type) {
+        return new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), debit, credit, new BigDecimal(amount), CurrencyCode.USD, type
+        );
+    }
+
+    private BigDecimal usd(UUID accountId) {
+        return balanceRepository.findByAccountIdAndCurrency(accountId, CurrencyCode.USD)
+                .map(Balance::getAmount)
+                .orElse(BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,160 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.exception.InsufficientFundsException;
+import com.kostas.banking.model.Balance;
+import com.kostas.banking.repository.BalanceRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class PostingSequencerTest {
+
+    @Autowired
+    private PostingEngine postingEngine;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private BalanceRepository balanceRepository;
+
+    @Test
+    void batchedPostingsFailIndividually() {
+        UUID ownerId = newCustomer();
+        UUID payroll = newAccount(ownerId, "100");
+        UUID employee = newAccount(ownerId, "0");
+
+        PostingSequencer sequencer = new PostingSequencer(postingEngine, 2, 1024, 64);
+        try {
+            List<CompletableFuture<TransactionDTO>> futures = new ArrayList<>();
+            for (int i = 0; i < 15; i++) {
+                futures.add(sequencer.submit(transfer(payroll, employee, "10")));
+            }
+
+            int rejected = 0;
+            for (CompletableFuture<TransactionDTO> future : futures) {
+                try {
+                    future.join();
+                } catch (CompletionException e) {
+                    assertThat(e.getCause()).isInstanceOf(InsufficientFundsException.class);
+                    rejected++;
+                }
+            }
+
+            assertThat(rejected).isEqualTo(5);
+            assertThat(usd(payroll)).isEqualByComparingTo("0");
+            assertThat(usd(employee)).isEqualByComparingTo("100");
+        } finally {
+            sequencer.shutdown();
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void sequencerVersusPerRequestPostingOnHotAccount() throws Exception {
+        UUID ownerId = newCustomer();
+        UUID payroll = newAccount(ownerId, "100000000");
+        List<UUID> employees = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            employees.add(newAccount(ownerId, "0"));
+        }
+
+        int threads = 16;
+        int perThread = 300;
+        PostingSequencer sequencer = new PostingSequencer(postingEngine, 4, 4096, 256);
+        try {
+            run(threads, 50, employees, dto -> postingEngine.post(dto), payroll); // warm-up
+            run(threads, 50, employees, dto -> sequencer.submit(dto).join(), payroll);
+
+            double direct = run(threads, perThread, employees, dto -> postingEngine.post(dto), payroll);
+            double sequenced = run(threads, perThread, employees, dto -> sequencer.submit(dto).join(), payroll);
+
+            System.out.printf("hot account, %d threads: per-request %8.1f postings/s, sequencer %8.1f postings/s%n",
+                    threads, direct, sequenced);
+        } finally {
+            sequencer.shutdown();
+        }
+
+        BigDecimal paid = BigDecimal.ZERO;
+        for (UUID employee : employees) {
+            paid = paid.add(usd(employee));
+        }
+        assertThat(usd(payroll).add(paid)).isEqualByComparingTo("100000000");
+    }
+
+    private double run(int threads, int perThread, List<UUID> employees,
+                       Consumer<TransactionCreateDTO> poster, UUID payroll) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            UUID employee = employees.get(t % employees.size());
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    poster.accept(transfer(payroll, employee, "1"));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+        return threads * perThread / seconds;
+    }
+
+    private UUID newCustomer() {
+        return customerService.createCustomer(new CustomerCreateDTO(
+                "Sequencer Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+    }
+
+    private UUID newAccount(UUID ownerId, String deposit) {
+        UUID id = accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        )).id();
+        if (new BigDecimal(deposit).signum() > 0) {
+            transactionService.createTransaction(new TransactionCreateDTO(
+                    "TXN-" + UUID.randomUUID(), null, id, new BigDecimal(deposit), CurrencyCode.USD, TransactionType.DEPOSIT
+            ));
+        }
+        return id;
+    }
+
+    private TransactionCreateDTO transfer(UUID debit, UUID credit, String amount) {
+        return new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), debit, credit, new BigDecimal(amount), CurrencyCode.USD, TransactionType.TRANSFER
+        );
+    }
+
+    private BigDecimal usd(UUID accountId) {
+        return balanceRepository.findByAccountIdAndCurrency(accountId, CurrencyCode.USD)
+                .map(Balance::getAmount)
+                .orElse(BigDecimal.ZERO);
+    }
+}
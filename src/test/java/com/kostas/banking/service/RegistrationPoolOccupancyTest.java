@@ -0,0 +1,120 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.id.IdGenerator;
+import com.kostas.banking.model.Customer;
+import com.kostas.banking.repository.CustomerRepository;
+import com.kostas.banking.security.PasswordHasher;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+
+/**
+ * Fires the same burst of sign-ups through the old registration (hash inside the transaction) and the current one,
+ * sampling the connection pool every millisecond. Runs with a production-like cost so a hash takes real time.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "banking.password.cost=10")
+class RegistrationPoolOccupancyTest {
+
+    private static final int CLIENTS = 32;
+    private static final int SIGN_UPS = 256;
+
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private PasswordHasher passwordHasher;
+    @Autowired
+    private IdGenerator idGenerator;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void connectionPoolOccupancyDuringARegistrationBurst() throws Exception {
+        HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+        burst(pool, this::registerInsideTransaction); // warm-up
+        burst(pool, customerService::createCustomer);
+
+        System.out.printf("pool size %d, %d clients, %d sign-ups%n", pool.getTotalConnections(), CLIENTS, SIGN_UPS);
+        print("hash in transaction", burst(pool, this::registerInsideTransaction));
+        print("hash before insert", burst(pool, customerService::createCustomer));
+    }
+
+    // NOTE: what createCustomer used to do
+    private void registerInsideTransaction(CustomerCreateDTO dto) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (customerRepository.existsByEmail(dto.email())) {
+                throw new IllegalStateException(dto.email());
+            }
+            Customer customer = new Customer();
+            customer.setId(idGenerator.next());
+            customer.setFullName(dto.fullName());
+            customer.setEmail(dto.email());
+            customer.setDateOfBirth(dto.dateOfBirth());
+            customer.setPasswordHash(passwordHasher.hash(dto.password()));
+            customerRepository.save(customer);
+        });
+    }
+
+    private long[] burst(HikariPoolMXBean pool, Consumer<CustomerCreateDTO> register) throws Exception {
+        long[] samples = new long[4]; // count, active sum, peak active, peak awaiting
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                int active = pool.getActiveConnections();
+                samples[0]++;
+                samples[1] += active;
+                samples[2] = Math.max(samples[2], active);
+                samples[3] = Math.max(samples[3], pool.getThreadsAwaitingConnection());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < SIGN_UPS; i++) {
+            CustomerCreateDTO dto = new CustomerCreateDTO(
+                    "Pool Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+            );
+            futures.add(clients.submit(() -> register.accept(dto)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+        sampler.interrupt();
+        sampler.join();
+
+        return new long[]{elapsed, samples[1] * 100 / Math.max(samples[0], 1), samples[2], samples[3]};
+    }
+
+    private void print(String name, long[] result) {
+        System.out.printf("%-20s %6.1f sign-ups/s, active connections avg %5.2f peak %2d, threads waiting peak %2d%n",
+                name, SIGN_UPS / (result[0] / 1e9), result[1] / 100.0, result[2], result[3]);
+    }
+}
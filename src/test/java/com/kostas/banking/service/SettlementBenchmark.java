@@ -0,0 +1,154 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.id.IdGenerator;
+import com.kostas.banking.model.Balance;
+import com.kostas.banking.model.Transaction;
+import com.kostas.banking.repository.AccountRepository;
+import com.kostas.banking.repository.BalanceRepository;
+import com.kostas.banking.repository.TransactionRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Settlements per second as the claim batch grows, with one settler and with several competing for the same
+ * backlog the way several nodes would:
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=SettlementBenchmark
+ * </pre>
+ * Each round seeds {@code HOLDS} PENDING transfers spread over {@code ACCOUNTS} funded accounts (inserted
+ * directly, holds included, so seeding doesn't dominate the run) and times settling all of them.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class SettlementBenchmark {
+
+    private static final int HOLDS = 4_000;
+    private static final int ACCOUNTS = 50;
+    private static final int[] BATCH_SIZES = {1, 10, 50, 200, 1_000};
+    private static final int[] SETTLERS = {1, 4};
+
+    @Autowired
+    private PostingEngine postingEngine;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private BalanceRepository balanceRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private IdGenerator idGenerator;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void settlementsPerSecondByBatchSize() throws Exception {
+        UUID ownerId = customerService.createCustomer(new CustomerCreateDTO(
+                "Settlement Benchmark", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+        List<UUID> sources = new ArrayList<>();
+        List<UUID> targets = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            sources.add(newAccount(ownerId));
+            targets.add(newAccount(ownerId));
+            transactionService.createTransaction(new TransactionCreateDTO("TXN-" + UUID.randomUUID(), null,
+                    sources.get(i), new BigDecimal("1000000"), CurrencyCode.USD, TransactionType.DEPOSIT));
+        }
+
+        settle(1_000, 1); // drain whatever other tests left behind
+        seed(sources, targets);
+        settle(200, 1); // warm-up
+
+        System.out.printf("%d holds over %d accounts per round%n", HOLDS, ACCOUNTS);
+        System.out.printf("%10s %8s %14s%n", "batch", "settlers", "settlements/s");
+        for (int settlers : SETTLERS) {
+            for (int batchSize : BATCH_SIZES) {
+                seed(sources, targets);
+                long start = System.nanoTime();
+                int settled = settle(batchSize, settlers);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%10d %8d %14.0f%n", batchSize, settlers, settled / seconds);
+            }
+        }
+    }
+
+    private int settle(int batchSize, int settlers) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(settlers);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < settlers; i++) {
+                futures.add(executor.submit(() -> {
+                    int settled = 0;
+                    PostingEngine.Settlement settlement;
+                    do {
+                        settlement = postingEngine.settlePending(LocalDateTime.now(), batchSize);
+                        settled += settlement.settled();
+                    } while (settlement.claimed() > 0);
+                    return settled;
+                }));
+            }
+            int settled = 0;
+            for (Future<Integer> future : futures) {
+                settled += future.get();
+            }
+            return settled;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void seed(List<UUID> sources, List<UUID> targets) {
+        BigDecimal amount = BigDecimal.ONE;
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Transaction> holds = new ArrayList<>(HOLDS);
+            for (int i = 0; i < HOLDS; i++) {
+                Transaction hold = new Transaction();
+                hold.setId(idGenerator.next());
+                hold.setReferenceNumber("TXN-" + UUID.randomUUID());
+                hold.setDebitAccount(accountRepository.getReferenceById(sources.get(i % ACCOUNTS)));
+                hold.setCreditAccount(accountRepository.getReferenceById(targets.get(i % ACCOUNTS)));
+                hold.setAmount(amount);
+                hold.setCurrency(CurrencyCode.USD);
+                hold.setType(TransactionType.TRANSFER);
+                hold.setStatus(TransactionStatus.PENDING);
+                holds.add(hold);
+            }
+            transactionRepository.saveAll(holds);
+            BigDecimal held = amount.multiply(BigDecimal.valueOf(HOLDS / ACCOUNTS));
+            for (Balance balance : balanceRepository.findByAccountIdIn(sources)) {
+                balance.setHeldAmount(balance.getHeldAmount().add(held));
+            }
+        });
+    }
+
+    private UUID newAccount(UUID ownerId) {
+        return accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        )).id();
+    }
+}
@@ -0,0 +1,123 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.BalanceDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class SettlementTest {
+
+    private static final int HOLDS = 200;
+
+    @Autowired
+    private PostingEngine postingEngine;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private BalanceService balanceService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private CustomerService customerService;
+
+    @Test
+    void holdsAreSettledOrFailedAndReleased() {
+        UUID ownerId = newCustomer();
+        UUID account = newAccount(ownerId);
+        UUID other = newAccount(ownerId);
+        UUID closed = newAccount(ownerId);
+        transactionService.createTransaction(posting(null, account, "100", TransactionType.DEPOSIT));
+        TransactionDTO settles = transactionService.createHold(posting(account, other, "30", TransactionType.TRANSFER));
+        TransactionDTO fails = transactionService.createHold(posting(account, closed, "20", TransactionType.TRANSFER));
+        accountService.deleteAccount(closed);
+
+        settleAll(100);
+
+        TransactionDTO settled = transactionService.getTransaction(settles.id());
+        assertThat(settled.status()).isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(settled.postedAt()).isNotNull();
+        assertThat(transactionService.getTransaction(fails.id()).status()).isEqualTo(TransactionStatus.FAILED);
+        assertBalance(account, "70", "0");
+        assertBalance(other, "30", "0");
+    }
+
+    // NOTE: a transaction settled twice would move its amount twice - the balances catch it
+    @Test
+    void concurrentSettlersNeverClaimTheSameHold() throws Exception {
+        UUID ownerId = newCustomer();
+        UUID account = newAccount(ownerId);
+        UUID other = newAccount(ownerId);
+        transactionService.createTransaction(posting(null, account, "1000", TransactionType.DEPOSIT));
+        List<UUID> holds = new ArrayList<>();
+        for (int i = 0; i < HOLDS; i++) {
+            holds.add(transactionService.createHold(posting(account, other, "1", TransactionType.TRANSFER)).id());
+        }
+
+        try (ExecutorService settlers = Executors.newFixedThreadPool(4)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(settlers.submit(() -> settleAll(10)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        for (UUID hold : holds) {
+            assertThat(transactionService.getTransaction(hold).status()).isEqualTo(TransactionStatus.COMPLETED);
+        }
+        assertBalance(account, String.valueOf(1000 - HOLDS), "0");
+        assertBalance(other, String.valueOf(HOLDS), "0");
+    }
+
+    private void settleAll(int batchSize) {
+        while (postingEngine.settlePending(LocalDateTime.now(), batchSize).claimed() > 0) {
+            // keep claiming until nothing is left
+        }
+    }
+
+    private void assertBalance(UUID accountId, String ledger, String held) {
+        BalanceDTO balance = balanceService.getBalance(accountId, CurrencyCode.USD);
+        assertThat(balance.amount()).isEqualByComparingTo(ledger);
+        assertThat(balance.heldAmount()).isEqualByComparingTo(held);
+    }
+
+    private UUID newCustomer() {
+        return customerService.createCustomer(new CustomerCreateDTO(
+                "Settlement Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+    }
+
+    private UUID newAccount(UUID ownerId) {
+        return accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        )).id();
+    }
+
+    private TransactionCreateDTO posting(UUID debit, UUID credit, String amount, TransactionType type) {
+        return new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), debit, credit, new BigDecimal(amount), CurrencyCode.USD, type
+        );
+    }
+}
@@ -0,0 +1,183 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.archive.TransactionArchive;
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.KeysetCursor;
+import com.kostas.banking.dto.PageDTO;
+import com.kostas.banking.dto.StatementDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.dto.TransactionFilter;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.exception.DuplicateReferenceNumberException;
+import com.kostas.banking.repository.BalanceRepository;
+import com.kostas.banking.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class TransactionArchiveTest {
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void archiveDirectory(DynamicPropertyRegistry registry) {
+        registry.add("banking.archive.directory", directory::toString);
+    }
+
+    @Autowired
+    private TransactionArchiver archiver;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private StatementService statementService;
+    @Autowired
+    private DailySummaryBackfill backfill;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private BalanceRepository balanceRepository;
+
+    @Test
+    void archivedTransactionsAreStillReadableAndStillIdempotent() throws IOException {
+        UUID ownerId = newCustomer();
+        UUID account = newAccount(ownerId);
+        UUID other = newAccount(ownerId);
+        TransactionCreateDTO deposit = posting(null, account, "100", TransactionType.DEPOSIT);
+        transactionService.createTransaction(deposit);
+        transactionService.createTransaction(posting(account, null, "30", TransactionType.WITHDRAWAL));
+        transactionService.createTransaction(posting(account, other, "20", TransactionType.TRANSFER));
+        TransactionDTO hold = transactionService.createHold(posting(account, null, "5", TransactionType.WITHDRAWAL));
+        StatementDTO statement = statementService.getStatement(account, CurrencyCode.USD, LocalDate.now(), LocalDate.now());
+
+        assertThat(archiver.archive(LocalDateTime.now().plusSeconds(1))).isGreaterThanOrEqualTo(3);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.filter(file -> file.toString().endsWith(".seg"))).isNotEmpty();
+        }
+        assertThat(transactionRepository.findDtoByReferenceNumber(deposit.referenceNumber())).isEmpty();
+        TransactionDTO archived = transactionService.getTransactionByReferenceNumber(deposit.referenceNumber());
+        assertThat(archived.creditAccountId()).isEqualTo(account);
+        assertThat(archived.amount()).isEqualByComparingTo("100");
+        assertThat(archived.status()).isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(archived.postedAt()).isNotNull();
+
+        // the pending hold stays in the table, the settled history comes from the archive, pages merge both
+        List<TransactionDTO> history = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageDTO<TransactionDTO> page = transactionService.getAccountHistory(account, TransactionFilter.NONE, cursor, 2);
+            history.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        assertThat(history).hasSize(4);
+        assertThat(history.get(0).id()).isEqualTo(hold.id());
+        assertThat(history).extracting(TransactionDTO::createdAt).isSortedAccordingTo((a, b) -> b.compareTo(a));
+        assertThat(transactionService.getAccountHistory(account,
+                new TransactionFilter(null, null, TransactionType.TRANSFER, null, null, null), null, 10).items())
+                .singleElement().extracting(TransactionDTO::creditAccountId).isEqualTo(other);
+
+        // one side at a time, paged the same way: the withdrawal, the transfer and the hold are debits
+        List<TransactionDTO> debits = new ArrayList<>();
+        cursor = null;
+        do {
+            PageDTO<TransactionDTO> page = transactionService.getTransactionsByDebitAccountId(account, cursor, 1);
+            debits.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        assertThat(debits).hasSize(3).allMatch(transaction -> account.equals(transaction.debitAccountId()));
+        assertThat(transactionService.getTransactionsByCreditAccountId(account, null, 10).items())
+                .singleElement().extracting(TransactionDTO::referenceNumber).isEqualTo(deposit.referenceNumber());
+        String idOnly = new KeysetCursor(null, hold.id()).encode();
+        assertThatThrownBy(() -> transactionService.getTransactionsByDebitAccountId(account, idOnly, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // resubmitting an archived reference number replays it instead of posting it again
+        TransactionService.Submission replayed = transactionService.submitTransaction(deposit);
+        assertThat(replayed.replayed()).isTrue();
+        assertThat(replayed.transaction().id()).isEqualTo(archived.id());
+        assertThat(balanceRepository.findByAccountIdAndCurrency(account, CurrencyCode.USD).orElseThrow().getAmount())
+                .isEqualByComparingTo("50");
+        assertThatThrownBy(() -> transactionService.createTransaction(new TransactionCreateDTO(
+                deposit.referenceNumber(), null, account, new BigDecimal("1"), CurrencyCode.USD, TransactionType.DEPOSIT)))
+                .isInstanceOf(DuplicateReferenceNumberException.class);
+
+        // the summaries can still be rebuilt once the postings are gone from the table
+        backfill.rebuild(account);
+        assertThat(statementService.getStatement(account, CurrencyCode.USD, LocalDate.now(), LocalDate.now()))
+                .isEqualTo(statement);
+    }
+
+    @Test
+    void anAccountRangeIsWalkedOnceEachRowAcrossSegments(@TempDir Path segments) {
+        UUID first = new UUID(0, 1);
+        UUID second = new UUID(0, 2);
+        UUID outside = new UUID(0, 10);
+        TransactionDTO transfer = archived(first, second);
+        TransactionDTO deposit = archived(null, second);
+        TransactionDTO elsewhere = archived(outside, new UUID(0, 11));
+
+        TransactionArchive archive = new TransactionArchive(segments.toString(), Duration.ofHours(1));
+        archive.write(List.of(transfer, deposit, elsewhere));
+        // NOTE: archived again after the database delete rolled back
+        archive.write(List.of(transfer));
+
+        List<UUID> walked = new ArrayList<>();
+        archive.forEachRow(first, second, row -> walked.add(row.id()));
+        assertThat(walked).containsExactlyInAnyOrder(transfer.id(), deposit.id());
+    }
+
+    private static TransactionDTO archived(UUID debit, UUID credit) {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        return new TransactionDTO(UUID.randomUUID(), "TXN-" + UUID.randomUUID(),
+                debit, debit != null ? "ACC-" + debit : null, credit, "ACC-" + credit, new BigDecimal("10.0000"),
+                CurrencyCode.USD, debit != null ? TransactionType.TRANSFER : TransactionType.DEPOSIT,
+                TransactionStatus.COMPLETED, createdAt, createdAt);
+    }
+
+    private UUID newCustomer() {
+        return customerService.createCustomer(new CustomerCreateDTO(
+                "Archive Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+    }
+
+    private UUID newAccount(UUID ownerId) {
+        return accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        )).id();
+    }
+
+    private TransactionCreateDTO posting(UUID debit, UUID credit, String amount, TransactionType type) {
+        return new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), debit, credit, new BigDecimal(amount), CurrencyCode.USD, type
+        );
+    }
+}
@@ -0,0 +1,160 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.TransactionBatchDTO;
+import com.kostas.banking.dto.TransactionBatchItemDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+import com.kostas.banking.model.Balance;
+import com.kostas.banking.repository.BalanceRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class TransactionBatchTest {
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private BalanceRepository balanceRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void reportsEachPostingAndKeepsTheGoodOnes() {
+        UUID ownerId = newCustomer();
+        UUID account = newAccount(ownerId);
+        UUID other = newAccount(ownerId);
+        String existing = "TXN-" + UUID.randomUUID();
+        transactionService.createTransaction(deposit(existing, account, "100"));
+        String repeated = "TXN-" + UUID.randomUUID();
+
+        TransactionBatchDTO batch = transactionService.createTransactions(Arrays.asList(
+                deposit(repeated, other, "5"),
+                deposit(repeated, other, "5"),
+                deposit(existing, other, "5"),
+                transfer(account, other, "30"),
+                transfer(account, other, "80"),
+                deposit("TXN-" + UUID.randomUUID(), UUID.randomUUID(), "5"),
+                null
+        ));
+
+        assertThat(batch.posted()).isEqualTo(2);
+        assertThat(batch.failed()).isEqualTo(5);
+        assertThat(batch.results()).extracting(TransactionBatchItemDTO::index).containsExactly(0, 1, 2, 3, 4, 5, 6);
+        assertThat(batch.results()).extracting(item -> item.error() == null ? 200 : item.error().status())
+                .containsExactly(200, 409, 409, 200, 422, 404, 400);
+        assertThat(batch.results().get(0).transaction().createdAt()).isNotNull();
+        assertThat(usd(account)).isEqualByComparingTo("70");
+        assertThat(usd(other)).isEqualByComparingTo("35");
+    }
+
+    @Test
+    void insertsWithoutSelectingEachRowFirst() {
+        UUID ownerId = newCustomer();
+        List<UUID> accounts = List.of(newAccount(ownerId), newAccount(ownerId), newAccount(ownerId));
+        List<TransactionCreateDTO> dtos = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            dtos.add(deposit("TXN-" + UUID.randomUUID(), accounts.get(i % accounts.size()), "1"));
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        TransactionBatchDTO batch = transactionService.createTransactions(dtos);
+
+        assertThat(batch.posted()).isEqualTo(300);
+        // lock + balances + reference check + the day's summaries, then the (batched) balance, transaction,
+        // outbox and summary inserts
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(9);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(accounts.size());
+        assertThat(usd(accounts.get(0))).isEqualByComparingTo("100");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void batchEndpointVersusLoopingSinglePostings() {
+        UUID ownerId = newCustomer();
+        List<UUID> accounts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            accounts.add(newAccount(ownerId));
+        }
+
+        run(accounts, 500, false); // warm-up
+        run(accounts, 500, true);
+
+        int postings = 10_000;
+        double single = run(accounts, postings, false);
+        double batched = run(accounts, postings, true);
+        System.out.printf("%d deposits over %d accounts: single endpoint %8.1f inserts/s, batch endpoint %8.1f inserts/s%n",
+                postings, accounts.size(), single, batched);
+    }
+
+    private double run(List<UUID> accounts, int postings, boolean batched) {
+        List<TransactionCreateDTO> dtos = new ArrayList<>(postings);
+        for (int i = 0; i < postings; i++) {
+            dtos.add(deposit("TXN-" + UUID.randomUUID(), accounts.get(i % accounts.size()), "1"));
+        }
+
+        long start = System.nanoTime();
+        if (batched) {
+            for (int from = 0; from < postings; from += 1000) {
+                List<TransactionCreateDTO> chunk = dtos.subList(from, Math.min(from + 1000, postings));
+                assertThat(transactionService.createTransactions(chunk).failed()).isZero();
+            }
+        } else {
+            dtos.forEach(transactionService::createTransaction);
+        }
+        return postings / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private UUID newCustomer() {
+        return customerService.createCustomer(new CustomerCreateDTO(
+                "Batch Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+    }
+
+    private UUID newAccount(UUID ownerId) {
+        return accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        )).id();
+    }
+
+    private TransactionCreateDTO deposit(String referenceNumber, UUID credit, String amount) {
+        return new TransactionCreateDTO(
+                referenceNumber, null, credit, new BigDecimal(amount), CurrencyCode.USD, TransactionType.DEPOSIT
+        );
+    }
+
+    private TransactionCreateDTO transfer(UUID debit, UUID credit, String amount) {
+        return new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), debit, credit, new BigDecimal(amount), CurrencyCode.USD, TransactionType.TRANSFER
+        );
+    }
+
+    private BigDecimal usd(UUID accountId) {
+        return balanceRepository.findByAccountIdAndCurrency(accountId, CurrencyCode.USD)
+                .map(Balance::getAmount)
+                .orElse(BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,65 @@
+package com.kostas.banking.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.dto.TransactionFilter;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class TransactionExportServiceTest {
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void writesOneLinePerTransaction() throws Exception {
+        UUID ownerId = customerService.createCustomer(new CustomerCreateDTO(
+                "Export Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+        UUID account = accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.SAVINGS, ownerId
+        )).id();
+        String reference = "TXN-\"quoted\",export-" + UUID.randomUUID();
+        transactionService.createTransaction(new TransactionCreateDTO(
+                reference, null, account, new BigDecimal("12.50"), CurrencyCode.EUR, TransactionType.INTEREST
+        ));
+        TransactionFilter interest = new TransactionFilter(null, null, TransactionType.INTEREST, null, null, null);
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        transactionExportService.export(interest, TransactionExportService.Format.NDJSON, ndjson);
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        JsonNode last = objectMapper.readTree(lines[lines.length - 1]);
+        assertThat(last.get("referenceNumber").asText()).isEqualTo(reference);
+        assertThat(last.get("creditAccountId").asText()).isEqualTo(account.toString());
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        transactionExportService.export(interest, TransactionExportService.Format.CSV, csv);
+        String[] rows = csv.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(rows).hasSize(lines.length + 1);
+        assertThat(rows[rows.length - 1]).contains("\"TXN-\"\"quoted\"\",export-");
+    }
+}
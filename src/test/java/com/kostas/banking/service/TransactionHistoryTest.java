@@ -0,0 +1,118 @@
+package com.kostas.banking.service;
+
+import com.kostas.banking.dto.AccountCreateDTO;
+import com.kostas.banking.dto.CustomerCreateDTO;
+import com.kostas.banking.dto.PageDTO;
+import com.kostas.banking.dto.TransactionCreateDTO;
+import com.kostas.banking.dto.TransactionDTO;
+import com.kostas.banking.dto.TransactionFilter;
+import com.kostas.banking.enums.AccountType;
+import com.kostas.banking.enums.CurrencyCode;
+import com.kostas.banking.enums.TransactionStatus;
+import com.kostas.banking.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class TransactionHistoryTest {
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private CustomerService customerService;
+
+    @Test
+    void pagesThroughBothSidesWithoutGapsOrDuplicates() {
+        UUID ownerId = customerService.createCustomer(new CustomerCreateDTO(
+                "History Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+        UUID account = newAccount(ownerId);
+        UUID other = newAccount(ownerId);
+
+        for (int i = 0; i < 15; i++) {
+            post(null, account, TransactionType.DEPOSIT);
+            post(account, other, TransactionType.TRANSFER);
+        }
+        post(other, account, TransactionType.TRANSFER);
+
+        List<TransactionDTO> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageDTO<TransactionDTO> page = transactionService.getAccountHistory(account, TransactionFilter.NONE, cursor, 7);
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(7);
+            all.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        Set<UUID> ids = new HashSet<>();
+        all.forEach(transaction -> ids.add(transaction.id()));
+        assertThat(all).hasSize(31);
+        assertThat(ids).hasSize(31);
+        for (int i = 1; i < all.size(); i++) {
+            assertThat(all.get(i).createdAt()).isBeforeOrEqualTo(all.get(i - 1).createdAt());
+        }
+
+        TransactionFilter deposits = new TransactionFilter(null, null, TransactionType.DEPOSIT, null, null, null);
+        assertThat(transactionService.getAccountHistory(account, deposits, null, 100).items()).hasSize(15);
+    }
+
+    @Test
+    void pagesThroughAStatusWithoutGapsOrDuplicates() {
+        UUID ownerId = customerService.createCustomer(new CustomerCreateDTO(
+                "Status Test", UUID.randomUUID() + "@test.com", LocalDate.of(1990, 1, 1), "password"
+        )).id();
+        UUID account = newAccount(ownerId);
+        UUID other = newAccount(ownerId);
+        post(null, account, TransactionType.DEPOSIT);
+        post(null, account, TransactionType.DEPOSIT);
+
+        Set<UUID> holds = new HashSet<>();
+        for (int i = 0; i < 9; i++) {
+            holds.add(transactionService.createHold(new TransactionCreateDTO(
+                    "TXN-" + UUID.randomUUID(), account, other, new BigDecimal("0.1"), CurrencyCode.USD, TransactionType.TRANSFER
+            )).id());
+        }
+
+        List<TransactionDTO> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageDTO<TransactionDTO> page = transactionService.getTransactionsByStatus(TransactionStatus.PENDING, cursor, 4);
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(4);
+            all.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        Set<UUID> ids = new HashSet<>();
+        all.forEach(transaction -> ids.add(transaction.id()));
+        assertThat(ids).hasSize(all.size()).containsAll(holds);
+        assertThat(all).allSatisfy(transaction -> assertThat(transaction.status()).isEqualTo(TransactionStatus.PENDING));
+        for (int i = 1; i < all.size(); i++) {
+            assertThat(all.get(i).createdAt()).isBeforeOrEqualTo(all.get(i - 1).createdAt());
+        }
+    }
+
+    private UUID newAccount(UUID ownerId) {
+        return accountService.createAccount(new AccountCreateDTO(
+                "ACC-" + UUID.randomUUID(), AccountType.CHECKING, ownerId
+        )).id();
+    }
+
+    private void post(UUID debit, UUID credit, TransactionType type) {
+        transactionService.createTransaction(new TransactionCreateDTO(
+                "TXN-" + UUID.randomUUID(), debit, credit, BigDecimal.ONE, CurrencyCode.USD, type
+        ));
+    }
+}
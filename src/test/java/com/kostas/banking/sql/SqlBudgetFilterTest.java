@@ -0,0 +1,81 @@
+package com.kostas.banking.sql;
+
+import com.kostas.banking.exception.SqlBudgetExceededException;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SqlBudgetFilterTest {
+
+    private final SqlStatementCounter counter = new SqlStatementCounter();
+
+    @SqlBudget(2)
+    static class Endpoints {
+        public void list() {}
+
+        @SqlBudget(3)
+        public void dashboard() {}
+    }
+
+    @Test
+    void requestsWithinTheirBudgetPass() {
+        SqlBudgetFilter filter = new SqlBudgetFilter(SqlBudgetFilter.Mode.FAIL);
+
+        assertThatCode(() -> run(filter, "list", 1)).doesNotThrowAnyException();
+        assertThatCode(() -> run(filter, "dashboard", 2)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void anNPlusOneIsReportedWithItsQueryShape() {
+        SqlBudgetFilter filter = new SqlBudgetFilter(SqlBudgetFilter.Mode.FAIL);
+
+        assertThatThrownBy(() -> run(filter, "list", 10))
+                .isInstanceOf(SqlBudgetExceededException.class)
+                .hasMessageContaining("GET /api/things ran 11 SQL statements, budget is 2")
+                .hasMessageContaining("10x select c.full_name from customers c where c.id=?")
+                .hasMessageContaining("1x select a.id, a.owner_id from account a where a.id in (?...)");
+        assertThatThrownBy(() -> run(filter, "dashboard", 3)).isInstanceOf(SqlBudgetExceededException.class);
+    }
+
+    @Test
+    void logModeOnlyLogs() {
+        SqlBudgetFilter filter = new SqlBudgetFilter(SqlBudgetFilter.Mode.LOG);
+
+        assertThatCode(() -> run(filter, "list", 10)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void statementsOutsideARequestAreNotCounted() throws Exception {
+        counter.inspect("select 1");
+        try (SqlStatementCounter.Statements statements = SqlStatementCounter.open()) {
+            counter.inspect("select 1");
+            assertThat(statements.count()).isEqualTo(1);
+        }
+    }
+
+    // one query for the page, then one per row for a lazy association
+    private void run(SqlBudgetFilter filter, String endpoint, int rows) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/things");
+        FilterChain chain = (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/things");
+            try {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                        new HandlerMethod(new Endpoints(), Endpoints.class.getMethod(endpoint)));
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+            counter.inspect("select a.id, a.owner_id\n  from account a where a.id in (" + "?, ".repeat(rows) + "?)");
+            for (int i = 0; i < rows; i++) {
+                counter.inspect("select c.full_name from customers c where c.id=?");
+            }
+        };
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+    }
+}